@@ -34,21 +34,35 @@ import org.killbill.billing.account.dao.AccountEmailModelDao;
 import org.killbill.billing.account.dao.AccountModelDao;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationNoException;
+
 public class DefaultAccountInternalApi implements AccountInternalApi {
 
+    private static final Function<AccountModelDao, Account> TO_ACCOUNT = new Function<AccountModelDao, Account>() {
+        @Override
+        public Account apply(final AccountModelDao accountModelDao) {
+            return new DefaultAccount(accountModelDao);
+        }
+    };
+
     private final AccountDao accountDao;
+    private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
-    public DefaultAccountInternalApi(final AccountDao accountDao) {
+    public DefaultAccountInternalApi(final AccountDao accountDao, final InternalCallContextFactory internalCallContextFactory) {
         this.accountDao = accountDao;
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @Override
@@ -119,6 +133,30 @@ public class DefaultAccountInternalApi implements AccountInternalApi {
         return accountModelDao.getId();
     }
 
+    @Override
+    public Pagination<Account> getAccountsFromRecordId(final Long fromRecordId, final Long limit, final boolean withCount, final TenantContext context) {
+        return getEntityPaginationNoException(limit,
+                                              new SourcePaginationBuilder<AccountModelDao, AccountApiException>() {
+                                                  @Override
+                                                  public Pagination<AccountModelDao> build() {
+                                                      return accountDao.getFromRecordId(fromRecordId, limit, withCount, internalCallContextFactory.createInternalTenantContext(context));
+                                                  }
+                                              },
+                                              TO_ACCOUNT);
+    }
+
+    @Override
+    public Pagination<Account> searchAccountsFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final TenantContext context) {
+        return getEntityPaginationNoException(limit,
+                                              new SourcePaginationBuilder<AccountModelDao, AccountApiException>() {
+                                                  @Override
+                                                  public Pagination<AccountModelDao> build() {
+                                                      return accountDao.searchAccountsFromRecordId(searchKey, fromRecordId, limit, withCount, internalCallContextFactory.createInternalTenantContext(context));
+                                                  }
+                                              },
+                                              TO_ACCOUNT);
+    }
+
     private AccountModelDao getAccountModelDaoByRecordId(final Long recordId, final InternalTenantContext context) throws AccountApiException {
         final AccountModelDao accountModelDao = accountDao.getByRecordId(recordId, context);
         if (accountModelDao == null) {
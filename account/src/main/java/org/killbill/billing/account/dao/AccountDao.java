@@ -32,6 +32,8 @@ public interface AccountDao extends EntityDao<AccountModelDao, Account, AccountA
 
     public Pagination<AccountModelDao> searchAccounts(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
+    public Pagination<AccountModelDao> searchAccountsFromRecordId(String searchKey, Long fromRecordId, Long limit, boolean withCount, InternalTenantContext context);
+
     /**
      * @throws AccountApiException when externalKey is null
      */
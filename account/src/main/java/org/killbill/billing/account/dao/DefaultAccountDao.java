@@ -37,6 +37,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
@@ -123,6 +124,26 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                               context);
     }
 
+    @Override
+    public Pagination<AccountModelDao> searchAccountsFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        return paginationHelper.getPaginationFromRecordId(AccountSqlDao.class,
+                                                          new KeysetPaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
+                                                              @Override
+                                                              public Long getCount(final AccountSqlDao accountSqlDao, final InternalTenantContext context) {
+                                                                  return accountSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
+                                                              }
+
+                                                              @Override
+                                                              public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                                  return accountSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                              }
+                                                          },
+                                                          fromRecordId,
+                                                          limit,
+                                                          withCount,
+                                                          context);
+    }
+
     @Override
     public UUID getIdFromKey(final String externalKey, final InternalTenantContext context) throws AccountApiException {
         if (externalKey == null) {
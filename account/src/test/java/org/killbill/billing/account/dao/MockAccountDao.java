@@ -119,6 +119,11 @@ public class MockAccountDao extends MockEntityDaoBase<AccountModelDao, Account,
         return DefaultPagination.<AccountModelDao>build(offset, limit, results);
     }
 
+    @Override
+    public Pagination<AccountModelDao> searchAccountsFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public UUID getIdFromKey(final String externalKey, final InternalTenantContext context) {
         final AccountModelDao account = getAccountByKey(externalKey, context);
@@ -17,6 +17,7 @@
 package org.killbill.billing.account.dao;
 
 import java.sql.SQLException;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -104,6 +105,77 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
         Assert.assertEquals(auditLogsForAccount.get(0).getChangeType(), ChangeType.INSERT);
     }
 
+    @Test(groups = "slow", description = "Test Account: keyset pagination")
+    public void testPaginationFromRecordId() throws AccountApiException {
+        final List<AccountModelDao> accounts = new LinkedList<AccountModelDao>();
+        for (int i = 0; i < 5; i++) {
+            final AccountModelDao account = createTestAccount();
+            accountDao.create(account, internalCallContext);
+            accounts.add(account);
+        }
+
+        // Walk the pages, without counts
+        final List<AccountModelDao> retrievedAccounts = new LinkedList<AccountModelDao>();
+        Long fromRecordId = 0L;
+        int nbPages = 0;
+        while (fromRecordId != null) {
+            final Pagination<AccountModelDao> page = accountDao.getFromRecordId(fromRecordId, 2L, false, internalCallContext);
+            Assert.assertEquals(page.getCurrentOffset(), fromRecordId);
+            Assert.assertNull(page.getTotalNbRecords());
+            Assert.assertNull(page.getMaxNbRecords());
+
+            final List<AccountModelDao> pageAccounts = ImmutableList.<AccountModelDao>copyOf(page);
+            Assert.assertEquals(pageAccounts.size(), nbPages < 2 ? 2 : 1);
+            retrievedAccounts.addAll(pageAccounts);
+            if (page.getNextOffset() != null) {
+                // The next page starts right after this one
+                Assert.assertEquals(page.getNextOffset(), accountDao.getRecordId(accounts.get(2 * nbPages + 2).getId(), internalCallContext));
+            }
+
+            fromRecordId = page.getNextOffset();
+            nbPages++;
+        }
+        Assert.assertEquals(nbPages, 3);
+        Assert.assertEquals(retrievedAccounts.size(), accounts.size());
+        for (int i = 0; i < accounts.size(); i++) {
+            checkAccountsEqual(retrievedAccounts.get(i), accounts.get(i));
+        }
+
+        // With counts
+        final Pagination<AccountModelDao> lastPage = accountDao.getFromRecordId(accountDao.getRecordId(accounts.get(4).getId(), internalCallContext), 2L, true, internalCallContext);
+        Assert.assertEquals(lastPage.getTotalNbRecords(), (Long) 5L);
+        Assert.assertEquals(lastPage.getMaxNbRecords(), (Long) 5L);
+        Assert.assertNull(lastPage.getNextOffset());
+        Assert.assertEquals(ImmutableList.<AccountModelDao>copyOf(lastPage).size(), 1);
+
+        // A full last page has no next page either
+        final Pagination<AccountModelDao> fullLastPage = accountDao.getFromRecordId(accountDao.getRecordId(accounts.get(3).getId(), internalCallContext), 2L, false, internalCallContext);
+        Assert.assertNull(fullLastPage.getNextOffset());
+        Assert.assertEquals(ImmutableList.<AccountModelDao>copyOf(fullLastPage).size(), 2);
+
+        // Search
+        final Pagination<AccountModelDao> searchResults = accountDao.searchAccountsFromRecordId(accounts.get(2).getId().toString(), 0L, 2L, true, internalCallContext);
+        Assert.assertEquals(searchResults.getTotalNbRecords(), (Long) 1L);
+        Assert.assertEquals(searchResults.getMaxNbRecords(), (Long) 5L);
+        Assert.assertNull(searchResults.getNextOffset());
+        final List<AccountModelDao> searchedAccounts = ImmutableList.<AccountModelDao>copyOf(searchResults);
+        Assert.assertEquals(searchedAccounts.size(), 1);
+        checkAccountsEqual(searchedAccounts.get(0), accounts.get(2));
+
+        // Large limits are capped (no overflow), non positive ones are rejected
+        final Pagination<AccountModelDao> unboundedPage = accountDao.getFromRecordId(0L, Long.MAX_VALUE, false, internalCallContext);
+        Assert.assertNull(unboundedPage.getNextOffset());
+        Assert.assertEquals(ImmutableList.<AccountModelDao>copyOf(unboundedPage).size(), 5);
+        for (final Long invalidLimit : new Long[]{0L, -1L}) {
+            try {
+                accountDao.getFromRecordId(0L, invalidLimit, false, internalCallContext);
+                Assert.fail();
+            } catch (final IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("limit"));
+            }
+        }
+    }
+
     @Test(groups = "slow", description = "Test Account: verify audits")
     public void testAudits() throws AccountApiException {
         // Special test to verify audits - they are handled a bit differently due to the account record id (see EntitySqlDaoWrapperInvocationHandler#insertAudits)
@@ -21,6 +21,7 @@ import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.entity.Pagination;
 
 public interface AccountInternalApi {
@@ -40,4 +41,18 @@ public interface AccountInternalApi {
     public void updatePaymentMethod(UUID accountId, UUID paymentMethodId, InternalCallContext context) throws AccountApiException;
 
     public UUID getByRecordId(Long recordId, InternalTenantContext context) throws AccountApiException;
+
+    /**
+     * Keyset pagination: the offsets of the returned Pagination are record ids, getNextOffset() being the
+     * first record id of the next page (null if there is none)
+     *
+     * @param fromRecordId first record id to return
+     * @param limit        maximum number of accounts
+     * @param withCount    whether to compute the total number of records (expensive on large tables)
+     * @param context      the tenant context
+     * @return the accounts, ordered by record id
+     */
+    public Pagination<Account> getAccountsFromRecordId(Long fromRecordId, Long limit, boolean withCount, TenantContext context);
+
+    public Pagination<Account> searchAccountsFromRecordId(String searchKey, Long fromRecordId, Long limit, boolean withCount, TenantContext context);
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+/**
+ * Progress of an invoice run over all the accounts of a tenant due for a given target date
+ */
+public interface InvoiceBulkRun {
+
+    public UUID getId();
+
+    public LocalDate getTargetDate();
+
+    public DateTime getStartDate();
+
+    /**
+     * @return the date at which the last account was processed, or null if the run is still in progress
+     */
+    public DateTime getEndDate();
+
+    public boolean isCompleted();
+
+    public int getNbAccounts();
+
+    public int getNbProcessedAccounts();
+
+    public int getNbInvoices();
+
+    public int getNbFailures();
+
+    /**
+     * @return the number of accounts processed per second since the beginning of the run
+     */
+    public double getThroughput();
+}
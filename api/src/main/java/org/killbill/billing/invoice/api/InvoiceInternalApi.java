@@ -28,6 +28,9 @@ import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
 
 public interface InvoiceInternalApi {
 
@@ -35,6 +38,17 @@ public interface InvoiceInternalApi {
 
     public Collection<Invoice> getUnpaidInvoicesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
 
+    /**
+     * Same invoices as getUnpaidInvoicesByAccountId, but only their number, total balance and earliest one are computed
+     * (the invoices, their items and payments aren't loaded)
+     *
+     * @param accountId account id
+     * @param upToDate  only invoices with a target date on or prior this date are considered
+     * @param context   the tenant context
+     * @return the unpaid invoices summary
+     */
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     public BigDecimal getAccountBalance(UUID accountId, InternalTenantContext context);
 
     public void notifyOfPayment(UUID invoiceId, BigDecimal amountOutstanding, Currency currency, Currency processedCurrency, UUID paymentId, DateTime paymentDate, InternalCallContext context) throws InvoiceApiException;
@@ -73,4 +87,34 @@ public interface InvoiceInternalApi {
      * @param context   the callcontext
      */
     public void consumeExistingCBAOnAccountWithUnpaidInvoices(final UUID accountId, final InternalCallContext context) throws InvoiceApiException;
+
+    /**
+     * Invoice, in the background, all the accounts of the tenant with a next billing date on or prior the target date
+     *
+     * @param targetDate the target date
+     * @param context    the call context (tenant level)
+     * @return the run, to track its progress
+     */
+    public InvoiceBulkRun triggerBulkInvoiceRun(LocalDate targetDate, CallContext context) throws InvoiceApiException;
+
+    /**
+     * @param runId   the run id
+     * @param context the tenant context
+     * @return the run, or null if it is unknown
+     */
+    public InvoiceBulkRun getBulkInvoiceRun(UUID runId, TenantContext context);
+
+    /**
+     * Keyset pagination: the offsets of the returned Pagination are record ids (i.e. invoice numbers), getNextOffset()
+     * being the first record id of the next page (null if there is none)
+     *
+     * @param fromRecordId first record id to return
+     * @param limit        maximum number of invoices
+     * @param withCount    whether to compute the total number of records (expensive on large tables)
+     * @param context      the tenant context
+     * @return the shallow invoices (without items nor payments), ordered by record id
+     */
+    public Pagination<Invoice> getInvoicesFromRecordId(Long fromRecordId, Long limit, boolean withCount, TenantContext context);
+
+    public Pagination<Invoice> searchInvoicesFromRecordId(String searchKey, Long fromRecordId, Long limit, boolean withCount, TenantContext context);
 }
@@ -40,6 +40,16 @@ public interface TagInternalApi {
      */
     public List<Tag> getTags(UUID objectId, ObjectType objectType, InternalTenantContext context);
 
+    /**
+     * Return all tags of a given object type for an account, in a single lookup
+     *
+     * @param accountId  the account id
+     * @param objectType the object type
+     * @param context    call callcontext
+     * @return the (non deleted) tags for all objects of that type belonging to the account
+     */
+    public List<Tag> getTagsForAccountType(UUID accountId, ObjectType objectType, InternalTenantContext context);
+
     public void addTag(final UUID objectId, final ObjectType objectType, UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
 
     public void removeTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
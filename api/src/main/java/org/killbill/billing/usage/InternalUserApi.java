@@ -20,10 +20,39 @@ package org.killbill.billing.usage;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.util.callcontext.CallContext;
 
 public interface InternalUserApi {
 
+    // Size of the tracking_id column
+    public static final int MAX_TRACKING_ID_LENGTH = 128;
+
     public List<RawUsage> getRawUsageForAccount(final LocalDate stateDate, final LocalDate endDate, final InternalTenantContext tenantContext);
+
+    /**
+     * Retrieve pre-summed usage for a subscription: one entry per unit type and per [transitionTimes[i], transitionTimes[i+1]) interval,
+     * dated with the start of the interval.
+     *
+     * @param subscriptionId  the subscription id
+     * @param transitionTimes sorted interval boundaries
+     * @param tenantContext   the context
+     * @return the usage totals
+     */
+    public List<RawUsage> getAggregatedUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalTenantContext tenantContext);
+
+    /**
+     * Record usage for a subscription, at most once per tracking id: producers can safely retry a submission with the same tracking id.
+     *
+     * @param record     the usage to record
+     * @param trackingId idempotency key set by the producer, unique per subscription (null to always record), at most MAX_TRACKING_ID_LENGTH characters
+     * @param context    the call context
+     * @return false if usage with that tracking id was already recorded for the subscription (the record is ignored)
+     * @throws IllegalArgumentException if the tracking id is too long
+     */
+    public boolean recordRolledUpUsage(final SubscriptionUsageRecord record, @Nullable final String trackingId, final CallContext context);
 }
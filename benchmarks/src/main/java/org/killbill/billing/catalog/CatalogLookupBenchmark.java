@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.PriceListSet;
+import org.killbill.clock.DefaultClock;
+import org.killbill.xmlloader.XMLLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the plan, product and phase lookups done for each subscription event (entitlement, billing events, invoicing)
+ * against a synthetic catalog with one monthly and one annual plan per product, available in each catalog version.
+ * <p/>
+ * The existing subscription lookups start in the latest version and walk back to the first one (none of the plans
+ * have an effectiveDateForExistingSubscriptons), which is the worst case for subscriptions created long ago.
+ * <p/>
+ * Build with {@code mvn -Pbenchmarks -pl benchmarks -am package} and run with
+ * {@code java -jar benchmarks/target/benchmarks.jar CatalogLookupBenchmark -prof gc} (or through {@link #main(String[])},
+ * which enables the GC profiler).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class CatalogLookupBenchmark {
+
+    private static final DateTime FIRST_VERSION_DATE = new DateTime(2011, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    @Param({"10", "500"})
+    public int nbProducts;
+
+    @Param({"1", "10"})
+    public int nbVersions;
+
+    private VersionedCatalog catalog;
+    private String[] productNames;
+    private String[] planNames;
+    private String[] phaseNames;
+    private DateTime requestedDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        catalog = new VersionedCatalog(new DefaultClock());
+        final URI uri = new URI("/CatalogLookupBenchmark");
+        for (int i = 0; i < nbVersions; i++) {
+            final String catalogXML = createCatalogXML(FIRST_VERSION_DATE.plusMonths(i));
+            final StandaloneCatalog standaloneCatalog = XMLLoader.getObjectFromStream(uri, new ByteArrayInputStream(catalogXML.getBytes("UTF-8")), StandaloneCatalog.class);
+            catalog.add(new StandaloneCatalogWithPriceOverride(standaloneCatalog, null, 1L, null));
+        }
+
+        productNames = new String[nbProducts];
+        planNames = new String[2 * nbProducts];
+        phaseNames = new String[2 * nbProducts];
+        for (int i = 0; i < nbProducts; i++) {
+            productNames[i] = productName(i);
+            planNames[2 * i] = planName(i, BillingPeriod.MONTHLY);
+            planNames[2 * i + 1] = planName(i, BillingPeriod.ANNUAL);
+            phaseNames[2 * i] = planNames[2 * i] + "-evergreen";
+            phaseNames[2 * i + 1] = planNames[2 * i + 1] + "-trial";
+        }
+        requestedDate = FIRST_VERSION_DATE.plusMonths(nbVersions);
+    }
+
+    @Benchmark
+    public Plan findPlanForNewSubscription() throws CatalogApiException {
+        return catalog.findPlan(planNames[ThreadLocalRandom.current().nextInt(planNames.length)], requestedDate, requestedDate);
+    }
+
+    @Benchmark
+    public Plan findPlanForExistingSubscription() throws CatalogApiException {
+        return catalog.findPlan(planNames[ThreadLocalRandom.current().nextInt(planNames.length)], requestedDate, FIRST_VERSION_DATE);
+    }
+
+    @Benchmark
+    public Plan createOrFindPlan() throws CatalogApiException {
+        return catalog.createOrFindPlan(productNames[ThreadLocalRandom.current().nextInt(productNames.length)], BillingPeriod.ANNUAL, PriceListSet.DEFAULT_PRICELIST_NAME, null, requestedDate, requestedDate);
+    }
+
+    @Benchmark
+    public PlanPhase findPhase() throws CatalogApiException {
+        return catalog.findPhase(phaseNames[ThreadLocalRandom.current().nextInt(phaseNames.length)], requestedDate, requestedDate);
+    }
+
+    private String createCatalogXML(final DateTime effectiveDate) {
+        final StringBuilder products = new StringBuilder();
+        final StringBuilder plans = new StringBuilder();
+        final StringBuilder priceListPlans = new StringBuilder();
+        for (int i = 0; i < nbProducts; i++) {
+            products.append("<product name=\"").append(productName(i)).append("\"><category>BASE</category></product>");
+            for (final BillingPeriod billingPeriod : new BillingPeriod[]{BillingPeriod.MONTHLY, BillingPeriod.ANNUAL}) {
+                final String planName = planName(i, billingPeriod);
+                plans.append("<plan name=\"").append(planName).append("\">")
+                     .append("<product>").append(productName(i)).append("</product>")
+                     .append("<initialPhases><phase type=\"TRIAL\">")
+                     .append("<duration><unit>DAYS</unit><number>30</number></duration>")
+                     .append("<fixed><fixedPrice></fixedPrice></fixed>")
+                     .append("</phase></initialPhases>")
+                     .append("<finalPhase type=\"EVERGREEN\">")
+                     .append("<duration><unit>UNLIMITED</unit></duration>")
+                     .append("<recurring><billingPeriod>").append(billingPeriod).append("</billingPeriod>")
+                     .append("<recurringPrice><price><currency>USD</currency><value>").append(i + 1).append(".95</value></price></recurringPrice>")
+                     .append("</recurring></finalPhase>")
+                     .append("</plan>");
+                priceListPlans.append("<plan>").append(planName).append("</plan>");
+            }
+        }
+
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+               "<catalog>" +
+               "<effectiveDate>" + effectiveDate + "</effectiveDate>" +
+               "<catalogName>CatalogLookupBenchmark</catalogName>" +
+               "<recurringBillingMode>IN_ADVANCE</recurringBillingMode>" +
+               "<currencies><currency>USD</currency></currencies>" +
+               "<products>" + products + "</products>" +
+               "<rules>" +
+               "<changePolicy><changePolicyCase><policy>END_OF_TERM</policy></changePolicyCase></changePolicy>" +
+               "<changeAlignment><changeAlignmentCase><alignment>START_OF_SUBSCRIPTION</alignment></changeAlignmentCase></changeAlignment>" +
+               "<createAlignment><createAlignmentCase><alignment>START_OF_BUNDLE</alignment></createAlignmentCase></createAlignment>" +
+               "</rules>" +
+               "<plans>" + plans + "</plans>" +
+               "<priceLists><defaultPriceList name=\"" + PriceListSet.DEFAULT_PRICELIST_NAME + "\"><plans>" + priceListPlans + "</plans></defaultPriceList></priceLists>" +
+               "</catalog>";
+    }
+
+    private static String productName(final int i) {
+        return "Product" + i;
+    }
+
+    private static String planName(final int i, final BillingPeriod billingPeriod) {
+        return productName(i).toLowerCase() + "-" + billingPeriod.toString().toLowerCase();
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(CatalogLookupBenchmark.class.getSimpleName())
+                                                    .addProfiler(GCProfiler.class)
+                                                    .build();
+        new Runner(options).run();
+    }
+}
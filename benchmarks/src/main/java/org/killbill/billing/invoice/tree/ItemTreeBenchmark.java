@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.tree;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.generator.InvoiceDateUtils;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.util.currency.KillBillMoney;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the merge logic run on each invoice generation, for synthetic accounts with many subscriptions and
+ * a long invoicing history (monthly items, mid-month plan changes with their repairs, item adjustments).
+ * <p/>
+ * Build with {@code mvn -Pbenchmarks -pl benchmarks -am package} and run with
+ * {@code java -jar benchmarks/target/benchmarks.jar ItemTreeBenchmark -prof gc} (or through {@link #main(String[])},
+ * which enables the GC profiler) to get the allocation rate per operation alongside the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class ItemTreeBenchmark {
+
+    private static final Currency CURRENCY = Currency.USD;
+    private static final LocalDate START_DATE = new LocalDate(2012, 1, 1);
+    // A plan change happens every PLAN_CHANGE_MONTHS months, on that day of the month
+    private static final int PLAN_CHANGE_MONTHS = 6;
+    private static final int PLAN_CHANGE_DAY_OF_MONTH = 15;
+    // An item adjustment is booked every ITEM_ADJ_MONTHS months
+    private static final int ITEM_ADJ_MONTHS = 4;
+
+    @Param({"1", "10", "50"})
+    public int nbSubscriptions;
+
+    @Param({"12", "36", "120"})
+    public int nbMonths;
+
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID invoiceId = UUID.randomUUID();
+    private final UUID targetInvoiceId = UUID.randomUUID();
+
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        existingItems = new LinkedList<InvoiceItem>();
+        proposedItems = new LinkedList<InvoiceItem>();
+        for (int i = 0; i < nbSubscriptions; i++) {
+            generateItemsForSubscription(UUID.randomUUID(), UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public AccountItemTree mergeWithProposedItems() {
+        final AccountItemTree tree = buildTree();
+        tree.mergeWithProposedItems(proposedItems);
+        return tree;
+    }
+
+    @Benchmark
+    public List<InvoiceItem> mergeAndGetResultingItemList() {
+        final AccountItemTree tree = buildTree();
+        tree.mergeWithProposedItems(proposedItems);
+        return tree.getResultingItemList();
+    }
+
+    @State(Scope.Thread)
+    public static class MergedTree {
+
+        private AccountItemTree tree;
+
+        // Trees are single use, hence the per invocation setup: only use this state for the (non trivial) getResultingItemList call
+        @Setup(Level.Invocation)
+        public void setUp(final ItemTreeBenchmark benchmark) {
+            tree = benchmark.buildTree();
+            tree.mergeWithProposedItems(benchmark.proposedItems);
+        }
+    }
+
+    @Benchmark
+    public List<InvoiceItem> getResultingItemList(final MergedTree mergedTree) {
+        return mergedTree.tree.getResultingItemList();
+    }
+
+    private AccountItemTree buildTree() {
+        final AccountItemTree tree = new AccountItemTree(accountId, targetInvoiceId);
+        for (final InvoiceItem existingItem : existingItems) {
+            tree.addExistingItem(existingItem);
+        }
+        return tree;
+    }
+
+    // Existing items cover all months but the last one, which is the period being invoiced
+    private void generateItemsForSubscription(final UUID bundleId, final UUID subscriptionId) {
+        for (int month = 0; month < nbMonths; month++) {
+            final boolean isInvoiced = month < nbMonths - 1;
+            final LocalDate startDate = START_DATE.plusMonths(month);
+            final LocalDate endDate = startDate.plusMonths(1);
+            final int planIdx = month / PLAN_CHANGE_MONTHS;
+            final String planName = "plan-" + planIdx;
+            final BigDecimal rate = getRate(planIdx);
+
+            if (month > 0 && month % PLAN_CHANGE_MONTHS == 0) {
+                final String previousPlanName = "plan-" + (planIdx - 1);
+                final BigDecimal previousRate = getRate(planIdx - 1);
+                final LocalDate changeDate = startDate.withDayOfMonth(PLAN_CHANGE_DAY_OF_MONTH);
+
+                // Full period billed in advance on the previous plan, then repaired when the change happened
+                if (isInvoiced) {
+                    final InvoiceItem previousItem = createRecurringItem(bundleId, subscriptionId, previousPlanName, startDate, endDate, startDate, endDate, previousRate);
+                    existingItems.add(previousItem);
+                    existingItems.add(new RepairAdjInvoiceItem(invoiceId, accountId, changeDate, endDate, prorate(previousRate, changeDate, endDate, startDate, endDate).negate(), CURRENCY, previousItem.getId()));
+                    existingItems.add(createRecurringItem(bundleId, subscriptionId, planName, changeDate, endDate, startDate, endDate, rate));
+                }
+                proposedItems.add(createRecurringItem(bundleId, subscriptionId, previousPlanName, startDate, changeDate, startDate, endDate, previousRate));
+                proposedItems.add(createRecurringItem(bundleId, subscriptionId, planName, changeDate, endDate, startDate, endDate, rate));
+            } else {
+                if (isInvoiced) {
+                    final InvoiceItem item = createRecurringItem(bundleId, subscriptionId, planName, startDate, endDate, startDate, endDate, rate);
+                    existingItems.add(item);
+                    if (month % ITEM_ADJ_MONTHS == ITEM_ADJ_MONTHS - 1) {
+                        existingItems.add(new ItemAdjInvoiceItem(item, startDate, BigDecimal.ONE.negate(), CURRENCY));
+                    }
+                }
+                proposedItems.add(createRecurringItem(bundleId, subscriptionId, planName, startDate, endDate, startDate, endDate, rate));
+            }
+        }
+    }
+
+    private InvoiceItem createRecurringItem(final UUID bundleId, final UUID subscriptionId, final String planName,
+                                            final LocalDate startDate, final LocalDate endDate,
+                                            final LocalDate previousBillingCycleDate, final LocalDate nextBillingCycleDate, final BigDecimal rate) {
+        return new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, planName + "-evergreen", startDate, endDate,
+                                        prorate(rate, startDate, endDate, previousBillingCycleDate, nextBillingCycleDate), rate, CURRENCY);
+    }
+
+    private static BigDecimal prorate(final BigDecimal rate, final LocalDate startDate, final LocalDate endDate,
+                                      final LocalDate previousBillingCycleDate, final LocalDate nextBillingCycleDate) {
+        final BigDecimal proration = InvoiceDateUtils.calculateProrationBetweenDates(startDate, endDate, previousBillingCycleDate, nextBillingCycleDate);
+        return KillBillMoney.of(rate.multiply(proration), CURRENCY);
+    }
+
+    private static BigDecimal getRate(final int planIdx) {
+        return new BigDecimal("9.99").add(new BigDecimal(planIdx));
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(ItemTreeBenchmark.class.getSimpleName())
+                                                    .addProfiler(GCProfiler.class)
+                                                    .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log.obfuscators;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compares the single-pass PatternObfuscator scanner with the regular expressions it replaces (one per sensitive key
+ * and format, followed by the LuhnMaskingObfuscator), as configured in ObfuscatorConverter.
+ * <p/>
+ * The messages are typical of the DEBUG wire logging of plugins: a log line without sensitive data, a JSON request
+ * and a SOAP request (both with a card number). The setup verifies both implementations mask them identically.
+ * <p/>
+ * Build with {@code mvn -Pbenchmarks -pl benchmarks -am package} and run with
+ * {@code java -jar benchmarks/target/benchmarks.jar ObfuscatorBenchmark -prof gc} (or through {@link #main(String[])},
+ * which enables the GC profiler).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class ObfuscatorBenchmark {
+
+    private static final String PLAIN_MESSAGE = "Successfully completed payment transaction for account 2ad52f53-85ae-408a-9879-32a7e59dd03d " +
+                                                "(paymentId=f9a64b8a-2b2c-4e5b-a8a5-0bd8d6a0bc1a, status=SUCCESS)";
+
+    private static final String JSON_MESSAGE = "POST /1.0/kb/accounts/2ad52f53-85ae-408a-9879-32a7e59dd03d/payments\n" +
+                                               "{\"accountId\":\"2ad52f53-85ae-408a-9879-32a7e59dd03d\",\"name\":\"John Doe\"," +
+                                               "\"email\":\"john@example.com\",\"currency\":\"USD\",\"amount\":10.50," +
+                                               "\"pluginProperty\":[{\"key\":\"ccFirstName\",\"value\":\"John\"}," +
+                                               "{\"key\":\"ccNumber\",\"value\":\"4111111111111111\"}," +
+                                               "{\"key\":\"ccVerificationValue\",\"value\":\"123\"}]}";
+
+    private static final String XML_MESSAGE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                                              "<s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\">\n" +
+                                              "  <s:Body>\n" +
+                                              "    <requestMessage xmlns=\"urn:schemas-cybersource-com:transaction-data-1.109\">\n" +
+                                              "      <merchantReferenceCode>e92a3bfd-0713-4396-a1e2-ff46cb051f8c</merchantReferenceCode>\n" +
+                                              "      <billTo>\n" +
+                                              "        <firstName>John</firstName>\n" +
+                                              "        <lastName>Doe</lastName>\n" +
+                                              "        <street1>1 Main St</street1>\n" +
+                                              "        <city>San Francisco</city>\n" +
+                                              "        <email>john@example.com</email>\n" +
+                                              "      </billTo>\n" +
+                                              "      <card>\n" +
+                                              "        <accountNumber>4111111111111111</accountNumber>\n" +
+                                              "        <expirationMonth>09</expirationMonth>\n" +
+                                              "        <expirationYear>2025</expirationYear>\n" +
+                                              "        <cvNumber>123</cvNumber>\n" +
+                                              "      </card>\n" +
+                                              "    </requestMessage>\n" +
+                                              "  </s:Body>\n" +
+                                              "</s:Envelope>";
+
+    @Param({"plain", "json", "xml"})
+    public String message;
+
+    private PatternObfuscator obfuscator;
+    private LoggingEvent event;
+    private String originalString;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        obfuscator = new PatternObfuscator(ImmutableList.<Pattern>of(), new LuhnMaskingObfuscator());
+
+        event = new LoggingEvent();
+        event.setLoggerName(ObfuscatorBenchmark.class.getName());
+
+        if ("json".equals(message)) {
+            originalString = JSON_MESSAGE;
+        } else if ("xml".equals(message)) {
+            originalString = XML_MESSAGE;
+        } else {
+            originalString = PLAIN_MESSAGE;
+        }
+
+        final String expected = obfuscator.obfuscateWithPatterns(originalString, event);
+        final String actual = obfuscator.obfuscate(originalString, event);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(String.format("Obfuscated messages differ:\n%s\n%s", expected, actual));
+        }
+    }
+
+    @Benchmark
+    public String patterns() {
+        return obfuscator.obfuscateWithPatterns(originalString, event);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return obfuscator.obfuscate(originalString, event);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(ObfuscatorBenchmark.class.getSimpleName())
+                                                    .addProfiler(GCProfiler.class)
+                                                    .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.dao.TableName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ehcache.InstrumentedEhcache;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+
+/**
+ * Compares the EhCache and Guava CacheController implementations on the record-id cache, as configured in ehcache.xml,
+ * with concurrent readers looking up the objects of many tenants.
+ * <p/>
+ * The hit benchmark only reads keys already in the cache, while the churn one reads twice as many keys as the cache can
+ * hold (misses go through a loader which doesn't hit the database, to only measure the cache overhead).
+ * <p/>
+ * Build with {@code mvn -Pbenchmarks -pl benchmarks -am package} and run with
+ * {@code java -jar benchmarks/target/benchmarks.jar CacheControllerBenchmark -prof gc} (or through {@link #main(String[])},
+ * which enables the GC profiler) to get the allocation rate per operation alongside the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(8)
+@Fork(2)
+public class CacheControllerBenchmark {
+
+    // Same as the record-id cache in ehcache.xml
+    private static final int MAX_ENTRIES = 100000;
+    private static final TableName[] TABLE_NAMES = {TableName.ACCOUNT, TableName.SUBSCRIPTIONS, TableName.INVOICES, TableName.PAYMENTS, TableName.TAG};
+
+    @Param({CacheControllerDispatcherProvider.EHCACHE_PROVIDER, CacheControllerDispatcherProvider.GUAVA_PROVIDER})
+    public String provider;
+
+    @Param({"10", "1000"})
+    public int nbTenants;
+
+    private CacheManager cacheManager;
+    private CacheController<Object, Object> cacheController;
+    private EntityIdCacheKey[] keys;
+    private CacheLoaderArgument cacheLoaderArgument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final CacheConfiguration cacheConfiguration = new CacheConfiguration(CacheType.RECORD_ID.getCacheName(), MAX_ENTRIES).eternal(true)
+                                                                                                                                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LFU);
+        final BaseCacheLoader cacheLoader = new SyntheticRecordIdCacheLoader();
+        cacheLoader.init();
+
+        if (CacheControllerDispatcherProvider.EHCACHE_PROVIDER.equals(provider)) {
+            cacheManager = new CacheManager(new Configuration().name("CacheControllerBenchmark"));
+            final Cache cache = new Cache(cacheConfiguration);
+            cacheManager.addCache(cache);
+            cache.registerCacheLoader(cacheLoader);
+
+            // Instrumented as in EhCacheCacheManagerProvider
+            final Ehcache decoratedCache = InstrumentedEhcache.instrument(new MetricRegistry(), cache);
+            cacheManager.replaceCacheWithDecoratedCache(cache, decoratedCache);
+            cacheController = new EhCacheBasedCacheController<Object, Object>(decoratedCache, CacheType.RECORD_ID);
+        } else {
+            cacheController = new GuavaCacheBasedCacheController<Object, Object>(CacheType.RECORD_ID, cacheLoader, cacheConfiguration, 0, null);
+        }
+
+        // Objects are spread evenly across tenants, twice as many as the cache can hold
+        keys = new EntityIdCacheKey[2 * MAX_ENTRIES];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new EntityIdCacheKey(TABLE_NAMES[(i / nbTenants) % TABLE_NAMES.length], new UUID(i % nbTenants, i));
+        }
+        cacheLoaderArgument = new CacheLoaderArgument(ObjectType.ACCOUNT);
+    }
+
+    @Setup(Level.Iteration)
+    public void populate() {
+        cacheController.removeAll();
+        for (int i = 0; i < MAX_ENTRIES; i++) {
+            cacheController.get(keys[i], cacheLoaderArgument);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cacheManager != null) {
+            cacheManager.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Object hit() {
+        return cacheController.get(keys[ThreadLocalRandom.current().nextInt(MAX_ENTRIES)], cacheLoaderArgument);
+    }
+
+    @Benchmark
+    public Object churn() {
+        return cacheController.get(keys[ThreadLocalRandom.current().nextInt(keys.length)], cacheLoaderArgument);
+    }
+
+    private static final class SyntheticRecordIdCacheLoader extends BaseCacheLoader {
+
+        @Override
+        public CacheType getCacheType() {
+            return CacheType.RECORD_ID;
+        }
+
+        @Override
+        public Object load(final Object key, final Object argument) {
+            checkCacheLoaderStatus();
+            return ((EntityIdCacheKey) key).getId().getLeastSignificantBits();
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder().include(CacheControllerBenchmark.class.getSimpleName())
+                                                    .addProfiler(GCProfiler.class)
+                                                    .build();
+        new Runner(options).run();
+    }
+}
@@ -16,7 +16,11 @@
 
 package org.killbill.billing.catalog;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -48,6 +52,9 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
     @XmlElement(name = "plan", required = true)
     private DefaultPlan[] plans;
 
+    // Plans by product name (in their original order), lazily built on first lookup
+    private volatile Map<String, List<DefaultPlan>> plansByProductName;
+
     public DefaultPriceList() {
     }
 
@@ -79,7 +86,14 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
       */
     @Override
     public DefaultPlan findPlan(final Product product, final BillingPeriod period) {
-        for (final DefaultPlan cur : getPlans()) {
+        if (product == null) {
+            return null;
+        }
+        final List<DefaultPlan> plansForProduct = getPlansByProductName().get(product.getName());
+        if (plansForProduct == null) {
+            return null;
+        }
+        for (final DefaultPlan cur : plansForProduct) {
             if (cur.getProduct().equals(product) &&
                     (cur.getRecurringBillingPeriod() == null || cur.getRecurringBillingPeriod().equals(period))) {
                 return cur;
@@ -125,9 +139,28 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
 
     public DefaultPriceList setPlans(final DefaultPlan[] plans) {
         this.plans = plans;
+        this.plansByProductName = null;
         return this;
     }
 
+    private Map<String, List<DefaultPlan>> getPlansByProductName() {
+        Map<String, List<DefaultPlan>> result = plansByProductName;
+        if (result == null) {
+            result = new HashMap<String, List<DefaultPlan>>();
+            for (final DefaultPlan cur : getPlans()) {
+                final String productName = cur.getProduct().getName();
+                List<DefaultPlan> plansForProduct = result.get(productName);
+                if (plansForProduct == null) {
+                    plansForProduct = new ArrayList<DefaultPlan>(1);
+                    result.put(productName, plansForProduct);
+                }
+                plansForProduct.add(cur);
+            }
+            plansByProductName = result;
+        }
+        return result;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
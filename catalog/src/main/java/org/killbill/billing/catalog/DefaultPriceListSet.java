@@ -21,7 +21,9 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.BillingPeriod;
@@ -41,6 +43,9 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> {
     @XmlElement(required = false, name = "childPriceList")
     private DefaultPriceList[] childPriceLists;
 
+    // Lazily built on first lookup, as JAXB populates the fields after construction
+    private volatile Map<String, DefaultPriceList> childPriceListsByName;
+
     public DefaultPriceListSet() {
         if (childPriceLists == null) {
             childPriceLists = new DefaultPriceList[0];
@@ -73,14 +78,27 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> {
         if (defaultPricelist.getName().equals(priceListName)) {
             return defaultPricelist;
         }
-        for (final DefaultPriceList pl : childPriceLists) {
-            if (pl.getName().equals(priceListName)) {
-                return pl;
-            }
+        final DefaultPriceList pl = getChildPriceListsByName().get(priceListName);
+        if (pl != null) {
+            return pl;
         }
         throw new CatalogApiException(ErrorCode.CAT_PRICE_LIST_NOT_FOUND, priceListName);
     }
 
+    private Map<String, DefaultPriceList> getChildPriceListsByName() {
+        Map<String, DefaultPriceList> result = childPriceListsByName;
+        if (result == null) {
+            result = new HashMap<String, DefaultPriceList>(childPriceLists.length);
+            for (final DefaultPriceList pl : childPriceLists) {
+                if (!result.containsKey(pl.getName())) {
+                    result.put(pl.getName(), pl);
+                }
+            }
+            childPriceListsByName = result;
+        }
+        return result;
+    }
+
     @Override
     public ValidationErrors validate(final StandaloneCatalog catalog, final ValidationErrors errors) {
         defaultPricelist.validate(catalog, errors);
@@ -20,7 +20,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -90,6 +92,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     private URI catalogURI;
 
+    // Lookup indexes, lazily built on first use (the catalog is populated either by JAXB or through the setters below)
+    private volatile Map<String, DefaultPlan> plansByName;
+    private volatile Map<String, DefaultProduct> productsByName;
+    private volatile Map<String, PlanPhase> phasesByName;
+
     public StandaloneCatalog() {
     }
 
@@ -179,15 +186,20 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     @Override
     public DefaultPlan findCurrentPlan(final String name) throws CatalogApiException {
-        if (name == null || plans == null) {
+        final DefaultPlan plan = findCurrentPlanOrNull(name);
+        if (plan == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
         }
-        for (final DefaultPlan p : plans) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        return plan;
+    }
+
+    // Same as findCurrentPlan, for callers expecting missing (e.g. retired) plans, without the cost of the exception
+    @Nullable
+    public DefaultPlan findCurrentPlanOrNull(@Nullable final String name) {
+        if (name == null || plans == null) {
+            return null;
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
+        return getPlansByName().get(name);
     }
 
     @Override
@@ -195,12 +207,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         if (name == null || products == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        for (final DefaultProduct p : products) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        final DefaultProduct product = getProductsByName().get(name);
+        if (product == null) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
+        return product;
     }
 
     @Override
@@ -209,6 +220,12 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PHASE, name);
         }
 
+        final PlanPhase phase = getPhasesByName().get(name);
+        if (phase != null) {
+            return phase;
+        }
+
+        // Not found: go through the plan, to surface the right error (bad phase name, unknown plan or phase)
         final String planName = DefaultPlanPhase.planName(name);
         final Plan plan = findCurrentPlan(planName);
         return plan.findPhase(name);
@@ -298,6 +315,7 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     public StandaloneCatalog setProducts(final DefaultProduct[] products) {
         this.products = products;
+        this.productsByName = null;
         return this;
     }
 
@@ -308,6 +326,8 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     public StandaloneCatalog setPlans(final DefaultPlan[] plans) {
         this.plans = plans;
+        this.plansByName = null;
+        this.phasesByName = null;
         return this;
     }
 
@@ -398,6 +418,52 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         return availBasePlans;
     }
 
+    private Map<String, DefaultPlan> getPlansByName() {
+        Map<String, DefaultPlan> result = plansByName;
+        if (result == null) {
+            result = new HashMap<String, DefaultPlan>(plans.length);
+            for (final DefaultPlan plan : plans) {
+                // Keep the first match, as the previous linear search did
+                if (!result.containsKey(plan.getName())) {
+                    result.put(plan.getName(), plan);
+                }
+            }
+            plansByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, DefaultProduct> getProductsByName() {
+        Map<String, DefaultProduct> result = productsByName;
+        if (result == null) {
+            result = new HashMap<String, DefaultProduct>(products.length);
+            for (final DefaultProduct product : products) {
+                if (!result.containsKey(product.getName())) {
+                    result.put(product.getName(), product);
+                }
+            }
+            productsByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, PlanPhase> getPhasesByName() {
+        Map<String, PlanPhase> result = phasesByName;
+        if (result == null) {
+            result = new HashMap<String, PlanPhase>();
+            // Phase names are derived from their plan name: only index the phases of the plans returned by findCurrentPlan
+            for (final DefaultPlan plan : getPlansByName().values()) {
+                for (final PlanPhase phase : plan.getAllPhases()) {
+                    if (phase != null && !result.containsKey(phase.getName())) {
+                        result.put(phase.getName(), phase);
+                    }
+                }
+            }
+            phasesByName = result;
+        }
+        return result;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -101,23 +101,25 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalogWithPric
         return versions.get(indexOfVersionForDate(date.toDate()));
     }
 
-    private List<StandaloneCatalogWithPriceOverride> versionsBeforeDate(final Date date) throws CatalogApiException {
-        final List<StandaloneCatalogWithPriceOverride> result = new ArrayList<StandaloneCatalogWithPriceOverride>();
-        final int index = indexOfVersionForDate(date);
-        for (int i = 0; i <= index; i++) {
-            result.add(versions.get(i));
-        }
-        return result;
-    }
-
+    // Versions are sorted by effective date: binary search for the last one effective at that date
     private int indexOfVersionForDate(final Date date) throws CatalogApiException {
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StandaloneCatalogWithPriceOverride c = versions.get(i);
-            if (c.getEffectiveDate().getTime() <= date.getTime()) {
-                return i;
+        final long time = date.getTime();
+        int low = 0;
+        int high = versions.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (versions.get(mid).getEffectiveDate().getTime() <= time) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        if (result < 0) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        }
+        return result;
     }
 
     private class PlanRequestWrapper {
@@ -140,11 +142,19 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalogWithPric
             this.overrides = overrides;
         }
 
+        // Returns null if the plan doesn't exist in that catalog version
         public Plan findPlan(final StandaloneCatalogWithPriceOverride catalog) throws CatalogApiException {
             if (name != null) {
-                return catalog.findCurrentPlan(name);
+                return catalog.findCurrentPlanOrNull(name);
             } else {
-                return catalog.createOrFindCurrentPlan(productName, bp, priceListName, overrides);
+                try {
+                    return catalog.createOrFindCurrentPlan(productName, bp, priceListName, overrides);
+                } catch (final CatalogApiException e) {
+                    if (e.getCode() != ErrorCode.CAT_NO_SUCH_PLAN.getCode()) {
+                        throw e;
+                    }
+                    return null;
+                }
             }
         }
     }
@@ -153,32 +163,20 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalogWithPric
                           final DateTime requestedDate,
                           final DateTime subscriptionStartDate)
             throws CatalogApiException {
-        final List<StandaloneCatalogWithPriceOverride> catalogs = versionsBeforeDate(requestedDate.toDate());
-        if (catalogs.size() == 0) {
-            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, requestedDate.toDate().toString());
-        }
-
-        for (int i = catalogs.size() - 1; i >= 0; i--) { // Working backwards to find the latest applicable plan
-            final StandaloneCatalogWithPriceOverride c = catalogs.get(i);
-            Plan plan;
-            try {
-                plan = wrapper.findPlan(c);
-            } catch (CatalogApiException e) {
-                if (e.getCode() != ErrorCode.CAT_NO_SUCH_PLAN.getCode()) {
-                    throw e;
-                } else {
-                    // If we can't find an entry it probably means the plan has been retired so we keep looking...
-                    continue;
-                }
+        final int index = indexOfVersionForDate(requestedDate.toDate());
+        for (int i = index; i >= 0; i--) { // Working backwards to find the latest applicable plan
+            final StandaloneCatalogWithPriceOverride c = versions.get(i);
+            final Plan plan = wrapper.findPlan(c);
+            if (plan == null) {
+                // If we can't find an entry it probably means the plan has been retired so we keep looking...
+                continue;
             }
 
-            DateTime catalogEffectiveDate = new DateTime(c.getEffectiveDate());
-            if (!subscriptionStartDate.isBefore(catalogEffectiveDate)) { // Its a new subscription this plan always applies
+            if (subscriptionStartDate.getMillis() >= c.getEffectiveDate().getTime()) { // Its a new subscription this plan always applies
                 return plan;
             } else { //Its an existing subscription
                 if (plan.getEffectiveDateForExistingSubscriptons() != null) { //if it is null any change to this does not apply to existing subscriptions
-                    final DateTime existingSubscriptionDate = new DateTime(plan.getEffectiveDateForExistingSubscriptons());
-                    if (requestedDate.isAfter(existingSubscriptionDate)) { // this plan is now applicable to existing subs
+                    if (requestedDate.getMillis() > plan.getEffectiveDateForExistingSubscriptons().getTime()) { // this plan is now applicable to existing subs
                         return plan;
                     }
                 }
@@ -18,6 +18,8 @@
 package org.killbill.billing.catalog.caching;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
@@ -29,6 +31,7 @@ import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.io.VersionedCatalogLoader;
 import org.killbill.billing.catalog.plugin.VersionedCatalogMapper;
 import org.killbill.billing.catalog.plugin.api.CatalogPluginApi;
+import org.killbill.billing.catalog.plugin.api.StandalonePluginCatalog;
 import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
@@ -56,6 +59,9 @@ public class EhCacheCatalogCache implements CatalogCache {
     private final VersionedCatalogMapper versionedCatalogMapper;
     private final InternalCallContextFactory internalCallContextFactory;
 
+    // Catalogs mapped from the plugins, per tenant record id
+    private final ConcurrentMap<Long, PluginCatalogHolder> pluginCatalogs = new ConcurrentHashMap<Long, PluginCatalogHolder>();
+
     private VersionedCatalog defaultCatalog;
 
     @Inject
@@ -82,8 +88,6 @@ public class EhCacheCatalogCache implements CatalogCache {
 
     @Override
     public VersionedCatalog getCatalog(final InternalTenantContext tenantContext) throws CatalogApiException {
-
-        // STEPH TODO what are the possibilities for caching here ?
         final VersionedCatalog pluginVersionedCatalog = getCatalogFromPlugins(tenantContext);
         if (pluginVersionedCatalog != null) {
             return pluginVersionedCatalog;
@@ -110,6 +114,7 @@ public class EhCacheCatalogCache implements CatalogCache {
 
     @Override
     public void clearCatalog(final InternalTenantContext tenantContext) {
+        pluginCatalogs.remove(tenantContext.getTenantRecordId());
         if (tenantContext.getTenantRecordId() != InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID) {
             cacheController.remove(tenantContext.getTenantRecordId());
         }
@@ -122,13 +127,41 @@ public class EhCacheCatalogCache implements CatalogCache {
             final VersionedPluginCatalog pluginCatalog = plugin.getVersionedPluginCatalog(ImmutableList.<PluginProperty>of(), tenantContext);
             // First plugin that gets something (for that tenant) returns it
             if (pluginCatalog != null) {
-                logger.info("Returning catalog from plugin {} on tenant {} ", service, internalTenantContext.getTenantRecordId());
-                return versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+                return getOrMapPluginCatalog(service, pluginCatalog, internalTenantContext);
             }
         }
         return null;
     }
 
+    //
+    // Plugins are bound by the same contract as the catalog XMLs uploaded per tenant: a version (effective date) is never
+    // modified once published, changes come as new versions. The (expensive) mapping of the plugin catalog is therefore
+    // only done again when the plugin returns a different set of versions, or after clearCatalog for that tenant.
+    //
+    private VersionedCatalog getOrMapPluginCatalog(final String service, final VersionedPluginCatalog pluginCatalog, final InternalTenantContext internalTenantContext) {
+        final String pluginCatalogVersion = getPluginCatalogVersion(service, pluginCatalog);
+
+        final PluginCatalogHolder cachedPluginCatalog = pluginCatalogs.get(internalTenantContext.getTenantRecordId());
+        if (cachedPluginCatalog != null && cachedPluginCatalog.getPluginCatalogVersion().equals(pluginCatalogVersion)) {
+            return cachedPluginCatalog.getCatalog();
+        }
+
+        logger.info("Loading catalog from plugin {} on tenant {}", service, internalTenantContext.getTenantRecordId());
+        final VersionedCatalog catalog = versionedCatalogMapper.toVersionedCatalog(pluginCatalog, internalTenantContext);
+        pluginCatalogs.put(internalTenantContext.getTenantRecordId(), new PluginCatalogHolder(pluginCatalogVersion, catalog));
+        return catalog;
+    }
+
+    private String getPluginCatalogVersion(final String service, final VersionedPluginCatalog pluginCatalog) {
+        final StringBuilder pluginCatalogVersion = new StringBuilder(service).append("::")
+                                                                             .append(pluginCatalog.getCatalogName()).append("::")
+                                                                             .append(pluginCatalog.getRecurringBillingMode());
+        for (final StandalonePluginCatalog standalonePluginCatalog : pluginCatalog.getStandalonePluginCatalogs()) {
+            pluginCatalogVersion.append("::").append(standalonePluginCatalog.getEffectiveDate().getMillis());
+        }
+        return pluginCatalogVersion.toString();
+    }
+
     //
     // Build the LoaderCallback that is required to build the catalog from the xml from a module that knows
     // nothing about catalog.
@@ -158,4 +191,23 @@ public class EhCacheCatalogCache implements CatalogCache {
             logger.warn("Exception loading EmptyCatalog - should never happen!", e);
         }
     }
+
+    private static final class PluginCatalogHolder {
+
+        private final String pluginCatalogVersion;
+        private final VersionedCatalog catalog;
+
+        private PluginCatalogHolder(final String pluginCatalogVersion, final VersionedCatalog catalog) {
+            this.pluginCatalogVersion = pluginCatalogVersion;
+            this.catalog = catalog;
+        }
+
+        public String getPluginCatalogVersion() {
+            return pluginCatalogVersion;
+        }
+
+        public VersionedCatalog getCatalog() {
+            return catalog;
+        }
+    }
 }
@@ -17,11 +17,15 @@
 
 package org.killbill.billing.catalog.override;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTime;
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.DefaultPlan;
@@ -36,6 +40,11 @@ import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.caching.OverriddenPlanCache;
 import org.killbill.billing.catalog.dao.CatalogOverrideDao;
 import org.killbill.billing.catalog.dao.CatalogOverridePlanDefinitionModelDao;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.OverriddenPlanDefinitionCacheLoader.LoaderCallback;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
@@ -47,11 +56,13 @@ public class DefaultPriceOverride implements PriceOverride {
 
     private final CatalogOverrideDao overrideDao;
     private final OverriddenPlanCache overriddenPlanCache;
+    private final CacheController cacheController;
 
     @Inject
-    public DefaultPriceOverride(final CatalogOverrideDao overrideDao, final OverriddenPlanCache overriddenPlanCache) {
+    public DefaultPriceOverride(final CatalogOverrideDao overrideDao, final OverriddenPlanCache overriddenPlanCache, final CacheControllerDispatcher cacheControllerDispatcher) {
         this.overrideDao = overrideDao;
         this.overriddenPlanCache = overriddenPlanCache;
+        this.cacheController = cacheControllerDispatcher.getCacheController(CacheType.OVERRIDDEN_PLAN_DEFINITION);
     }
 
     @Override
@@ -97,12 +108,50 @@ public class DefaultPriceOverride implements PriceOverride {
             }
         }
 
-        final CatalogOverridePlanDefinitionModelDao overriddenPlan = overrideDao.getOrCreateOverridePlanDefinition(parentPlan.getName(), catalogEffectiveDate, resolvedOverride, context);
-        final String planName = new StringBuffer(parentPlan.getName()).append("-").append(overriddenPlan.getRecordId()).toString();
+        // Plan definitions are never modified once created, so identical overrides always resolve to the same one
+        final LoaderCallback loaderCallback = new LoaderCallback() {
+            @Override
+            public Long getOrCreatePlanDefinitionRecordId() {
+                final CatalogOverridePlanDefinitionModelDao overriddenPlan = overrideDao.getOrCreateOverridePlanDefinition(parentPlan.getName(), catalogEffectiveDate, resolvedOverride, context);
+                return overriddenPlan.getRecordId();
+            }
+        };
+        final ObjectType irrelevant = null;
+        final CacheLoaderArgument argument = new CacheLoaderArgument(irrelevant, new Object[]{loaderCallback}, context);
+        final Long overriddenPlanRecordId = (Long) cacheController.get(getOverriddenPlanDefinitionKey(parentPlan.getName(), resolvedOverride, context), argument);
+
+        final String planName = new StringBuffer(parentPlan.getName()).append("-").append(overriddenPlanRecordId).toString();
         final DefaultPlan result = new DefaultPlan(planName, (DefaultPlan) parentPlan, resolvedOverride);
         return result;
     }
 
+    private String getOverriddenPlanDefinitionKey(final String parentPlanName, final PlanPhasePriceOverride[] resolvedOverride, final InternalTenantContext context) {
+        final StringBuilder key = new StringBuilder().append(context.getTenantRecordId())
+                                                     .append("::")
+                                                     .append(parentPlanName);
+        for (int i = 0; i < resolvedOverride.length; i++) {
+            final PlanPhasePriceOverride curOverride = resolvedOverride[i];
+            if (curOverride != null) {
+                key.append("::")
+                   .append(i)
+                   .append(",")
+                   .append(curOverride.getPhaseName())
+                   .append(",")
+                   .append(curOverride.getCurrency())
+                   .append(",")
+                   .append(toKey(curOverride.getFixedPrice()))
+                   .append(",")
+                   .append(toKey(curOverride.getRecurringPrice()));
+            }
+        }
+        return key.toString();
+    }
+
+    // Prices are matched by value in the database (e.g. 10 and 10.00 share the same phase definition)
+    private String toKey(@Nullable final BigDecimal price) {
+        return price == null ? "" : price.stripTrailingZeros().toPlainString();
+    }
+
     @Override
     public DefaultPlan getOverriddenPlan(final String planName, final StaticCatalog catalog, final InternalTenantContext context) throws CatalogApiException {
         return overriddenPlanCache.getOverriddenPlan(planName, catalog, context);
@@ -22,8 +22,10 @@ import org.killbill.billing.catalog.dao.CatalogOverrideDao;
 import org.killbill.billing.catalog.glue.TestCatalogModuleWithEmbeddedDB;
 import org.killbill.billing.catalog.override.PriceOverride;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.skife.jdbi.v2.IDBI;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
 
 import com.google.inject.Guice;
 import com.google.inject.Inject;
@@ -40,6 +42,9 @@ public class CatalogTestSuiteWithEmbeddedDB extends GuicyKillbillTestSuiteWithEm
     @Inject
     protected PriceOverride priceOverride;
 
+    @Inject
+    protected CacheControllerDispatcher cacheControllerDispatcher;
+
     @Override
     protected KillbillConfigSource getConfigSource() {
         return getConfigSource("/resource.properties");
@@ -51,4 +56,11 @@ public class CatalogTestSuiteWithEmbeddedDB extends GuicyKillbillTestSuiteWithEm
         injector.injectMembers(this);
     }
 
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        // The overridden plan definitions are cached by content, while the tables are cleaned up between tests
+        cacheControllerDispatcher.clearAll();
+    }
+
 }
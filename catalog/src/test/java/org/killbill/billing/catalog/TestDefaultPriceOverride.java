@@ -111,6 +111,33 @@ public class TestDefaultPriceOverride extends CatalogTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testIdenticalOverridesResolveToTheSamePlan() throws Exception {
+
+        final StandaloneCatalog catalog = XMLLoader.getObjectFromString(Resources.getResource("SpyCarAdvanced.xml").toExternalForm(), StandaloneCatalog.class);
+        final Plan plan = catalog.findCurrentPlan("discount-standard-monthly");
+
+        final List<PlanPhasePriceOverride> overrides = new ArrayList<PlanPhasePriceOverride>();
+        overrides.add(new DefaultPlanPhasePriceOverride(plan.getAllPhases()[2].getName(), Currency.USD, null, new BigDecimal("142.41")));
+        final DefaultPlan overriddenPlan1 = priceOverride.getOrCreateOverriddenPlan(plan, new DateTime(catalog.getEffectiveDate()), overrides, internalCallContext);
+
+        // Same price, different scale
+        final List<PlanPhasePriceOverride> sameOverrides = new ArrayList<PlanPhasePriceOverride>();
+        sameOverrides.add(new DefaultPlanPhasePriceOverride(plan.getAllPhases()[2].getName(), Currency.USD, null, new BigDecimal("142.4100")));
+        final DefaultPlan overriddenPlan2 = priceOverride.getOrCreateOverriddenPlan(plan, new DateTime(catalog.getEffectiveDate()), sameOverrides, internalCallContext);
+        assertEquals(overriddenPlan2.getName(), overriddenPlan1.getName());
+
+        // Without the cache, the database lookup resolves to the same plan definition
+        cacheControllerDispatcher.clearAll();
+        final DefaultPlan overriddenPlan3 = priceOverride.getOrCreateOverriddenPlan(plan, new DateTime(catalog.getEffectiveDate()), overrides, internalCallContext);
+        assertEquals(overriddenPlan3.getName(), overriddenPlan1.getName());
+
+        final List<PlanPhasePriceOverride> otherOverrides = new ArrayList<PlanPhasePriceOverride>();
+        otherOverrides.add(new DefaultPlanPhasePriceOverride(plan.getAllPhases()[2].getName(), Currency.USD, null, new BigDecimal("142.42")));
+        final DefaultPlan overriddenPlan4 = priceOverride.getOrCreateOverriddenPlan(plan, new DateTime(catalog.getEffectiveDate()), otherOverrides, internalCallContext);
+        assertNotEquals(overriddenPlan4.getName(), overriddenPlan1.getName());
+    }
+
     @Test(groups = "slow")
     public void testGetOverriddenPlan() throws Exception {
 
@@ -19,8 +19,10 @@ package org.killbill.billing.catalog;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.PhaseType;
+import org.killbill.billing.catalog.api.PlanPhase;
 
 public class TestStandaloneCatalog extends CatalogTestSuiteNoDB {
 
@@ -45,4 +47,57 @@ public class TestStandaloneCatalog extends CatalogTestSuiteNoDB {
         Assert.assertEquals(cat.findCurrentPhase("TestPlan1-trial"), phaseTrial1);
         Assert.assertEquals(cat.findCurrentPhase("TestPlan2-trial"), phaseTrial2);
     }
+
+    @Test(groups = "fast")
+    public void testFindPlanProductAndPhaseByName() throws CatalogApiException {
+        final StandaloneCatalog cat = new MockCatalog();
+
+        for (final DefaultPlan plan : cat.getCurrentPlans()) {
+            Assert.assertSame(cat.findCurrentPlan(plan.getName()), plan);
+            Assert.assertSame(cat.findCurrentPlanOrNull(plan.getName()), plan);
+            for (final PlanPhase phase : plan.getAllPhases()) {
+                Assert.assertSame(cat.findCurrentPhase(phase.getName()), phase);
+            }
+        }
+        for (final DefaultProduct product : cat.getCurrentProducts()) {
+            Assert.assertSame(cat.findCurrentProduct(product.getName()), product);
+        }
+
+        Assert.assertNull(cat.findCurrentPlanOrNull("UnknownPlan"));
+        try {
+            cat.findCurrentPlan("UnknownPlan");
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PLAN.getCode());
+        }
+        try {
+            cat.findCurrentProduct("UnknownProduct");
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PRODUCT.getCode());
+        }
+        try {
+            cat.findCurrentPhase("UnknownPlan-evergreen");
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PLAN.getCode());
+        }
+        try {
+            cat.findCurrentPhase("UnknownPhase");
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_BAD_PHASE_NAME.getCode());
+        }
+
+        // Indexes are rebuilt when the plans change
+        final String previousPlanName = cat.getCurrentPlans()[0].getName();
+        final DefaultPlanPhase phaseEvergreen = new MockPlanPhase().setPhaseType(PhaseType.EVERGREEN);
+        final DefaultPlan newPlan = new MockPlan().setName("NewPlan").setFinalPhase(phaseEvergreen).setInitialPhases(new DefaultPlanPhase[]{});
+        phaseEvergreen.setPlan(newPlan);
+        cat.setPlans(new DefaultPlan[]{newPlan});
+
+        Assert.assertSame(cat.findCurrentPlan("NewPlan"), newPlan);
+        Assert.assertSame(cat.findCurrentPhase("NewPlan-evergreen"), phaseEvergreen);
+        Assert.assertNull(cat.findCurrentPlanOrNull(previousPlanName));
+    }
 }
@@ -105,4 +105,39 @@ public class TestVersionedCatalog extends CatalogTestSuiteNoDB {
             Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE.getCode());
         }
     }
+
+    @Test(groups = "fast")
+    public void testFindPlanOnVersionBoundaries() throws Exception {
+        final DateTime dt2 = new DateTime("2011-02-02T00:00:00+00:00");
+        final DateTime dt3 = new DateTime("2011-03-03T00:00:00+00:00");
+
+        Assert.assertEquals(vc.findPlan("pistol-monthly", dt2.minusMillis(1), dt2.minusMillis(1)).getAllPhases()[1].getRecurring().getRecurringPrice().getPrice(Currency.USD), new BigDecimal("29.95"));
+        Assert.assertEquals(vc.findPlan("pistol-monthly", dt2, dt2).getAllPhases()[1].getRecurring().getRecurringPrice().getPrice(Currency.USD), new BigDecimal("39.95"));
+        Assert.assertEquals(vc.findPlan("pistol-monthly", dt3.minusMillis(1), dt3.minusMillis(1)).getAllPhases()[1].getRecurring().getRecurringPrice().getPrice(Currency.USD), new BigDecimal("39.95"));
+        Assert.assertEquals(vc.findPlan("pistol-monthly", dt3, dt3).getAllPhases()[1].getRecurring().getRecurringPrice().getPrice(Currency.USD), new BigDecimal("49.95"));
+    }
+
+    @Test(groups = "fast")
+    public void testFindRetiredPlan() throws Exception {
+        final VersionedCatalog catalog = new VersionedCatalog(clock);
+        for (final StandaloneCatalogWithPriceOverride version : loader.loadDefaultCatalog(Resources.getResource("versionedCatalog").toString()).getVersions()) {
+            catalog.add(version);
+        }
+        // Latest version without any plan
+        final DateTime dt4 = new DateTime("2011-04-04T00:00:00+00:00");
+        catalog.add(new StandaloneCatalogWithPriceOverride(new StandaloneCatalog(dt4.toDate()).setCatalogName(catalog.getCatalogName())
+                                                                                              .setRecurringBillingMode(catalog.getRecurringBillingMode())
+                                                                                              .setPlans(new DefaultPlan[]{}), null, 0L, null));
+
+        // The plan is found in the previous versions
+        final Plan plan = catalog.findPlan("pistol-monthly", dt4.plusDays(1), dt4.plusDays(1));
+        Assert.assertEquals(plan.getAllPhases()[1].getRecurring().getRecurringPrice().getPrice(Currency.USD), new BigDecimal("49.95"));
+
+        try {
+            catalog.findPlan("unknown-monthly", dt4.plusDays(1), dt4.plusDays(1));
+            Assert.fail();
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE.getCode());
+        }
+    }
 }
@@ -25,13 +25,24 @@ import java.net.URISyntaxException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
 import org.killbill.billing.catalog.DefaultProduct;
 import org.killbill.billing.catalog.VersionedCatalog;
 import org.killbill.billing.catalog.api.Catalog;
+import org.killbill.billing.catalog.api.BillingMode;
 import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.plugin.TestModelVersionedPluginCatalog;
+import org.killbill.billing.catalog.plugin.VersionedCatalogMapper;
+import org.killbill.billing.catalog.plugin.api.CatalogPluginApi;
+import org.killbill.billing.catalog.plugin.api.StandalonePluginCatalog;
+import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.xmlloader.UriAccessor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -41,6 +52,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Resources;
 
@@ -174,4 +186,54 @@ public class TestEhCacheCatalogCache extends CatalogTestSuiteNoDB {
         // Verify the lookup with the other tenant
         Assert.assertEquals(catalogCache.getCatalog(otherMultiTenantContext), otherResult);
     }
+
+    //
+    // Verify plugin catalogs are only mapped again when the plugin returns a new version
+    //
+    @Test(groups = "fast")
+    public void testPluginCatalogCaching() throws CatalogApiException {
+        final StandalonePluginCatalog firstVersion = Mockito.mock(StandalonePluginCatalog.class);
+        Mockito.when(firstVersion.getEffectiveDate()).thenReturn(new DateTime("2015-01-01T00:00:00Z"));
+        final StandalonePluginCatalog secondVersion = Mockito.mock(StandalonePluginCatalog.class);
+        Mockito.when(secondVersion.getEffectiveDate()).thenReturn(new DateTime("2015-06-01T00:00:00Z"));
+        final VersionedPluginCatalog pluginCatalogV1 = new TestModelVersionedPluginCatalog("PluginCatalog", BillingMode.IN_ADVANCE, ImmutableList.<StandalonePluginCatalog>of(firstVersion));
+        final VersionedPluginCatalog pluginCatalogV2 = new TestModelVersionedPluginCatalog("PluginCatalog", BillingMode.IN_ADVANCE, ImmutableList.<StandalonePluginCatalog>of(firstVersion, secondVersion));
+
+        final CatalogPluginApi catalogPluginApi = Mockito.mock(CatalogPluginApi.class);
+        Mockito.when(catalogPluginApi.getVersionedPluginCatalog(Mockito.<Iterable<PluginProperty>>any(), Mockito.<TenantContext>any())).thenReturn(pluginCatalogV1);
+        final OSGIServiceRegistration<CatalogPluginApi> pluginRegistry = Mockito.mock(OSGIServiceRegistration.class);
+        Mockito.when(pluginRegistry.getAllServices()).thenReturn(ImmutableSet.<String>of("catalog-plugin"));
+        Mockito.when(pluginRegistry.getServiceForName("catalog-plugin")).thenReturn(catalogPluginApi);
+
+        final VersionedCatalogMapper versionedCatalogMapper = Mockito.mock(VersionedCatalogMapper.class);
+        Mockito.when(versionedCatalogMapper.toVersionedCatalog(Mockito.<VersionedPluginCatalog>any(), Mockito.<InternalTenantContext>any())).thenAnswer(new Answer<VersionedCatalog>() {
+            @Override
+            public VersionedCatalog answer(final InvocationOnMock invocation) throws Throwable {
+                return new VersionedCatalog(clock);
+            }
+        });
+
+        final CatalogCache pluginCatalogCache = new EhCacheCatalogCache(pluginRegistry, versionedCatalogMapper, cacheControllerDispatcher, loader, Mockito.mock(InternalCallContextFactory.class));
+
+        final VersionedCatalog result = pluginCatalogCache.getCatalog(multiTenantContext);
+        Assert.assertEquals(pluginCatalogCache.getCatalog(multiTenantContext), result);
+        Mockito.verify(versionedCatalogMapper, Mockito.times(1)).toVersionedCatalog(Mockito.<VersionedPluginCatalog>any(), Mockito.<InternalTenantContext>any());
+
+        // Catalogs are cached per tenant
+        final VersionedCatalog otherResult = pluginCatalogCache.getCatalog(otherMultiTenantContext);
+        Assert.assertNotEquals(otherResult, result);
+        Mockito.verify(versionedCatalogMapper, Mockito.times(2)).toVersionedCatalog(Mockito.<VersionedPluginCatalog>any(), Mockito.<InternalTenantContext>any());
+
+        // New version published by the plugin
+        Mockito.when(catalogPluginApi.getVersionedPluginCatalog(Mockito.<Iterable<PluginProperty>>any(), Mockito.<TenantContext>any())).thenReturn(pluginCatalogV2);
+        final VersionedCatalog result2 = pluginCatalogCache.getCatalog(multiTenantContext);
+        Assert.assertNotEquals(result2, result);
+        Assert.assertEquals(pluginCatalogCache.getCatalog(multiTenantContext), result2);
+        Mockito.verify(versionedCatalogMapper, Mockito.times(3)).toVersionedCatalog(Mockito.<VersionedPluginCatalog>any(), Mockito.<InternalTenantContext>any());
+
+        // Explicit invalidation
+        pluginCatalogCache.clearCatalog(multiTenantContext);
+        Assert.assertNotEquals(pluginCatalogCache.getCatalog(multiTenantContext), result2);
+        Mockito.verify(versionedCatalogMapper, Mockito.times(4)).toVersionedCatalog(Mockito.<VersionedPluginCatalog>any(), Mockito.<InternalTenantContext>any());
+    }
 }
@@ -202,6 +202,11 @@ public class ProxyBlockingStateDao implements BlockingStateDao {
         return delegate.get(offset, limit, context);
     }
 
+    @Override
+    public Pagination<BlockingStateModelDao> getFromRecordId(final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        return delegate.getFromRecordId(fromRecordId, limit, withCount, context);
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return delegate.getCount(context);
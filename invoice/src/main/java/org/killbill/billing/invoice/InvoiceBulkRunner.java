@@ -0,0 +1,241 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.invoice.api.DefaultInvoiceBulkRun;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceBulkRun;
+import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.notificationq.api.NotificationEventWithMetadata;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Invoices all the accounts of a tenant due for a given target date, on a bounded worker pool shared by all runs.
+ * <p/>
+ * Accounts due are the ones with a pending next billing date notification on or prior the target date, looked up account
+ * by account through the notification queue API: each account is processed through the InvoiceDispatcher (hence under
+ * the ACCNT_INV_PAY lock), and the notification, when it fires, simply finds nothing left to invoice.
+ * <p/>
+ * The pool is started and stopped by the DefaultInvoiceService. Completed runs are kept for
+ * org.killbill.invoice.bulkRun.retention, for their status to be retrieved.
+ */
+public class InvoiceBulkRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceBulkRunner.class);
+
+    private static final long ACCOUNTS_PAGE_SIZE = 1000L;
+
+    private final InvoiceDispatcher dispatcher;
+    private final AccountInternalApi accountApi;
+    private final NotificationQueueService notificationQueueService;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final InvoiceConfig invoiceConfig;
+    private final Clock clock;
+
+    private final ConcurrentMap<UUID, DefaultInvoiceBulkRun> activeRuns;
+    private final Cache<UUID, DefaultInvoiceBulkRun> completedRuns;
+
+    private volatile ExecutorService executor;
+
+    @Inject
+    public InvoiceBulkRunner(final InvoiceDispatcher dispatcher,
+                             final AccountInternalApi accountApi,
+                             final NotificationQueueService notificationQueueService,
+                             final InternalCallContextFactory internalCallContextFactory,
+                             final InvoiceConfig invoiceConfig,
+                             final Clock clock) {
+        this.dispatcher = dispatcher;
+        this.accountApi = accountApi;
+        this.notificationQueueService = notificationQueueService;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.invoiceConfig = invoiceConfig;
+        this.clock = clock;
+        this.activeRuns = new ConcurrentHashMap<UUID, DefaultInvoiceBulkRun>();
+        this.completedRuns = CacheBuilder.newBuilder()
+                                         .expireAfterWrite(invoiceConfig.getBulkInvoiceRunRetention().getMillis(), TimeUnit.MILLISECONDS)
+                                         .build();
+    }
+
+    public void start() {
+        executor = Executors.newFixedThreadPool(invoiceConfig.getBulkInvoiceRunNbThreads(), "InvoiceBulkRun");
+    }
+
+    public void stop() throws InterruptedException {
+        final ExecutorService executor = this.executor;
+        if (executor == null) {
+            return;
+        }
+        this.executor = null;
+
+        executor.shutdownNow();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Bulk invoice run executor did not terminate within 10s");
+        }
+        // Remaining accounts of the active runs won't be processed
+        for (final DefaultInvoiceBulkRun run : activeRuns.values()) {
+            log.warn("Aborted bulk invoice run {}", run);
+        }
+        activeRuns.clear();
+    }
+
+    public InvoiceBulkRun run(final LocalDate targetDate, final InternalCallContext context) {
+        final ExecutorService executor = this.executor;
+        Preconditions.checkState(executor != null, "Bulk invoice runs haven't been started");
+
+        final List<Long> accountRecordIds = getAccountRecordIdsDue(targetDate, context);
+        final DefaultInvoiceBulkRun run = new DefaultInvoiceBulkRun(context.getTenantRecordId(), targetDate, accountRecordIds.size(), clock);
+        log.info("Starting bulk invoice run {} for {} account(s), targetDate {}", run.getId(), accountRecordIds.size(), targetDate);
+
+        if (accountRecordIds.isEmpty()) {
+            completedRuns.put(run.getId(), run);
+            return run;
+        }
+
+        activeRuns.put(run.getId(), run);
+        for (final Long accountRecordId : accountRecordIds) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    processAccount(run, accountRecordId, context);
+                }
+            });
+        }
+
+        return run;
+    }
+
+    @Nullable
+    public InvoiceBulkRun getRun(final UUID runId, final Long tenantRecordId) {
+        DefaultInvoiceBulkRun run = activeRuns.get(runId);
+        if (run == null) {
+            run = completedRuns.getIfPresent(runId);
+        }
+        return run != null && run.getTenantRecordId().equals(tenantRecordId) ? run : null;
+    }
+
+    private void processAccount(final DefaultInvoiceBulkRun run, final Long accountRecordId, final InternalCallContext runContext) {
+        final InternalCallContext context = createAccountContext(accountRecordId, runContext);
+
+        final boolean isLastAccount;
+        try {
+            final Account account = accountApi.getAccountByRecordId(accountRecordId, context);
+            final Invoice invoice = dispatcher.processAccount(account.getId(), run.getTargetDate().toDateTimeAtCurrentTime(account.getTimeZone()), null, context);
+            isLastAccount = run.onAccountProcessed(invoice != null);
+        } catch (final InvoiceApiException e) {
+            log.warn("Bulk invoice run {}: failed to invoice accountRecordId {}", run.getId(), accountRecordId, e);
+            isLastAccount = run.onAccountFailed();
+        } catch (final AccountApiException e) {
+            log.warn("Bulk invoice run {}: failed to retrieve accountRecordId {}", run.getId(), accountRecordId, e);
+            isLastAccount = run.onAccountFailed();
+        } catch (final RuntimeException e) {
+            log.warn("Bulk invoice run {}: failed to invoice accountRecordId {}", run.getId(), accountRecordId, e);
+            isLastAccount = run.onAccountFailed();
+        }
+
+        if (isLastAccount) {
+            completedRuns.put(run.getId(), run);
+            activeRuns.remove(run.getId());
+            log.info("Completed bulk invoice run {}", run);
+        }
+    }
+
+    // A run can last for a while: each account gets its own created and updated dates
+    private InternalCallContext createAccountContext(final Long accountRecordId, final InternalCallContext runContext) {
+        final DateTime now = clock.getUTCNow();
+        return new InternalCallContext(runContext.getTenantRecordId(), accountRecordId, runContext.getUserToken(), runContext.getCreatedBy(),
+                                       runContext.getCallOrigin(), runContext.getContextUserType(), runContext.getReasonCode(), runContext.getComments(),
+                                       now, now);
+    }
+
+    // Sorted, to process the accounts in a stable order across runs
+    private List<Long> getAccountRecordIdsDue(final LocalDate targetDate, final InternalCallContext context) {
+        final NotificationQueue nextBillingQueue;
+        try {
+            nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                             DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        } catch (final NoSuchNotificationQueue noSuchNotificationQueue) {
+            throw new IllegalStateException(noSuchNotificationQueue);
+        }
+
+        // Notification effective dates are in UTC
+        final DateTime maxEffectiveDate = targetDate.plusDays(1).toDateTimeAtStartOfDay(DateTimeZone.UTC);
+
+        final TenantContext tenantContext = internalCallContextFactory.createTenantContext(context);
+        final List<Long> accountRecordIds = new ArrayList<Long>();
+        Long fromRecordId = 0L;
+        while (fromRecordId != null) {
+            final Pagination<Account> accounts = accountApi.getAccountsFromRecordId(fromRecordId, ACCOUNTS_PAGE_SIZE, false, tenantContext);
+            for (final Account account : accounts) {
+                final Long accountRecordId = internalCallContextFactory.createInternalTenantContext(account.getId(), context).getAccountRecordId();
+                if (hasNextBillingDateDue(nextBillingQueue, accountRecordId, maxEffectiveDate, context)) {
+                    accountRecordIds.add(accountRecordId);
+                }
+            }
+            fromRecordId = accounts.getNextOffset();
+        }
+        return accountRecordIds;
+    }
+
+    // Entries being processed (IN_PROCESSING) aren't returned by the queue, and dry-run notifications don't trigger any invoice
+    private boolean hasNextBillingDateDue(final NotificationQueue nextBillingQueue, final Long accountRecordId, final DateTime maxEffectiveDate, final InternalTenantContext context) {
+        final List<NotificationEventWithMetadata<NextBillingDateNotificationKey>> futureNotifications = nextBillingQueue.getFutureNotificationForSearchKeys(accountRecordId, context.getTenantRecordId());
+        for (final NotificationEventWithMetadata<NextBillingDateNotificationKey> notification : futureNotifications) {
+            final boolean isDryRun = notification.getEvent().isDryRunForInvoiceNotification() != null && notification.getEvent().isDryRunForInvoiceNotification();
+            if (!isDryRun && notification.getEffectiveDate().isBefore(maxEffectiveDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -67,6 +67,7 @@ import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceItemModelDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
 import org.killbill.billing.invoice.generator.BillingIntervalDetail;
+import org.killbill.billing.invoice.generator.InvoiceDateUtils;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
@@ -85,6 +86,8 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.InvoiceConfig;
 import org.killbill.billing.util.globallocker.LockerType;
+import org.killbill.billing.util.log.ScopedDebugLogging;
+import org.killbill.billing.util.log.ScopedDebugLogging.PreviousContext;
 import org.killbill.billing.util.timezone.DateAndTimeZoneContext;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -132,6 +135,7 @@ public class InvoiceDispatcher {
     private final Clock clock;
     private final NotificationQueueService notificationQueueService;
     private final InvoiceConfig invoiceConfig;
+    private final ScopedDebugLogging scopedDebugLogging;
 
     @Inject
     public InvoiceDispatcher(final InvoiceGenerator generator,
@@ -146,6 +150,7 @@ public class InvoiceDispatcher {
                              final PersistentBus eventBus,
                              final NotificationQueueService notificationQueueService,
                              final InvoiceConfig invoiceConfig,
+                             final ScopedDebugLogging scopedDebugLogging,
                              final Clock clock) {
         this.generator = generator;
         this.billingApi = billingApi;
@@ -160,6 +165,7 @@ public class InvoiceDispatcher {
         this.clock = clock;
         this.notificationQueueService = notificationQueueService;
         this.invoiceConfig = invoiceConfig;
+        this.scopedDebugLogging = scopedDebugLogging;
     }
 
     public void processSubscriptionForInvoiceGeneration(final EffectiveSubscriptionInternalEvent transition,
@@ -205,11 +211,28 @@ public class InvoiceDispatcher {
 
     public Invoice processAccount(final UUID accountId, final DateTime targetDate,
                                   @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+        // Let the logging backend turn DEBUG on if this tenant or account has been enabled (see ScopedDebugLogging)
+        final PreviousContext previousContext = scopedDebugLogging.setContext(context);
+        try {
+            return processAccountInternal(accountId, targetDate, dryRunArguments, context);
+        } finally {
+            scopedDebugLogging.restoreContext(previousContext);
+        }
+    }
+
+    private Invoice processAccountInternal(final UUID accountId, final DateTime targetDate,
+                                           @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+        // Dry-runs (invoice previews and dry-run notifications) don't persist anything: they don't need to wait for (nor block)
+        // the invoice runs and payments on the account
+        if (dryRunArguments != null) {
+            return doProcessAccount(accountId, targetDate, dryRunArguments, context);
+        }
+
         GlobalLock lock = null;
         try {
             lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), NB_LOCK_TRY);
 
-            return processAccountWithLock(accountId, targetDate, dryRunArguments, context);
+            return doProcessAccount(accountId, targetDate, dryRunArguments, context);
         } catch (final LockFailedException e) {
             // Not good!
             log.error(String.format("Failed to process invoice for account %s, targetDate %s",
@@ -222,8 +245,9 @@ public class InvoiceDispatcher {
         return null;
     }
 
-    private Invoice processAccountWithLock(final UUID accountId, @Nullable final DateTime inputTargetDateTime,
-                                           @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
+    // Real runs hold the ACCNT_INV_PAY lock at this point, dry-runs don't (see processAccountInternal)
+    private Invoice doProcessAccount(final UUID accountId, @Nullable final DateTime inputTargetDateTime,
+                                     @Nullable final DryRunArguments dryRunArguments, final InternalCallContext context) throws InvoiceApiException {
 
         final boolean isDryRun = dryRunArguments != null;
         // inputTargetDateTime is only allowed in dryRun mode to have the system compute it
@@ -234,7 +258,7 @@ public class InvoiceDispatcher {
 
             final List<DateTime> candidateDateTimes = (inputTargetDateTime != null) ? ImmutableList.of(inputTargetDateTime) : getUpcomingInvoiceCandidateDates(context);
             for (final DateTime curTargetDateTime : candidateDateTimes) {
-                final Invoice invoice = processAccountWithLockAndInputTargetDate(accountId, curTargetDateTime, billingEvents, isDryRun, context);
+                final Invoice invoice = doProcessAccountForTargetDate(accountId, curTargetDateTime, billingEvents, isDryRun, context);
                 if (invoice != null) {
                     return invoice;
                 }
@@ -246,17 +270,23 @@ public class InvoiceDispatcher {
         }
     }
 
-    private Invoice processAccountWithLockAndInputTargetDate(final UUID accountId, final DateTime targetDateTime,
-                                                             final BillingEventSet billingEvents, final boolean isDryRun, final InternalCallContext context) throws InvoiceApiException {
+    private Invoice doProcessAccountForTargetDate(final UUID accountId, final DateTime targetDateTime,
+                                                  final BillingEventSet billingEvents, final boolean isDryRun, final InternalCallContext context) throws InvoiceApiException {
         try {
             final Account account = accountApi.getAccountById(accountId, context);
             final DateAndTimeZoneContext dateAndTimeZoneContext = billingEvents.iterator().hasNext() ?
                                                                   new DateAndTimeZoneContext(billingEvents.iterator().next().getEffectiveDate(), account.getTimeZone(), clock) :
                                                                   null;
 
+            final LocalDate targetDate = (dateAndTimeZoneContext != null && targetDateTime != null) ? dateAndTimeZoneContext.computeTargetDate(targetDateTime) : null;
+            // When configured, only load the part of the invoice history the generator will look at
+            final LocalDate cutoffDate = targetDate != null ? InvoiceDateUtils.calculateInvoiceHistoryCutoffDate(targetDate, invoiceConfig.getMaxInvoiceHistoryMonths()) : null;
+
             final List<Invoice> invoices = billingEvents.isAccountAutoInvoiceOff() ?
                                            ImmutableList.<Invoice>of() :
-                                           ImmutableList.<Invoice>copyOf(Collections2.transform(invoiceDao.getInvoicesByAccount(context),
+                                           ImmutableList.<Invoice>copyOf(Collections2.transform(cutoffDate != null ?
+                                                                                                invoiceDao.getInvoicesByAccountForInvoiceGeneration(cutoffDate, context) :
+                                                                                                invoiceDao.getInvoicesByAccount(context),
                                                                                                 new Function<InvoiceModelDao, Invoice>() {
                                                                                                     @Override
                                                                                                     public Invoice apply(final InvoiceModelDao input) {
@@ -266,7 +296,6 @@ public class InvoiceDispatcher {
 
             final Currency targetCurrency = account.getCurrency();
 
-            final LocalDate targetDate = (dateAndTimeZoneContext != null && targetDateTime != null) ? dateAndTimeZoneContext.computeTargetDate(targetDateTime) : null;
             final Invoice invoice = targetDate != null ? generator.generateInvoice(account, billingEvents, invoices, targetDate, targetCurrency, context) : null;
             //
             // If invoice comes back null, there is nothing new to generate, we can bail early
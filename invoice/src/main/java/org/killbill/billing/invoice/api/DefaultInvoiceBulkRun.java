@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.clock.Clock;
+
+// Counters are updated concurrently by the bulk run workers
+public class DefaultInvoiceBulkRun implements InvoiceBulkRun {
+
+    private final UUID id;
+    private final Long tenantRecordId;
+    private final LocalDate targetDate;
+    private final int nbAccounts;
+    private final DateTime startDate;
+    private final Clock clock;
+    private final AtomicInteger nbProcessedAccounts = new AtomicInteger(0);
+    private final AtomicInteger nbInvoices = new AtomicInteger(0);
+    private final AtomicInteger nbFailures = new AtomicInteger(0);
+
+    private volatile DateTime endDate;
+
+    public DefaultInvoiceBulkRun(final Long tenantRecordId, final LocalDate targetDate, final int nbAccounts, final Clock clock) {
+        this.id = UUIDs.randomUUID();
+        this.tenantRecordId = tenantRecordId;
+        this.targetDate = targetDate;
+        this.nbAccounts = nbAccounts;
+        this.clock = clock;
+        this.startDate = clock.getUTCNow();
+        this.endDate = nbAccounts == 0 ? startDate : null;
+    }
+
+    // Returns true for the last account of the run
+    public boolean onAccountProcessed(final boolean hasInvoice) {
+        if (hasInvoice) {
+            nbInvoices.incrementAndGet();
+        }
+        return onAccountDone();
+    }
+
+    public boolean onAccountFailed() {
+        nbFailures.incrementAndGet();
+        return onAccountDone();
+    }
+
+    private boolean onAccountDone() {
+        if (nbProcessedAccounts.incrementAndGet() == nbAccounts) {
+            endDate = clock.getUTCNow();
+            return true;
+        }
+        return false;
+    }
+
+    public Long getTenantRecordId() {
+        return tenantRecordId;
+    }
+
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    public LocalDate getTargetDate() {
+        return targetDate;
+    }
+
+    @Override
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    @Override
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return endDate != null;
+    }
+
+    @Override
+    public int getNbAccounts() {
+        return nbAccounts;
+    }
+
+    @Override
+    public int getNbProcessedAccounts() {
+        return nbProcessedAccounts.get();
+    }
+
+    @Override
+    public int getNbInvoices() {
+        return nbInvoices.get();
+    }
+
+    @Override
+    public int getNbFailures() {
+        return nbFailures.get();
+    }
+
+    @Override
+    public double getThroughput() {
+        final DateTime lastDate = endDate != null ? endDate : clock.getUTCNow();
+        final long elapsedMillis = lastDate.getMillis() - startDate.getMillis();
+        return elapsedMillis > 0 ? nbProcessedAccounts.get() * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DefaultInvoiceBulkRun{");
+        sb.append("id=").append(id);
+        sb.append(", targetDate=").append(targetDate);
+        sb.append(", nbAccounts=").append(nbAccounts);
+        sb.append(", nbProcessedAccounts=").append(nbProcessedAccounts);
+        sb.append(", nbInvoices=").append(nbInvoices);
+        sb.append(", nbFailures=").append(nbFailures);
+        sb.append(", startDate=").append(startDate);
+        sb.append(", endDate=").append(endDate);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.dao.InvoiceBalanceModelDao;
+
+public class DefaultUnpaidInvoicesSummary implements UnpaidInvoicesSummary {
+
+    private final int numberOfUnpaidInvoices;
+    private final BigDecimal balanceOfUnpaidInvoices;
+    private final LocalDate dateOfEarliestUnpaidInvoice;
+    private final UUID idOfEarliestUnpaidInvoice;
+
+    // The balances are expected to be sorted by invoice date
+    public DefaultUnpaidInvoicesSummary(final List<InvoiceBalanceModelDao> unpaidInvoiceBalances) {
+        BigDecimal balance = BigDecimal.ZERO;
+        for (final InvoiceBalanceModelDao unpaidInvoiceBalance : unpaidInvoiceBalances) {
+            balance = balance.add(unpaidInvoiceBalance.getBalance());
+        }
+
+        this.numberOfUnpaidInvoices = unpaidInvoiceBalances.size();
+        this.balanceOfUnpaidInvoices = balance;
+        this.dateOfEarliestUnpaidInvoice = unpaidInvoiceBalances.isEmpty() ? null : unpaidInvoiceBalances.get(0).getInvoiceDate();
+        this.idOfEarliestUnpaidInvoice = unpaidInvoiceBalances.isEmpty() ? null : unpaidInvoiceBalances.get(0).getInvoiceId();
+    }
+
+    @Override
+    public int getNumberOfUnpaidInvoices() {
+        return numberOfUnpaidInvoices;
+    }
+
+    @Override
+    public BigDecimal getBalanceOfUnpaidInvoices() {
+        return balanceOfUnpaidInvoices;
+    }
+
+    @Override
+    public LocalDate getDateOfEarliestUnpaidInvoice() {
+        return dateOfEarliestUnpaidInvoice;
+    }
+
+    @Override
+    public UUID getIdOfEarliestUnpaidInvoice() {
+        return idOfEarliestUnpaidInvoice;
+    }
+}
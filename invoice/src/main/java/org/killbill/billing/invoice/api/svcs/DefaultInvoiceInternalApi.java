@@ -32,13 +32,17 @@ import org.killbill.billing.ErrorCode;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.InvoiceBulkRunner;
+import org.killbill.billing.invoice.api.DefaultUnpaidInvoicesSummary;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceApiHelper;
+import org.killbill.billing.invoice.api.InvoiceBulkRun;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.invoice.api.WithAccountLock;
 import org.killbill.billing.invoice.dao.InvoiceDao;
 import org.killbill.billing.invoice.dao.InvoiceModelDao;
@@ -47,6 +51,9 @@ import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,20 +63,32 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationNoException;
+
 public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultInvoiceInternalApi.class);
 
+    private static final Function<InvoiceModelDao, Invoice> TO_SHALLOW_INVOICE = new Function<InvoiceModelDao, Invoice>() {
+        @Override
+        public Invoice apply(final InvoiceModelDao invoiceModelDao) {
+            return new DefaultInvoice(invoiceModelDao);
+        }
+    };
+
     private final InvoiceDao dao;
     private final InvoiceApiHelper invoiceApiHelper;
+    private final InvoiceBulkRunner invoiceBulkRunner;
     private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public DefaultInvoiceInternalApi(final InvoiceDao dao,
                                      final InvoiceApiHelper invoiceApiHelper,
+                                     final InvoiceBulkRunner invoiceBulkRunner,
                                      final InternalCallContextFactory internalCallContextFactory) {
         this.dao = dao;
         this.invoiceApiHelper = invoiceApiHelper;
+        this.invoiceBulkRunner = invoiceBulkRunner;
         this.internalCallContextFactory = internalCallContextFactory;
     }
 
@@ -88,6 +107,11 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
         });
     }
 
+    @Override
+    public UnpaidInvoicesSummary getUnpaidInvoicesSummary(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        return new DefaultUnpaidInvoicesSummary(dao.getUnpaidInvoiceBalancesByAccountId(accountId, upToDate, context));
+    }
+
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
         return dao.getAccountBalance(accountId, context);
@@ -175,4 +199,40 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
             }
         }).orNull();
     }
+
+    @Override
+    public InvoiceBulkRun triggerBulkInvoiceRun(final LocalDate targetDate, final CallContext context) throws InvoiceApiException {
+        return invoiceBulkRunner.run(targetDate, internalCallContextFactory.createInternalCallContext(context));
+    }
+
+    @Override
+    public InvoiceBulkRun getBulkInvoiceRun(final UUID runId, final TenantContext context) {
+        return invoiceBulkRunner.getRun(runId, internalCallContextFactory.createInternalTenantContext(context).getTenantRecordId());
+    }
+
+    @Override
+    public Pagination<Invoice> getInvoicesFromRecordId(final Long fromRecordId, final Long limit, final boolean withCount, final TenantContext context) {
+        return getEntityPaginationNoException(limit,
+                                              new SourcePaginationBuilder<InvoiceModelDao, InvoiceApiException>() {
+                                                  @Override
+                                                  public Pagination<InvoiceModelDao> build() {
+                                                      // Invoices will be shallow, i.e. won't contain items nor payments
+                                                      return dao.getFromRecordId(fromRecordId, limit, withCount, internalCallContextFactory.createInternalTenantContext(context));
+                                                  }
+                                              },
+                                              TO_SHALLOW_INVOICE);
+    }
+
+    @Override
+    public Pagination<Invoice> searchInvoicesFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final TenantContext context) {
+        return getEntityPaginationNoException(limit,
+                                              new SourcePaginationBuilder<InvoiceModelDao, InvoiceApiException>() {
+                                                  @Override
+                                                  public Pagination<InvoiceModelDao> build() {
+                                                      // Invoices will be shallow, i.e. won't contain items nor payments
+                                                      return dao.searchInvoicesFromRecordId(searchKey, fromRecordId, limit, withCount, internalCallContextFactory.createInternalTenantContext(context));
+                                                  }
+                                              },
+                                              TO_SHALLOW_INVOICE);
+    }
 }
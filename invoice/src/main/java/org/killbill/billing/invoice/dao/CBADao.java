@@ -42,8 +42,7 @@ public class CBADao {
     public BigDecimal getAccountCBAFromTransaction(final UUID accountId,
                                                     final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                     final InternalTenantContext context) {
-        final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
-        return getAccountCBAFromTransaction(invoices);
+        return invoiceDaoHelper.getAccountCBAFromTransaction(entitySqlDaoWrapperFactory, context);
     }
 
     public BigDecimal getAccountCBAFromTransaction(final List<InvoiceModelDao> invoices) {
@@ -66,8 +65,7 @@ public class CBADao {
         // Current balance is positive, we need to use some of the existing if available (negative CBA amount)
         } else if (balance.compareTo(BigDecimal.ZERO) > 0) {
 
-            final List<InvoiceModelDao> allInvoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
-            final BigDecimal accountCBA = getAccountCBAFromTransaction(allInvoices);
+            final BigDecimal accountCBA = invoiceDaoHelper.getAccountCBAFromTransaction(entitySqlDaoWrapperFactory, context);
             if (accountCBA.compareTo(BigDecimal.ZERO) <= 0) {
                 return null;
             }
@@ -20,6 +20,7 @@ package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -47,8 +48,10 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
@@ -62,8 +65,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
@@ -165,6 +170,43 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(final LocalDate cutoffDate, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
+            @Override
+            public List<InvoiceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+                final List<InvoiceItemModelDao> invoiceItems = invoiceItemSqlDao.getInvoiceItemsForAccountAfterCutoffDate(cutoffDate.toDate(), context);
+                if (invoiceItems.isEmpty()) {
+                    return ImmutableList.<InvoiceModelDao>of();
+                }
+
+                final Map<UUID, List<InvoiceItemModelDao>> invoiceItemsPerInvoiceId = new HashMap<UUID, List<InvoiceItemModelDao>>();
+                for (final InvoiceItemModelDao item : invoiceItems) {
+                    if (invoiceItemsPerInvoiceId.get(item.getInvoiceId()) == null) {
+                        invoiceItemsPerInvoiceId.put(item.getInvoiceId(), new LinkedList<InvoiceItemModelDao>());
+                    }
+                    invoiceItemsPerInvoiceId.get(item.getInvoiceId()).add(item);
+                }
+
+                final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
+                final Collection<String> invoiceIds = Collections2.transform(invoiceItemsPerInvoiceId.keySet(), Functions.toStringFunction());
+                final List<InvoiceModelDao> invoices = ImmutableList.<InvoiceModelDao>copyOf(INVOICE_MODEL_DAO_ORDERING.sortedCopy(Iterables.<InvoiceModelDao>filter(invoiceSqlDao.getByIds(invoiceIds, context),
+                                                                                                                                                                     new Predicate<InvoiceModelDao>() {
+                                                                                                                                                                         @Override
+                                                                                                                                                                         public boolean apply(final InvoiceModelDao invoice) {
+                                                                                                                                                                             return !invoice.isMigrated();
+                                                                                                                                                                         }
+                                                                                                                                                                     })));
+                for (final InvoiceModelDao invoice : invoices) {
+                    invoice.addInvoiceItems(invoiceItemsPerInvoiceId.get(invoice.getId()));
+                }
+
+                return invoices;
+            }
+        });
+    }
+
     private List<InvoiceModelDao> getAllNonMigratedInvoicesByAccountAfterDate(final InvoiceSqlDao invoiceSqlDao, final LocalDate fromDate, final InternalTenantContext context) {
         return ImmutableList.<InvoiceModelDao>copyOf(INVOICE_MODEL_DAO_ORDERING.sortedCopy(Iterables.<InvoiceModelDao>filter(invoiceSqlDao.getByAccountRecordId(context),
                                                                                                                              new Predicate<InvoiceModelDao>() {
@@ -251,9 +293,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                     // Create the invoice items
                     final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
-                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItems) {
-                        createInvoiceItemFromTransaction(transInvoiceItemSqlDao, invoiceItemModelDao, context);
-                    }
+                    createInvoiceItemsFromTransaction(transInvoiceItemSqlDao, invoiceItems, context);
                     cbaDao.addCBAComplexityFromTransaction(invoice, entitySqlDaoWrapperFactory, context);
                     notifyOfFutureBillingEvents(entitySqlDaoWrapperFactory, invoice.getAccountId(), callbackDateTimePerSubscriptions, context);
                 }
@@ -351,20 +391,50 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
     }
 
+    @Override
+    public Pagination<InvoiceModelDao> searchInvoicesFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        Integer invoiceNumberParsed = null;
+        try {
+            invoiceNumberParsed = Integer.parseInt(searchKey);
+        } catch (final NumberFormatException ignored) {
+        }
+
+        // The invoice number is the record id
+        final Integer invoiceNumber = invoiceNumberParsed;
+        return paginationHelper.getPaginationFromRecordId(InvoiceSqlDao.class,
+                                                          new KeysetPaginationIteratorBuilder<InvoiceModelDao, Invoice, InvoiceSqlDao>() {
+                                                              @Override
+                                                              public Long getCount(final InvoiceSqlDao invoiceSqlDao, final InternalTenantContext context) {
+                                                                  return invoiceNumber != null ? 1L : invoiceSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
+                                                              }
+
+                                                              @Override
+                                                              public Iterator<InvoiceModelDao> build(final InvoiceSqlDao invoiceSqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                                  if (invoiceNumber == null) {
+                                                                      return invoiceSqlDao.searchFromRecordId(searchKey, String.format("%%%s%%", searchKey), fromRecordId, limit, context);
+                                                                  } else if (invoiceNumber < fromRecordId || limit <= 0) {
+                                                                      return Iterators.<InvoiceModelDao>emptyIterator();
+                                                                  }
+
+                                                                  try {
+                                                                      return ImmutableList.<InvoiceModelDao>of(getByNumber(invoiceNumber, context)).iterator();
+                                                                  } catch (final InvoiceApiException ignored) {
+                                                                      return Iterators.<InvoiceModelDao>emptyIterator();
+                                                                  }
+                                                              }
+                                                          },
+                                                          fromRecordId,
+                                                          limit,
+                                                          withCount,
+                                                          context);
+    }
+
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
-                BigDecimal cba = BigDecimal.ZERO;
-
-                BigDecimal accountBalance = BigDecimal.ZERO;
-                final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
-                for (final InvoiceModelDao cur : invoices) {
-                    accountBalance = accountBalance.add(InvoiceModelDaoHelper.getBalance(cur));
-                    cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
-                }
-                return accountBalance.subtract(cba);
+                return invoiceDaoHelper.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
             }
         });
     }
@@ -389,6 +459,24 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         });
     }
 
+    @Override
+    public List<InvoiceBalanceModelDao> getUnpaidInvoiceBalancesByAccountId(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceBalanceModelDao>>() {
+            @Override
+            public List<InvoiceBalanceModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final List<InvoiceBalanceModelDao> unpaidInvoiceBalances = new LinkedList<InvoiceBalanceModelDao>();
+                for (final InvoiceBalanceModelDao invoiceBalance : entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getInvoicesWithPositiveBalance(upToDate.toDate(), context)) {
+                    // Round as InvoiceModelDaoHelper#getBalance does, before checking again the balance is positive
+                    final BigDecimal balance = KillBillMoney.of(invoiceBalance.getBalance(), invoiceBalance.getCurrency());
+                    if (balance.compareTo(BigDecimal.ZERO) > 0) {
+                        unpaidInvoiceBalances.add(new InvoiceBalanceModelDao(invoiceBalance.getInvoiceId(), invoiceBalance.getInvoiceDate(), invoiceBalance.getCurrency(), balance));
+                    }
+                }
+                return unpaidInvoiceBalances;
+            }
+        });
+    }
+
     @Override
     public UUID getInvoiceIdByPaymentId(final UUID paymentId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<UUID>() {
@@ -830,11 +918,40 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         invoiceItemSqlDao.create(invoiceItemModelDao, context);
     }
 
+    // Single batch (history and audit rows included) for all items
+    private void createInvoiceItemsFromTransaction(final InvoiceItemSqlDao invoiceItemSqlDao, final List<InvoiceItemModelDao> invoiceItemModelDaos, final InternalCallContext context) throws InvoiceApiException {
+        if (invoiceItemModelDaos.isEmpty()) {
+            return;
+        }
+
+        final Map<UUID, InvoiceItemModelDao> invoiceItemModelDaosById = new HashMap<UUID, InvoiceItemModelDao>();
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            invoiceItemModelDaosById.put(invoiceItemModelDao.getId(), invoiceItemModelDao);
+        }
+        for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItemModelDaos) {
+            if (InvoiceItemType.ITEM_ADJ.equals(invoiceItemModelDao.getType())) {
+                // The linked item may be part of the same batch
+                final InvoiceItemModelDao invoiceItemToBeAdjusted = invoiceItemModelDaosById.get(invoiceItemModelDao.getLinkedItemId());
+                if (invoiceItemToBeAdjusted != null) {
+                    validateInvoiceItemToBeAdjusted(invoiceItemToBeAdjusted);
+                } else {
+                    validateInvoiceItemToBeAdjusted(invoiceItemSqlDao, invoiceItemModelDao, context);
+                }
+            }
+        }
+
+        invoiceItemSqlDao.batchCreate(invoiceItemModelDaos, context);
+    }
+
     private void validateInvoiceItemToBeAdjusted(final InvoiceItemSqlDao invoiceItemSqlDao, final InvoiceItemModelDao invoiceItemModelDao, final InternalCallContext context) throws InvoiceApiException {
         Preconditions.checkNotNull(invoiceItemModelDao.getLinkedItemId(), "LinkedItemId cannot be null for ITEM_ADJ item: " + invoiceItemModelDao);
         // Note: this assumes the linked item has already been created in or prior to the transaction, which should almost always be the case
         // (unless some whacky plugin creates an out-of-order item adjustment on a subsequent external charge)
         final InvoiceItemModelDao invoiceItemToBeAdjusted = invoiceItemSqlDao.getById(invoiceItemModelDao.getLinkedItemId().toString(), context);
+        validateInvoiceItemToBeAdjusted(invoiceItemToBeAdjusted);
+    }
+
+    private void validateInvoiceItemToBeAdjusted(final InvoiceItemModelDao invoiceItemToBeAdjusted) throws InvoiceApiException {
         if (!INVOICE_ITEM_TYPES_ADJUSTABLE.contains(invoiceItemToBeAdjusted.getType())) {
             throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_ADJUSTMENT_ITEM_INVALID, invoiceItemToBeAdjusted.getId());
         }
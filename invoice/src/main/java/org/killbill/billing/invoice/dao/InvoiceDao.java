@@ -52,10 +52,23 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     List<InvoiceModelDao> getInvoicesByAccount(LocalDate fromDate, InternalTenantContext context);
 
+    /**
+     * Retrieve the non-migrated invoices of the account, restricted to the items overlapping the period starting at cutoffDate
+     * (linked items are returned alongside the item they point to). Invoices without any such item are not returned,
+     * and invoice payments are not populated.
+     *
+     * @param cutoffDate see InvoiceDateUtils#calculateInvoiceHistoryCutoffDate
+     * @param context    the tenant context
+     * @return the partial invoices, to be used for invoice generation
+     */
+    List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(LocalDate cutoffDate, InternalTenantContext context);
+
     List<InvoiceModelDao> getInvoicesBySubscription(UUID subscriptionId, InternalTenantContext context);
 
     Pagination<InvoiceModelDao> searchInvoices(String searchKey, Long offset, Long limit, InternalTenantContext context);
 
+    Pagination<InvoiceModelDao> searchInvoicesFromRecordId(String searchKey, Long fromRecordId, Long limit, boolean withCount, InternalTenantContext context);
+
     UUID getInvoiceIdByPaymentId(UUID paymentId, InternalTenantContext context);
 
     List<InvoicePaymentModelDao> getInvoicePayments(UUID paymentId, InternalTenantContext context);
@@ -68,6 +81,9 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate upToDate, InternalTenantContext context);
 
+    // Balances of the same invoices as getUnpaidInvoicesByAccountId, earliest invoice date first
+    List<InvoiceBalanceModelDao> getUnpaidInvoiceBalancesByAccountId(UUID accountId, LocalDate upToDate, InternalTenantContext context);
+
     // Include migrated invoices
     List<InvoiceModelDao> getAllInvoicesByAccount(InternalTenantContext context);
 
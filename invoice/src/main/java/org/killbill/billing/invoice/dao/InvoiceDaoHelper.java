@@ -37,6 +37,7 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.entity.EntityPersistenceException;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
 import com.google.common.base.Objects;
@@ -222,6 +223,47 @@ public class InvoiceDaoHelper {
         return invoices;
     }
 
+    /**
+     * Compute the account balance (sum of the invoice balances, minus the account credit) from the amounts summed per invoice
+     * by the database, rather than from the invoices with all their items and payments.
+     * <p/>
+     * Each per invoice amount is rounded to the currency precision before being added up, as InvoiceCalculatorUtils does.
+     *
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext
+     * @return the account balance
+     */
+    public BigDecimal getAccountBalanceFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        for (final InvoiceItemModelDao chargedAmount : entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getAccountChargedAmountByInvoice(context)) {
+            accountBalance = accountBalance.add(KillBillMoney.of(chargedAmount.getAmount(), chargedAmount.getCurrency()));
+        }
+        final InvoicePaymentSqlDao invoicePaymentSqlDao = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
+        for (final InvoicePaymentModelDao paidAmount : invoicePaymentSqlDao.getAccountPaidAmountByInvoice(context)) {
+            accountBalance = accountBalance.subtract(KillBillMoney.of(paidAmount.getAmount(), paidAmount.getCurrency()));
+        }
+        // Refunds and chargebacks are negative amounts, which increase the balance
+        for (final InvoicePaymentModelDao refundedAmount : invoicePaymentSqlDao.getAccountRefundedAmountByInvoice(context)) {
+            accountBalance = accountBalance.subtract(KillBillMoney.of(refundedAmount.getAmount(), refundedAmount.getCurrency()));
+        }
+        return accountBalance;
+    }
+
+    /**
+     * Compute the account credit from the CBA items amounts summed per invoice by the database (each rounded to the currency precision).
+     *
+     * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
+     * @param context                    the tenant callcontext
+     * @return the account credit
+     */
+    public BigDecimal getAccountCBAFromTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        BigDecimal accountCBA = BigDecimal.ZERO;
+        for (final InvoiceItemModelDao cbaAmount : entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).getAccountCBAByInvoice(context)) {
+            accountCBA = accountCBA.add(KillBillMoney.of(cbaAmount.getAmount(), cbaAmount.getCurrency()));
+        }
+        return accountCBA;
+    }
+
     public BigDecimal getRemainingAmountPaidFromTransaction(final UUID invoicePaymentId, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
         final BigDecimal amount = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).getRemainingAmountPaid(invoicePaymentId.toString(), context);
         return amount == null ? BigDecimal.ZERO : amount;
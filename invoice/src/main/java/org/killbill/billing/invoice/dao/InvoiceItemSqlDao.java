@@ -16,20 +16,32 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.util.Date;
 import java.util.List;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
 @EntitySqlDaoStringTemplate
 public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, InvoiceItem> {
 
+    @SqlBatch
+    @BatchChunkSize(1000)
+    @Audited(ChangeType.INSERT)
+    void batchCreate(@BindBean final Iterable<InvoiceItemModelDao> invoiceItems,
+                     @BindBean final InternalCallContext context);
+
     @SqlQuery
     List<InvoiceItemModelDao> getInvoiceItemsByInvoice(@Bind("invoiceId") final String invoiceId,
                                                        @BindBean final InternalTenantContext context);
@@ -37,4 +49,16 @@ public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, Inv
     @SqlQuery
     List<InvoiceItemModelDao> getInvoiceItemsBySubscription(@Bind("subscriptionId") final String subscriptionId,
                                                             @BindBean final InternalTenantContext context);
+
+    // Only the invoice id, currency and amount of the returned items are set
+    @SqlQuery
+    List<InvoiceItemModelDao> getAccountChargedAmountByInvoice(@BindBean final InternalTenantContext context);
+
+    // Only the invoice id, currency and amount of the returned items are set
+    @SqlQuery
+    List<InvoiceItemModelDao> getAccountCBAByInvoice(@BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    List<InvoiceItemModelDao> getInvoiceItemsForAccountAfterCutoffDate(@Bind("cutoffDate") final Date cutoffDate,
+                                                                       @BindBean final InternalTenantContext context);
 }
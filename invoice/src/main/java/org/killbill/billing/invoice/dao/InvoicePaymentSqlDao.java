@@ -53,6 +53,14 @@ public interface InvoicePaymentSqlDao extends EntitySqlDao<InvoicePaymentModelDa
     BigDecimal getRemainingAmountPaid(@Bind("invoicePaymentId") final String invoicePaymentId,
                                       @BindBean final InternalTenantContext context);
 
+    // Only the invoice id, currency and amount of the returned payments are set
+    @SqlQuery
+    List<InvoicePaymentModelDao> getAccountPaidAmountByInvoice(@BindBean final InternalTenantContext context);
+
+    // Only the invoice id, currency and amount of the returned payments are set
+    @SqlQuery
+    List<InvoicePaymentModelDao> getAccountRefundedAmountByInvoice(@BindBean final InternalTenantContext context);
+
     @SqlQuery
     UUID getAccountIdFromInvoicePaymentId(@Bind("invoicePaymentId") final String invoicePaymentId,
                                           @BindBean final InternalTenantContext context);
@@ -16,15 +16,25 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
+import org.joda.time.LocalDate;
+import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.util.dao.MapperBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
@@ -38,5 +48,23 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     @SqlQuery
     UUID getInvoiceIdByPaymentId(@Bind("paymentId") final String paymentId,
                                  @BindBean final InternalTenantContext context);
+
+    // The generic mapper registered by EntitySqlDaoStringTemplate only knows about InvoiceModelDao
+    @SqlQuery
+    @Mapper(InvoiceBalanceMapper.class)
+    List<InvoiceBalanceModelDao> getInvoicesWithPositiveBalance(@Bind("upToDate") final Date upToDate,
+                                                                @BindBean final InternalTenantContext context);
+
+    class InvoiceBalanceMapper extends MapperBase implements ResultSetMapper<InvoiceBalanceModelDao> {
+
+        @Override
+        public InvoiceBalanceModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            final UUID invoiceId = getUUID(r, "id");
+            final LocalDate invoiceDate = getDate(r, "invoice_date");
+            final Currency currency = Currency.valueOf(r.getString("currency"));
+            final BigDecimal balance = r.getBigDecimal("balance");
+            return new InvoiceBalanceModelDao(invoiceId, invoiceDate, currency, balance);
+        }
+    }
 }
 
@@ -105,10 +105,13 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         final Invoice invoice = new DefaultInvoice(account.getId(), new LocalDate(clock.getUTCNow(), account.getTimeZone()), adjustedTargetDate, targetCurrency);
         final UUID invoiceId = invoice.getId();
 
-        final List<InvoiceItem> inAdvanceItems = generateInAdvanceInvoiceItems(account.getId(), invoiceId, events, existingInvoices, adjustedTargetDate, targetCurrency);
+        // Existing and proposed items prior to that date are left untouched (see InvoiceConfig#getMaxInvoiceHistoryMonths)
+        final LocalDate cutoffDate = InvoiceDateUtils.calculateInvoiceHistoryCutoffDate(targetDate, config.getMaxInvoiceHistoryMonths());
+
+        final List<InvoiceItem> inAdvanceItems = generateInAdvanceInvoiceItems(account.getId(), invoiceId, events, existingInvoices, adjustedTargetDate, targetCurrency, cutoffDate);
         invoice.addInvoiceItems(inAdvanceItems);
 
-        final List<InvoiceItem> usageItems = generateUsageConsumableInArrearItems(account, invoiceId, events, existingInvoices, targetDate, context);
+        final List<InvoiceItem> usageItems = generateUsageConsumableInArrearItems(account, invoiceId, events, existingInvoices, targetDate, cutoffDate, context);
         invoice.addInvoiceItems(usageItems);
 
         return invoice.getInvoiceItems().size() != 0 ? invoice : null;
@@ -117,7 +120,7 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     private List<InvoiceItem> generateUsageConsumableInArrearItems(final Account account,
                                                                    final UUID invoiceId, final BillingEventSet eventSet,
                                                                    @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
-                                                                   final InternalCallContext internalCallContext) throws InvoiceApiException {
+                                                                   @Nullable final LocalDate cutoffDate, final InternalCallContext internalCallContext) throws InvoiceApiException {
 
         final Map<UUID, List<InvoiceItem>> perSubscriptionConsumableInArrearUsageItems = extractPerSubscriptionExistingConsumableInArrearUsageItems(eventSet.getUsages(), existingInvoices);
         try {
@@ -144,7 +147,10 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
                                     input.getBillingMode() == BillingMode.IN_ARREAR);
                         }
                     })) {
-                    rawUsageOptimizerResult = rawUsageOptimizer.getConsumableInArrearUsage(new LocalDate(event.getEffectiveDate(), account.getTimeZone()), targetDate, Iterables.concat(perSubscriptionConsumableInArrearUsageItems.values()), eventSet.getUsages(), internalCallContext);
+                    final LocalDate eventStartDate = new LocalDate(event.getEffectiveDate(), account.getTimeZone());
+                    // Usage periods prior the cutoff date are not re-evaluated, as existing items for these periods may not have been loaded
+                    final LocalDate firstEventStartDate = cutoffDate != null && cutoffDate.isAfter(eventStartDate) ? cutoffDate : eventStartDate;
+                    rawUsageOptimizerResult = rawUsageOptimizer.getConsumableInArrearUsage(firstEventStartDate, targetDate, Iterables.concat(perSubscriptionConsumableInArrearUsageItems.values()), eventSet.getUsages(), internalCallContext);
                 }
 
                 // None of the billing events report any usage (CONSUMABLE/IN_ARREAR) sections
@@ -154,18 +160,14 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
 
                 final UUID subscriptionId = event.getSubscription().getId();
                 if (curSubscriptionId != null && !curSubscriptionId.equals(subscriptionId)) {
-                    final SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(invoiceId, curEvents, rawUsageOptimizerResult.getRawUsage(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate());
-                    final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(curSubscriptionId);
-                    items.addAll(subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of()));
+                    items.addAll(computeMissingUsageInvoiceItems(invoiceId, curSubscriptionId, curEvents, rawUsageOptimizerResult, perSubscriptionConsumableInArrearUsageItems, targetDate, internalCallContext));
                     curEvents = Lists.newArrayList();
                 }
                 curSubscriptionId = subscriptionId;
                 curEvents.add(event);
             }
             if (curSubscriptionId != null) {
-                final SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(invoiceId, curEvents, rawUsageOptimizerResult.getRawUsage(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate());
-                final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(curSubscriptionId);
-                items.addAll(subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of()));
+                items.addAll(computeMissingUsageInvoiceItems(invoiceId, curSubscriptionId, curEvents, rawUsageOptimizerResult, perSubscriptionConsumableInArrearUsageItems, targetDate, internalCallContext));
             }
             return items;
 
@@ -174,6 +176,20 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         }
     }
 
+    private List<InvoiceItem> computeMissingUsageInvoiceItems(final UUID invoiceId, final UUID subscriptionId, final List<BillingEvent> subscriptionEvents,
+                                                              final RawUsageOptimizerResult rawUsageOptimizerResult, final Map<UUID, List<InvoiceItem>> perSubscriptionConsumableInArrearUsageItems,
+                                                              final LocalDate targetDate, final InternalCallContext internalCallContext) throws CatalogApiException {
+        SubscriptionConsumableInArrear subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(invoiceId, subscriptionEvents, rawUsageOptimizerResult.getRawUsage(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate());
+        if (rawUsageOptimizerResult.isAggregated()) {
+            // Billing intervals only depend on the billing events: compute them first, then only retrieve the usage totals for these intervals
+            final List<LocalDate> transitionTimes = subscriptionConsumableInArrear.computeTransitionTimes();
+            final List<RawUsage> aggregatedUsage = rawUsageOptimizer.getAggregatedUsage(subscriptionId, transitionTimes, internalCallContext);
+            subscriptionConsumableInArrear = new SubscriptionConsumableInArrear(invoiceId, subscriptionEvents, aggregatedUsage, targetDate, rawUsageOptimizerResult.getRawUsageStartDate());
+        }
+        final List<InvoiceItem> consumableInUsageArrearItems = perSubscriptionConsumableInArrearUsageItems.get(subscriptionId);
+        return subscriptionConsumableInArrear.computeMissingUsageInvoiceItems(consumableInUsageArrearItems != null ? consumableInUsageArrearItems : ImmutableList.<InvoiceItem>of());
+    }
+
     private Map<UUID, List<InvoiceItem>> extractPerSubscriptionExistingConsumableInArrearUsageItems(final Map<String, Usage> knownUsage, @Nullable final List<Invoice> existingInvoices) {
 
         if (existingInvoices == null || existingInvoices.isEmpty()) {
@@ -211,27 +227,47 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
 
     private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID accountId, final UUID invoiceId, final BillingEventSet eventSet,
                                                             @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
-                                                            final Currency targetCurrency) throws InvoiceApiException {
+                                                            final Currency targetCurrency, @Nullable final LocalDate cutoffDate) throws InvoiceApiException {
         final AccountItemTree accountItemTree = new AccountItemTree(accountId, invoiceId);
         if (existingInvoices != null) {
+            final Map<UUID, InvoiceItem> existingItemsById = new HashMap<UUID, InvoiceItem>();
+            for (final Invoice invoice : existingInvoices) {
+                for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                    existingItemsById.put(item.getId(), item);
+                }
+            }
+
             for (final Invoice invoice : existingInvoices) {
                 for (final InvoiceItem item : invoice.getInvoiceItems()) {
-                    if (item.getSubscriptionId() == null || // Always include migration invoices, credits, external charges etc.
-                        !eventSet.getSubscriptionIdsWithAutoInvoiceOff()
-                                 .contains(item.getSubscriptionId())) { //don't add items with auto_invoice_off tag
+                    if ((item.getSubscriptionId() == null || // Always include migration invoices, credits, external charges etc.
+                         !eventSet.getSubscriptionIdsWithAutoInvoiceOff()
+                                  .contains(item.getSubscriptionId())) && //don't add items with auto_invoice_off tag
+                        isWithinInvoiceHistory(item, existingItemsById, cutoffDate)) {
                         accountItemTree.addExistingItem(item);
                     }
                 }
             }
         }
 
-        // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
-        final List<InvoiceItem> proposedItems = generateInAdvanceInvoiceItems(invoiceId, accountId, eventSet, targetDate, targetCurrency);
+        // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time (or since the cutoffDate)
+        final List<InvoiceItem> proposedItems = generateInAdvanceInvoiceItems(invoiceId, accountId, eventSet, targetDate, targetCurrency, cutoffDate);
 
         accountItemTree.mergeWithProposedItems(proposedItems);
         return accountItemTree.getResultingItemList();
     }
 
+    // Linked items (adjustments, repairs) follow the item they point to, so that both sides of the merge see the same history
+    private boolean isWithinInvoiceHistory(final InvoiceItem item, final Map<UUID, InvoiceItem> existingItemsById, @Nullable final LocalDate cutoffDate) {
+        if (cutoffDate == null) {
+            return true;
+        }
+        if (item.getLinkedItemId() != null) {
+            final InvoiceItem linkedItem = existingItemsById.get(item.getLinkedItemId());
+            return linkedItem != null && InvoiceDateUtils.isWithinInvoiceHistory(linkedItem.getStartDate(), linkedItem.getEndDate(), cutoffDate);
+        }
+        return InvoiceDateUtils.isWithinInvoiceHistory(item.getStartDate(), item.getEndDate(), cutoffDate);
+    }
+
     private void validateTargetDate(final LocalDate targetDate) throws InvoiceApiException {
         final int maximumNumberOfMonths = config.getNumberOfMonthsInFuture();
 
@@ -256,18 +292,21 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     }
 
     private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
-                                                            final LocalDate targetDate, final Currency currency) throws InvoiceApiException {
+                                                            final LocalDate targetDate, final Currency currency, @Nullable final LocalDate cutoffDate) throws InvoiceApiException {
         final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
 
         if (events.size() == 0) {
             return items;
         }
 
-        // Pretty-print the generated invoice items from the junction events
-        final StringBuilder logStringBuilder = new StringBuilder("Proposed Invoice items for invoiceId ")
-                .append(invoiceId)
-                .append(" and accountId ")
-                .append(accountId);
+        // Pretty-print the generated invoice items from the junction events (only built when needed, this can be large)
+        StringBuilder logStringBuilder = null;
+        if (log.isDebugEnabled()) {
+            logStringBuilder = new StringBuilder("Proposed Invoice items for invoiceId ")
+                    .append(invoiceId)
+                    .append(" and accountId ")
+                    .append(accountId);
+        }
 
         final Iterator<BillingEvent> eventIt = events.iterator();
         BillingEvent nextEvent = eventIt.next();
@@ -277,25 +316,29 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
             if (!events.getSubscriptionIdsWithAutoInvoiceOff().
                     contains(thisEvent.getSubscription().getId())) { // don't consider events for subscriptions that have auto_invoice_off
                 final BillingEvent adjustedNextEvent = (thisEvent.getSubscription().getId() == nextEvent.getSubscription().getId()) ? nextEvent : null;
-                items.addAll(processInAdvanceEvents(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, logStringBuilder));
+                items.addAll(processInAdvanceEvents(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, cutoffDate, logStringBuilder));
             }
         }
-        items.addAll(processInAdvanceEvents(invoiceId, accountId, nextEvent, null, targetDate, currency, logStringBuilder));
+        items.addAll(processInAdvanceEvents(invoiceId, accountId, nextEvent, null, targetDate, currency, cutoffDate, logStringBuilder));
 
-        log.info(logStringBuilder.toString());
+        if (logStringBuilder != null) {
+            log.debug(logStringBuilder.toString());
+        }
 
         return items;
     }
 
     // Turn a set of events into a list of invoice items. Note that the dates on the invoice items will be rounded (granularity of a day)
+    // Items ending on or before the cutoff date (outside of the invoice history) are never generated
     private List<InvoiceItem> processInAdvanceEvents(final UUID invoiceId, final UUID accountId, final BillingEvent thisEvent, @Nullable final BillingEvent nextEvent,
-                                                     final LocalDate targetDate, final Currency currency,
-                                                     final StringBuilder logStringBuilder) throws InvoiceApiException {
+                                                     final LocalDate targetDate, final Currency currency, @Nullable final LocalDate cutoffDate,
+                                                     @Nullable final StringBuilder logStringBuilder) throws InvoiceApiException {
         final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
 
         // Handle fixed price items
         final InvoiceItem fixedPriceInvoiceItem = generateFixedPriceItem(invoiceId, accountId, thisEvent, targetDate, currency);
-        if (fixedPriceInvoiceItem != null) {
+        if (fixedPriceInvoiceItem != null &&
+            InvoiceDateUtils.isWithinInvoiceHistory(fixedPriceInvoiceItem.getStartDate(), fixedPriceInvoiceItem.getEndDate(), cutoffDate)) {
             items.add(fixedPriceInvoiceItem);
         }
 
@@ -305,14 +348,16 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
             final BillingModeGenerator billingModeGenerator = instantiateBillingMode(thisEvent.getBillingMode());
             final LocalDate startDate = new LocalDate(thisEvent.getEffectiveDate(), thisEvent.getTimeZone());
 
-            if (!startDate.isAfter(targetDate)) {
-                final LocalDate endDate = (nextEvent == null) ? null : new LocalDate(nextEvent.getEffectiveDate(), nextEvent.getTimeZone());
+            final LocalDate endDate = (nextEvent == null) ? null : new LocalDate(nextEvent.getEffectiveDate(), nextEvent.getTimeZone());
+
+            if (!startDate.isAfter(targetDate) &&
+                (cutoffDate == null || endDate == null || endDate.isAfter(cutoffDate))) {
 
                 final int billCycleDayLocal = thisEvent.getBillCycleDayLocal();
 
                 final List<RecurringInvoiceItemData> itemData;
                 try {
-                    itemData = billingModeGenerator.generateInvoiceItemData(startDate, endDate, targetDate, billCycleDayLocal, billingPeriod);
+                    itemData = billingModeGenerator.generateInvoiceItemData(startDate, endDate, targetDate, billCycleDayLocal, billingPeriod, cutoffDate);
                 } catch (InvalidDateSequenceException e) {
                     throw new InvoiceApiException(ErrorCode.INVOICE_INVALID_DATE_SEQUENCE, startDate, endDate, targetDate);
                 }
@@ -338,11 +383,13 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         }
 
         // For debugging purposes
-        logStringBuilder.append("\n")
-                        .append(thisEvent);
-        for (final InvoiceItem item : items) {
-            logStringBuilder.append("\n\t")
-                            .append(item);
+        if (logStringBuilder != null) {
+            logStringBuilder.append("\n")
+                            .append(thisEvent);
+            for (final InvoiceItem item : items) {
+                logStringBuilder.append("\n\t")
+                                .append(item);
+            }
         }
 
         return items;
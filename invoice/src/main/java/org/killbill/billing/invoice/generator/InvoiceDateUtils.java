@@ -18,6 +18,8 @@ package org.killbill.billing.invoice.generator;
 
 import java.math.BigDecimal;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.joda.time.Months;
@@ -27,6 +29,30 @@ import org.killbill.billing.util.currency.KillBillMoney;
 
 public class InvoiceDateUtils {
 
+    /**
+     * Compute the date prior to which invoice history can be ignored when generating an invoice
+     *
+     * @param targetDate              the invoice target date
+     * @param maxInvoiceHistoryMonths see InvoiceConfig#getMaxInvoiceHistoryMonths
+     * @return the cutoff date, or null if the whole history needs to be considered
+     */
+    public static LocalDate calculateInvoiceHistoryCutoffDate(final LocalDate targetDate, final int maxInvoiceHistoryMonths) {
+        return maxInvoiceHistoryMonths < 0 ? null : targetDate.minusMonths(maxInvoiceHistoryMonths);
+    }
+
+    /**
+     * @param startDate  start date of the item
+     * @param endDate    end date of the item (null for fixed items)
+     * @param cutoffDate see calculateInvoiceHistoryCutoffDate
+     * @return true if the item overlaps the period starting at cutoffDate
+     */
+    public static boolean isWithinInvoiceHistory(final LocalDate startDate, @Nullable final LocalDate endDate, @Nullable final LocalDate cutoffDate) {
+        if (cutoffDate == null) {
+            return true;
+        }
+        return endDate != null ? endDate.isAfter(cutoffDate) : !startDate.isBefore(cutoffDate);
+    }
+
     /**
      * Called internally to calculate proration or when we recalculate approximate repair amount
      *
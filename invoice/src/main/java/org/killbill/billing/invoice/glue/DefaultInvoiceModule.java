@@ -19,6 +19,7 @@
 package org.killbill.billing.invoice.glue;
 
 import org.killbill.billing.glue.InvoiceModule;
+import org.killbill.billing.invoice.InvoiceBulkRunner;
 import org.killbill.billing.invoice.InvoiceDispatcher;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
@@ -123,6 +124,10 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceDispatcher.class).asEagerSingleton();
     }
 
+    protected void installInvoiceBulkRunner() {
+        bind(InvoiceBulkRunner.class).asEagerSingleton();
+    }
+
     protected void installInvoiceListener() {
         bind(InvoiceListener.class).asEagerSingleton();
     }
@@ -149,6 +154,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         installNotifiers();
         installInvoiceDispatcher();
         installInvoiceListener();
+        installInvoiceBulkRunner();
         installTagHandler();
         installInvoiceGenerator();
         installInvoiceDao();
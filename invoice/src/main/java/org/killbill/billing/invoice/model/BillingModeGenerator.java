@@ -29,4 +29,12 @@ public interface BillingModeGenerator {
 
     List<RecurringInvoiceItemData> generateInvoiceItemData(LocalDate startDate, @Nullable LocalDate endDate, LocalDate targetDate,
                                                            int billingCycleDay, BillingPeriod billingPeriod) throws InvalidDateSequenceException;
+
+    /**
+     * Same as above, but periods ending on or before the cutoff date are not generated
+     * (see InvoiceDateUtils#calculateInvoiceHistoryCutoffDate)
+     */
+    List<RecurringInvoiceItemData> generateInvoiceItemData(LocalDate startDate, @Nullable LocalDate endDate, LocalDate targetDate,
+                                                           int billingCycleDay, BillingPeriod billingPeriod,
+                                                           @Nullable LocalDate cutoffDate) throws InvalidDateSequenceException;
 }
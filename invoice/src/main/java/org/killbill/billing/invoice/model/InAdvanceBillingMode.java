@@ -32,6 +32,7 @@ import org.killbill.billing.invoice.generator.BillingIntervalDetail;
 import static org.killbill.billing.invoice.generator.InvoiceDateUtils.calculateNumberOfWholeBillingPeriods;
 import static org.killbill.billing.invoice.generator.InvoiceDateUtils.calculateProRationAfterLastBillingCycleDate;
 import static org.killbill.billing.invoice.generator.InvoiceDateUtils.calculateProRationBeforeFirstBillingPeriod;
+import static org.killbill.billing.invoice.generator.InvoiceDateUtils.isWithinInvoiceHistory;
 
 public class InAdvanceBillingMode implements BillingModeGenerator {
 
@@ -41,6 +42,14 @@ public class InAdvanceBillingMode implements BillingModeGenerator {
     public List<RecurringInvoiceItemData> generateInvoiceItemData(final LocalDate startDate, @Nullable final LocalDate endDate,
                                                                   final LocalDate targetDate,
                                                                   final int billingCycleDayLocal, final BillingPeriod billingPeriod) throws InvalidDateSequenceException {
+        return generateInvoiceItemData(startDate, endDate, targetDate, billingCycleDayLocal, billingPeriod, null);
+    }
+
+    @Override
+    public List<RecurringInvoiceItemData> generateInvoiceItemData(final LocalDate startDate, @Nullable final LocalDate endDate,
+                                                                  final LocalDate targetDate,
+                                                                  final int billingCycleDayLocal, final BillingPeriod billingPeriod,
+                                                                  @Nullable final LocalDate cutoffDate) throws InvalidDateSequenceException {
         if (endDate != null && endDate.isBefore(startDate)) {
             throw new InvalidDateSequenceException();
         }
@@ -61,9 +70,11 @@ public class InAdvanceBillingMode implements BillingModeGenerator {
         // is to charge for that period
         //
         if (endDate != null && !endDate.isAfter(billingIntervalDetail.getFirstBillingCycleDate())) {
-            final BigDecimal leadingProRationPeriods = calculateProRationBeforeFirstBillingPeriod(startDate, endDate, billingPeriod);
-            final RecurringInvoiceItemData itemData = new RecurringInvoiceItemData(startDate, endDate, leadingProRationPeriods);
-            results.add(itemData);
+            if (isWithinInvoiceHistory(startDate, endDate, cutoffDate)) {
+                final BigDecimal leadingProRationPeriods = calculateProRationBeforeFirstBillingPeriod(startDate, endDate, billingPeriod);
+                final RecurringInvoiceItemData itemData = new RecurringInvoiceItemData(startDate, endDate, leadingProRationPeriods);
+                results.add(itemData);
+            }
             return results;
         }
 
@@ -72,13 +83,19 @@ public class InAdvanceBillingMode implements BillingModeGenerator {
         // i) The first firstBillingCycleDate is strictly after our start date AND
         // ii) The endDate is is not null and is strictly after our firstBillingCycleDate (previous check)
         //
+        // Start date of the next period to generate
+        LocalDate servicePeriodStartDate = startDate;
         if (billingIntervalDetail.getFirstBillingCycleDate().isAfter(startDate)) {
             final BigDecimal leadingProRationPeriods = calculateProRationBeforeFirstBillingPeriod(startDate, billingIntervalDetail.getFirstBillingCycleDate(), billingPeriod);
             if (leadingProRationPeriods != null && leadingProRationPeriods.compareTo(BigDecimal.ZERO) > 0) {
-                // Not common - add info in the logs for debugging purposes
-                final RecurringInvoiceItemData itemData = new RecurringInvoiceItemData(startDate, billingIntervalDetail.getFirstBillingCycleDate(), leadingProRationPeriods);
-                log.info("Adding pro-ration: {}", itemData);
-                results.add(itemData);
+                // Make sure the periods align with the pro-ration
+                servicePeriodStartDate = billingIntervalDetail.getFirstBillingCycleDate();
+                if (isWithinInvoiceHistory(startDate, billingIntervalDetail.getFirstBillingCycleDate(), cutoffDate)) {
+                    // Not common - add info in the logs for debugging purposes
+                    final RecurringInvoiceItemData itemData = new RecurringInvoiceItemData(startDate, billingIntervalDetail.getFirstBillingCycleDate(), leadingProRationPeriods);
+                    log.info("Adding pro-ration: {}", itemData);
+                    results.add(itemData);
+                }
             }
         }
 
@@ -95,27 +112,30 @@ public class InAdvanceBillingMode implements BillingModeGenerator {
         final LocalDate lastBillingCycleDate = billingIntervalDetail.getLastBillingCycleDate();
         final int numberOfWholeBillingPeriods = calculateNumberOfWholeBillingPeriods(billingIntervalDetail.getFirstBillingCycleDate(), lastBillingCycleDate, billingPeriod);
 
-        for (int i = 0; i < numberOfWholeBillingPeriods; i++) {
-            final LocalDate servicePeriodStartDate;
-            if (results.size() > 0) {
-                // Make sure the periods align, especially with the pro-ration calculations above
-                servicePeriodStartDate = results.get(results.size() - 1).getEndDate();
-            } else if (i == 0) {
-                // Use the specified start date
-                servicePeriodStartDate = startDate;
-            } else {
-                throw new IllegalStateException("We should at least have one invoice item!");
+        // Jump over the periods ending before the cutoff date, without generating them
+        int firstPeriod = 0;
+        if (cutoffDate != null && numberOfWholeBillingPeriods > 0 && cutoffDate.isAfter(billingIntervalDetail.getFirstBillingCycleDate())) {
+            firstPeriod = Math.min(Math.max(calculateNumberOfWholeBillingPeriods(billingIntervalDetail.getFirstBillingCycleDate(), cutoffDate, billingPeriod) - 1, 0), numberOfWholeBillingPeriods);
+            while (firstPeriod < numberOfWholeBillingPeriods && !billingIntervalDetail.getFutureBillingDateFor(firstPeriod + 1).isAfter(cutoffDate)) {
+                firstPeriod++;
             }
+            if (firstPeriod > 0) {
+                servicePeriodStartDate = billingIntervalDetail.getFutureBillingDateFor(firstPeriod);
+            }
+        }
 
+        for (int i = firstPeriod; i < numberOfWholeBillingPeriods; i++) {
             // Make sure to align the end date with the BCD
             final LocalDate servicePeriodEndDate = billingIntervalDetail.getFutureBillingDateFor(i + 1);
             results.add(new RecurringInvoiceItemData(servicePeriodStartDate, servicePeriodEndDate, BigDecimal.ONE));
+            // Make sure the periods align
+            servicePeriodStartDate = servicePeriodEndDate;
         }
 
         //
         // Now we check if indeed we need a trailing proration and add that incomplete item
         //
-        if (effectiveEndDate.isAfter(lastBillingCycleDate)) {
+        if (effectiveEndDate.isAfter(lastBillingCycleDate) && isWithinInvoiceHistory(lastBillingCycleDate, effectiveEndDate, cutoffDate)) {
             final BigDecimal trailingProRationPeriods = calculateProRationAfterLastBillingCycleDate(effectiveEndDate, lastBillingCycleDate, billingPeriod);
             if (trailingProRationPeriods.compareTo(BigDecimal.ZERO) > 0) {
                 // Not common - add info in the logs for debugging purposes
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -40,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
@@ -70,10 +72,22 @@ public class RawUsageOptimizer {
         log.info("RawUsageOptimizer [accountRecordId = {}]: rawUsageStartDate = {}, (proposed) firstEventStartDate = {}",
                  new Object[]{internalCallContext.getAccountRecordId(), targetStartDate, firstEventStartDate});
 
+        if (config.isPreAggregatedUsageEnabled()) {
+            // Usage will be retrieved per subscription, once the billing intervals are known (see getAggregatedUsage)
+            return new RawUsageOptimizerResult(firstEventStartDate, targetStartDate);
+        }
+
         final List<RawUsage> rawUsageData = usageApi.getRawUsageForAccount(targetStartDate, targetDate, internalCallContext);
         return new RawUsageOptimizerResult(firstEventStartDate, targetStartDate, rawUsageData);
     }
 
+    public List<RawUsage> getAggregatedUsage(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalCallContext internalCallContext) {
+        if (transitionTimes.size() < 2) {
+            return ImmutableList.<RawUsage>of();
+        }
+        return usageApi.getAggregatedUsageForSubscription(subscriptionId, transitionTimes, internalCallContext);
+    }
+
     @VisibleForTesting
     LocalDate getOptimizedRawUsageStartDate(final LocalDate firstEventStartDate, final LocalDate targetDate, final Iterable<InvoiceItem> existingUsageItems, final Map<String, Usage> knownUsage) {
 
@@ -155,11 +169,21 @@ public class RawUsageOptimizer {
         private final LocalDate firstEventStartDate;
         private final LocalDate rawUsageStartDate;
         private final List<RawUsage> rawUsage;
+        private final boolean aggregated;
 
         public RawUsageOptimizerResult(final LocalDate firstEventStartDate, final LocalDate rawUsageStartDate, final List<RawUsage> rawUsage) {
+            this(firstEventStartDate, rawUsageStartDate, rawUsage, false);
+        }
+
+        public RawUsageOptimizerResult(final LocalDate firstEventStartDate, final LocalDate rawUsageStartDate) {
+            this(firstEventStartDate, rawUsageStartDate, ImmutableList.<RawUsage>of(), true);
+        }
+
+        private RawUsageOptimizerResult(final LocalDate firstEventStartDate, final LocalDate rawUsageStartDate, final List<RawUsage> rawUsage, final boolean aggregated) {
             this.firstEventStartDate = firstEventStartDate;
             this.rawUsageStartDate = rawUsageStartDate;
             this.rawUsage = rawUsage;
+            this.aggregated = aggregated;
         }
 
         public LocalDate getFirstEventStartDate() {
@@ -173,6 +197,11 @@ public class RawUsageOptimizer {
         public List<RawUsage> getRawUsage() {
             return rawUsage;
         }
+
+        // If true, usage needs to be retrieved per subscription through RawUsageOptimizer#getAggregatedUsage
+        public boolean isAggregated() {
+            return aggregated;
+        }
     }
 
 }
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -38,6 +39,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
@@ -101,6 +103,17 @@ public class SubscriptionConsumableInArrear {
         return result;
     }
 
+    /**
+     * @return the sorted union of the transition times of all usage intervals, i.e. the boundaries of the periods that need usage data
+     */
+    public List<LocalDate> computeTransitionTimes() {
+        final Set<LocalDate> result = new TreeSet<LocalDate>();
+        for (final ContiguousIntervalConsumableInArrear usageInterval : computeInArrearUsageInterval()) {
+            result.addAll(usageInterval.getTransitionTimes());
+        }
+        return ImmutableList.<LocalDate>copyOf(result);
+    }
+
     @VisibleForTesting
     List<ContiguousIntervalConsumableInArrear> computeInArrearUsageInterval() {
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.MockPlan;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.DefaultInvoiceService;
+import org.killbill.billing.invoice.api.DryRunArguments;
+import org.killbill.billing.invoice.api.InvoiceBulkRun;
+import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
+import org.killbill.billing.invoice.notification.NextBillingDateNotificationKey;
+import org.killbill.billing.junction.BillingEventSet;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.inject.Inject;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+public class TestInvoiceBulkRunner extends InvoiceTestSuiteWithEmbeddedDB {
+
+    @Inject
+    protected InvoiceBulkRunner invoiceBulkRunner;
+
+    @Test(groups = "slow")
+    public void testRun() throws Exception {
+        final DateTime now = clock.getUTCNow();
+
+        final Account invoicedAccount = invoiceUtil.createAccount(callContext);
+        final Account accountWithoutInvoice = invoiceUtil.createAccount(callContext);
+        final Account dryRunAccount = invoiceUtil.createAccount(callContext);
+        final Account laterAccount = invoiceUtil.createAccount(callContext);
+
+        recordNextBillingDateNotification(invoicedAccount, now.plusDays(2), false);
+        recordNextBillingDateNotification(accountWithoutInvoice, now.plusDays(2), false);
+        recordNextBillingDateNotification(dryRunAccount, now.plusDays(2), true);
+        recordNextBillingDateNotification(laterAccount, now.plusDays(10), false);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        events.add(invoiceUtil.createMockBillingEvent(invoicedAccount, invoiceUtil.createSubscription(), now.minusDays(1), MockPlan.createBicycleNoTrialEvergreen1USD(), MockPlanPhase.create1USDMonthlyEvergreen(),
+                                                      null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY, 1,
+                                                      BillingMode.IN_ADVANCE, "", 1L, SubscriptionBaseTransitionType.CREATE));
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(new MockBillingEventSet());
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.eq(invoicedAccount.getId()), Mockito.<DryRunArguments>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
+
+        final InternalCallContext context = internalCallContextFactory.createInternalCallContext(callContext);
+        final InvoiceBulkRun run = invoiceBulkRunner.run(now.toLocalDate().plusDays(5), context);
+        // Neither the dry-run nor the later notification are due
+        Assert.assertEquals(run.getNbAccounts(), 2);
+
+        await().atMost(1, MINUTES).until(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return run.isCompleted();
+            }
+        });
+        Assert.assertEquals(run.getNbProcessedAccounts(), 2);
+        Assert.assertEquals(run.getNbInvoices(), 1);
+        Assert.assertEquals(run.getNbFailures(), 0);
+        Assert.assertEquals(invoiceDao.getInvoicesByAccount(internalCallContextFactory.createInternalCallContext(invoicedAccount.getId(), callContext)).size(), 1);
+        Assert.assertEquals(invoiceDao.getInvoicesByAccount(internalCallContextFactory.createInternalCallContext(accountWithoutInvoice.getId(), callContext)).size(), 0);
+
+        // Completed runs remain available, to their tenant only
+        Assert.assertEquals(invoiceBulkRunner.getRun(run.getId(), context.getTenantRecordId()), run);
+        Assert.assertNull(invoiceBulkRunner.getRun(run.getId(), context.getTenantRecordId() + 1));
+    }
+
+    @Test(groups = "slow")
+    public void testRunWithoutAccountDue() throws Exception {
+        final DateTime now = clock.getUTCNow();
+        recordNextBillingDateNotification(invoiceUtil.createAccount(callContext), now.plusDays(10), false);
+
+        final InternalCallContext context = internalCallContextFactory.createInternalCallContext(callContext);
+        final InvoiceBulkRun run = invoiceBulkRunner.run(now.toLocalDate().plusDays(5), context);
+        Assert.assertEquals(run.getNbAccounts(), 0);
+        Assert.assertTrue(run.isCompleted());
+        Assert.assertEquals(invoiceBulkRunner.getRun(run.getId(), context.getTenantRecordId()), run);
+    }
+
+    @Test(groups = "slow")
+    public void testRunAfterStop() throws Exception {
+        ((DefaultInvoiceService) invoiceService).stop();
+        try {
+            invoiceBulkRunner.run(clock.getUTCToday(), internalCallContextFactory.createInternalCallContext(callContext));
+            Assert.fail("Bulk invoice runs should be rejected once stopped");
+        } catch (final IllegalStateException e) {
+            // Expected
+        } finally {
+            ((DefaultInvoiceService) invoiceService).initialize();
+            ((DefaultInvoiceService) invoiceService).start();
+        }
+    }
+
+    private void recordNextBillingDateNotification(final Account account, final DateTime effectiveDate, final boolean isDryRun) throws Exception {
+        final NotificationQueue nextBillingQueue = notificationQueueService.getNotificationQueue(DefaultInvoiceService.INVOICE_SERVICE_NAME,
+                                                                                                 DefaultNextBillingDateNotifier.NEXT_BILLING_DATE_NOTIFIER_QUEUE);
+        final InternalCallContext context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+        nextBillingQueue.recordFutureNotification(effectiveDate, new NextBillingDateNotificationKey(UUID.randomUUID(), effectiveDate, isDryRun),
+                                                  context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+    }
+}
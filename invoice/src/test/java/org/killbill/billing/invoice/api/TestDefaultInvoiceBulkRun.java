@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.clock.ClockMock;
+import org.killbill.commons.concurrent.Executors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDefaultInvoiceBulkRun extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testRunWithoutAccounts() {
+        final DefaultInvoiceBulkRun run = new DefaultInvoiceBulkRun(1L, new LocalDate(2015, 6, 1), 0, new ClockMock());
+
+        Assert.assertTrue(run.isCompleted());
+        Assert.assertEquals(run.getEndDate(), run.getStartDate());
+        Assert.assertEquals(run.getNbProcessedAccounts(), 0);
+        Assert.assertEquals(run.getThroughput(), 0.0);
+    }
+
+    @Test(groups = "fast")
+    public void testCounters() {
+        final ClockMock runClock = new ClockMock();
+        final DefaultInvoiceBulkRun run = new DefaultInvoiceBulkRun(1L, new LocalDate(2015, 6, 1), 3, runClock);
+        Assert.assertFalse(run.isCompleted());
+
+        Assert.assertFalse(run.onAccountProcessed(true));
+        Assert.assertFalse(run.onAccountProcessed(false));
+        runClock.addDays(1);
+        Assert.assertTrue(run.onAccountFailed());
+
+        Assert.assertTrue(run.isCompleted());
+        Assert.assertEquals(run.getNbAccounts(), 3);
+        Assert.assertEquals(run.getNbProcessedAccounts(), 3);
+        Assert.assertEquals(run.getNbInvoices(), 1);
+        Assert.assertEquals(run.getNbFailures(), 1);
+        // Roughly 3 accounts per day, and frozen once completed
+        Assert.assertEquals(run.getThroughput(), 3.0 / (24 * 3600), 0.0000001);
+        runClock.addDays(1);
+        Assert.assertEquals(run.getThroughput(), 3.0 / (24 * 3600), 0.0000001);
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentUpdates() throws Exception {
+        final int nbThreads = 8;
+        final int nbAccountsPerThread = 1000;
+        final DefaultInvoiceBulkRun run = new DefaultInvoiceBulkRun(1L, new LocalDate(2015, 6, 1), nbThreads * nbAccountsPerThread, new ClockMock());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads, "TestDefaultInvoiceBulkRun");
+        final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        try {
+            for (int i = 0; i < nbThreads; i++) {
+                final boolean withFailures = i % 2 == 0;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int nbLastAccounts = 0;
+                        for (int j = 0; j < nbAccountsPerThread; j++) {
+                            final boolean isLastAccount = withFailures ? run.onAccountFailed() : run.onAccountProcessed(true);
+                            if (isLastAccount) {
+                                nbLastAccounts++;
+                            }
+                        }
+                        return nbLastAccounts;
+                    }
+                }));
+            }
+
+            int nbLastAccounts = 0;
+            for (final Future<Integer> future : futures) {
+                nbLastAccounts += future.get();
+            }
+            // Exactly one worker sees the run completing
+            Assert.assertEquals(nbLastAccounts, 1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertTrue(run.isCompleted());
+        Assert.assertEquals(run.getNbProcessedAccounts(), nbThreads * nbAccountsPerThread);
+        Assert.assertEquals(run.getNbInvoices(), nbThreads / 2 * nbAccountsPerThread);
+        Assert.assertEquals(run.getNbFailures(), nbThreads / 2 * nbAccountsPerThread);
+    }
+}
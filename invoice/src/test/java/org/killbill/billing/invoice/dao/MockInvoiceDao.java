@@ -162,6 +162,12 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return invoicesForAccount;
     }
 
+    @Override
+    public List<InvoiceModelDao> getInvoicesByAccountForInvoiceGeneration(final LocalDate cutoffDate, final InternalTenantContext context) {
+        // The generator filters the history on its own
+        return getInvoicesByAccount(context);
+    }
+
     @Override
     public List<InvoiceModelDao> getInvoicesBySubscription(final UUID subscriptionId, final InternalTenantContext context) {
         final List<InvoiceModelDao> result = new ArrayList<InvoiceModelDao>();
@@ -194,6 +200,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return DefaultPagination.<InvoiceModelDao>build(offset, limit, results);
     }
 
+    @Override
+    public Pagination<InvoiceModelDao> searchInvoicesFromRecordId(final String searchKey, final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void test(final InternalTenantContext context) {
     }
@@ -277,6 +288,19 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return unpaidInvoices;
     }
 
+    @Override
+    public List<InvoiceBalanceModelDao> getUnpaidInvoiceBalancesByAccountId(final UUID accountId, final LocalDate upToDate, final InternalTenantContext context) {
+        final List<InvoiceBalanceModelDao> unpaidInvoiceBalances = new ArrayList<InvoiceBalanceModelDao>();
+
+        for (final InvoiceModelDao invoice : getUnpaidInvoicesByAccountId(accountId, upToDate, context)) {
+            if (!invoice.getTargetDate().isAfter(upToDate)) {
+                unpaidInvoiceBalances.add(new InvoiceBalanceModelDao(invoice.getId(), invoice.getInvoiceDate(), invoice.getCurrency(), InvoiceModelDaoHelper.getBalance(invoice)));
+            }
+        }
+
+        return unpaidInvoiceBalances;
+    }
+
     @Override
     public List<InvoiceModelDao> getAllInvoicesByAccount(final InternalTenantContext context) {
         final List<InvoiceModelDao> result = new ArrayList<InvoiceModelDao>();
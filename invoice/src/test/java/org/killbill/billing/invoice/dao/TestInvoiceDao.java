@@ -59,6 +59,7 @@ import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.DefaultInvoicePayment;
 import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
 import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
 import org.killbill.billing.invoice.model.RecurringInvoiceItem;
 import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
 import org.killbill.billing.junction.BillingEvent;
@@ -68,6 +69,7 @@ import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.exceptions.TransactionFailedException;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -497,6 +499,79 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(invoices.size(), 0);
     }
 
+    @Test(groups = "slow")
+    public void testGetInvoicesForAccountForInvoiceGeneration() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID subscriptionId = UUID.randomUUID();
+        final BigDecimal rate = new BigDecimal("20.0");
+
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 1, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        final RecurringInvoiceItem oldItem = new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 1, 1),
+                                                                      new LocalDate(2011, 2, 1), rate, rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(oldItem, context);
+
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 6, 1), Currency.USD);
+        invoiceUtil.createInvoice(invoice2, true, context);
+        final RecurringInvoiceItem recentItem = new RecurringInvoiceItem(invoice2.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 6, 1),
+                                                                         new LocalDate(2011, 7, 1), rate, rate, Currency.USD);
+        invoiceUtil.createInvoiceItem(recentItem, context);
+        // Adjustment on the old item, booked on the recent invoice
+        final RepairAdjInvoiceItem oldItemRepair = new RepairAdjInvoiceItem(invoice2.getId(), accountId, new LocalDate(2011, 6, 1), new LocalDate(2011, 6, 1), rate.negate(), Currency.USD, oldItem.getId());
+        invoiceUtil.createInvoiceItem(oldItemRepair, context);
+
+        List<InvoiceModelDao> invoices;
+        invoices = invoiceDao.getInvoicesByAccountForInvoiceGeneration(new LocalDate(2010, 12, 1), context);
+        assertEquals(invoices.size(), 2);
+        assertEquals(invoices.get(0).getInvoiceItems().size(), 1);
+        assertEquals(invoices.get(1).getInvoiceItems().size(), 2);
+
+        // The repair follows the old item, even though it lives on the recent invoice
+        invoices = invoiceDao.getInvoicesByAccountForInvoiceGeneration(new LocalDate(2011, 3, 1), context);
+        assertEquals(invoices.size(), 1);
+        assertEquals(invoices.get(0).getId(), invoice2.getId());
+        assertEquals(invoices.get(0).getInvoiceItems().size(), 1);
+        assertEquals(invoices.get(0).getInvoiceItems().get(0).getId(), recentItem.getId());
+
+        invoices = invoiceDao.getInvoicesByAccountForInvoiceGeneration(new LocalDate(2011, 7, 1), context);
+        assertEquals(invoices.size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testCreateInvoiceWithBatchedAudits() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final UUID subscriptionId = UUID.randomUUID();
+        final BigDecimal rate = new BigDecimal("20.0");
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), new LocalDate(2011, 1, 1), Currency.USD);
+        final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new RecurringInvoiceItem(invoice.getId(), accountId, bundleId, subscriptionId, "test plan", "test phase", new LocalDate(2011, 1, 1).plusMonths(i),
+                                               new LocalDate(2011, 2, 1).plusMonths(i), rate, rate, Currency.USD));
+        }
+        // Adjustment on an item of the same batch
+        items.add(new ItemAdjInvoiceItem(items.get(0), new LocalDate(2011, 1, 15), BigDecimal.ONE.negate(), Currency.USD));
+        invoice.addInvoiceItems(items);
+        invoiceUtil.createInvoice(invoice, true, context);
+
+        final List<InvoiceItemModelDao> createdItems = invoiceUtil.getInvoiceItemByInvoiceId(invoice.getId(), context);
+        assertEquals(createdItems.size(), items.size());
+
+        // One audit entry per item, pointing to its record id
+        final Handle handle = dbi.open();
+        try {
+            for (final InvoiceItemModelDao createdItem : createdItems) {
+                final List<Map<String, Object>> audits = handle.select("select change_type from audit_log where table_name = 'INVOICE_ITEMS' and target_record_id = ?", createdItem.getRecordId());
+                assertEquals(audits.size(), 1);
+                assertEquals(audits.get(0).get("change_type"), "INSERT");
+            }
+        } finally {
+            handle.close();
+        }
+    }
+
     @Test(groups = "slow")
     public void testAccountBalance() throws EntityPersistenceException {
         final UUID accountId = account.getId();
@@ -720,6 +795,140 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testAccountBalanceAndCBAMatchInvoiceBalances() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+
+        // Recurring item, partially adjusted and paid
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        final RecurringInvoiceItem recurringItem = new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, UUID.randomUUID(), "test plan", "test phase A", startDate,
+                                                                            startDate.plusMonths(1), TWENTY, TWENTY, Currency.USD);
+        invoiceUtil.createInvoiceItem(recurringItem, context);
+        invoiceUtil.createInvoiceItem(new ItemAdjInvoiceItem(recurringItem, startDate, FIVE.negate(), Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), TEN, Currency.USD, Currency.USD), context);
+
+        // Account credit, on its own invoice
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice2, true, context);
+        invoiceUtil.createInvoiceItem(new CreditAdjInvoiceItem(invoice2.getId(), accountId, startDate, new BigDecimal("-8.00"), Currency.USD), context);
+        invoiceUtil.createInvoiceItem(new CreditBalanceAdjInvoiceItem(invoice2.getId(), accountId, startDate, new BigDecimal("8.00"), Currency.USD), context);
+
+        // External charge, consuming some of the credit
+        final Invoice invoice3 = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice3, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice3.getId(), accountId, bundleId, "external charge", startDate, new BigDecimal("15.00"), Currency.USD), context);
+        invoiceUtil.createInvoiceItem(new CreditBalanceAdjInvoiceItem(invoice3.getId(), accountId, startDate, FIVE.negate(), Currency.USD), context);
+
+        // Recompute both amounts from the invoices, with all their items and payments
+        BigDecimal expectedBalance = BigDecimal.ZERO;
+        BigDecimal expectedCBA = BigDecimal.ZERO;
+        for (final InvoiceModelDao invoice : invoiceDao.getInvoicesByAccount(context)) {
+            expectedBalance = expectedBalance.add(InvoiceModelDaoHelper.getBalance(invoice));
+            expectedCBA = expectedCBA.add(InvoiceModelDaoHelper.getCBAAmount(invoice));
+        }
+        expectedBalance = expectedBalance.subtract(expectedCBA);
+
+        // IB1 = 20 - 5 - 10 = 5, IB2 = -8 + 8 = 0, IB3 = 15 - 5 = 10, CBA = 8 - 5 = 3, AB = 15 - 3 = 12
+        assertEquals(expectedBalance.compareTo(new BigDecimal("12.00")), 0);
+        assertEquals(expectedCBA.compareTo(new BigDecimal("3.00")), 0);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context), expectedBalance);
+        assertEquals(invoiceDao.getAccountCBA(accountId, context), expectedCBA);
+    }
+
+    @Test(groups = "slow")
+    public void testUnpaidInvoiceBalancesMatchUnpaidInvoices() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate today = new LocalDate(2011, 3, 1);
+
+        // Partially paid, invoiced last
+        final Invoice invoice1 = new DefaultInvoice(accountId, today, today, Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice1.getId(), accountId, bundleId, "charge 1", today, TWENTY, Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), FIVE, Currency.USD, Currency.USD), context);
+
+        // Paid in full
+        final Invoice invoice2 = new DefaultInvoice(accountId, today.minusDays(2), today, Currency.USD);
+        invoiceUtil.createInvoice(invoice2, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice2.getId(), accountId, bundleId, "charge 2", today, TEN, Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice2.getId(), new DateTime(), TEN, Currency.USD, Currency.USD), context);
+
+        // Partially paid with credit, invoiced first
+        final Invoice invoice3 = new DefaultInvoice(accountId, today.minusDays(1), today, Currency.USD);
+        invoiceUtil.createInvoice(invoice3, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice3.getId(), accountId, bundleId, "charge 3", today, TEN, Currency.USD), context);
+        invoiceUtil.createInvoiceItem(new CreditBalanceAdjInvoiceItem(invoice3.getId(), accountId, today, FIVE.negate(), Currency.USD), context);
+
+        // Target date in the future
+        final Invoice invoice4 = new DefaultInvoice(accountId, today.minusDays(3), today.plusDays(1), Currency.USD);
+        invoiceUtil.createInvoice(invoice4, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice4.getId(), accountId, bundleId, "charge 4", today, TEN, Currency.USD), context);
+
+        final List<InvoiceModelDao> unpaidInvoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, today, context);
+        assertEquals(unpaidInvoices.size(), 2);
+
+        final List<InvoiceBalanceModelDao> unpaidInvoiceBalances = invoiceDao.getUnpaidInvoiceBalancesByAccountId(accountId, today, context);
+        assertEquals(unpaidInvoiceBalances.size(), 2);
+        assertEquals(unpaidInvoiceBalances.get(0).getInvoiceId(), invoice3.getId());
+        assertEquals(unpaidInvoiceBalances.get(0).getInvoiceDate(), invoice3.getInvoiceDate());
+        assertEquals(unpaidInvoiceBalances.get(0).getBalance().compareTo(new BigDecimal("5.00")), 0);
+        assertEquals(unpaidInvoiceBalances.get(1).getInvoiceId(), invoice1.getId());
+        assertEquals(unpaidInvoiceBalances.get(1).getBalance().compareTo(new BigDecimal("15.00")), 0);
+        for (final InvoiceBalanceModelDao unpaidInvoiceBalance : unpaidInvoiceBalances) {
+            boolean found = false;
+            for (final InvoiceModelDao unpaidInvoice : unpaidInvoices) {
+                if (unpaidInvoice.getId().equals(unpaidInvoiceBalance.getInvoiceId())) {
+                    assertEquals(unpaidInvoiceBalance.getBalance(), InvoiceModelDaoHelper.getBalance(unpaidInvoice));
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testAccountBalanceAndCBAWithSubCentAmounts() throws InvoiceApiException, EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+
+        // Two charges of 10.005, one of them partially paid (5.005)
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice1.getId(), accountId, bundleId, "external charge", startDate, new BigDecimal("10.005"), Currency.USD), context);
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), new BigDecimal("5.005"), Currency.USD, Currency.USD), context);
+
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        invoiceUtil.createInvoice(invoice2, true, context);
+        invoiceUtil.createInvoiceItem(new ExternalChargeInvoiceItem(invoice2.getId(), accountId, bundleId, "external charge", startDate, new BigDecimal("10.005"), Currency.USD), context);
+
+        // Two account credits of 0.004, each on its own invoice
+        for (int i = 0; i < 2; i++) {
+            final Invoice creditInvoice = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+            invoiceUtil.createInvoice(creditInvoice, true, context);
+            invoiceUtil.createInvoiceItem(new CreditAdjInvoiceItem(creditInvoice.getId(), accountId, startDate, new BigDecimal("-0.004"), Currency.USD), context);
+            invoiceUtil.createInvoiceItem(new CreditBalanceAdjInvoiceItem(creditInvoice.getId(), accountId, startDate, new BigDecimal("0.004"), Currency.USD), context);
+        }
+
+        BigDecimal expectedBalance = BigDecimal.ZERO;
+        BigDecimal expectedCBA = BigDecimal.ZERO;
+        for (final InvoiceModelDao invoice : invoiceDao.getInvoicesByAccount(context)) {
+            expectedBalance = expectedBalance.add(InvoiceModelDaoHelper.getBalance(invoice));
+            expectedCBA = expectedCBA.add(InvoiceModelDaoHelper.getCBAAmount(invoice));
+        }
+        expectedBalance = expectedBalance.subtract(expectedCBA);
+
+        // Amounts are rounded per invoice: IB1 = 10.01 - 5.01 = 5.00, IB2 = 10.01, CBA = 0.00 + 0.00, AB = 15.01
+        // (rounding the account totals instead would give 20.00 - 5.01 = 14.99 and a CBA of 0.01)
+        assertEquals(expectedBalance.compareTo(new BigDecimal("15.01")), 0);
+        assertEquals(expectedCBA.compareTo(BigDecimal.ZERO), 0);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(expectedBalance), 0);
+        assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(expectedCBA), 0);
+    }
+
     @Test(groups = "slow")
     public void testAccountBalanceWithSmallRefundAndCBANoAdj() throws InvoiceApiException, EntityPersistenceException {
         final BigDecimal refundAmount = new BigDecimal("7.00");
@@ -20,6 +20,7 @@ package org.killbill.billing.invoice.generator;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -107,7 +108,24 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
     protected void beforeClass() throws Exception {
         super.beforeClass();
         final Clock clock = new DefaultClock();
-        final InvoiceConfig invoiceConfig = new InvoiceConfig() {
+        this.generator = new DefaultInvoiceGenerator(clock, createInvoiceConfig(-1), null);
+        this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
+                                               .firstNameLength(6)
+                                               .email(UUID.randomUUID().toString().substring(1, 8))
+                                               .phone(UUID.randomUUID().toString().substring(1, 8))
+                                               .migrated(false)
+                                               .isNotifiedForInvoices(true)
+                                               .externalKey(UUID.randomUUID().toString().substring(1, 8))
+                                               .billingCycleDayLocal(31)
+                                               .currency(Currency.USD)
+                                               .paymentMethodId(UUID.randomUUID())
+                                               .timeZone(DateTimeZone.UTC)
+                                               .build();
+
+    }
+
+    private InvoiceConfig createInvoiceConfig(final int maxInvoiceHistoryMonths) {
+        return new InvoiceConfig() {
             @Override
             public int getNumberOfMonthsInFuture() {
                 return 36;
@@ -127,21 +145,27 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
             public int getMaxRawUsagePreviousPeriod() {
                 return -1;
             }
-        };
-        this.generator = new DefaultInvoiceGenerator(clock, invoiceConfig, null);
-        this.account = new MockAccountBuilder().name(UUID.randomUUID().toString().substring(1, 8))
-                                               .firstNameLength(6)
-                                               .email(UUID.randomUUID().toString().substring(1, 8))
-                                               .phone(UUID.randomUUID().toString().substring(1, 8))
-                                               .migrated(false)
-                                               .isNotifiedForInvoices(true)
-                                               .externalKey(UUID.randomUUID().toString().substring(1, 8))
-                                               .billingCycleDayLocal(31)
-                                               .currency(Currency.USD)
-                                               .paymentMethodId(UUID.randomUUID())
-                                               .timeZone(DateTimeZone.UTC)
-                                               .build();
 
+            @Override
+            public int getMaxInvoiceHistoryMonths() {
+                return maxInvoiceHistoryMonths;
+            }
+
+            @Override
+            public int getBulkInvoiceRunNbThreads() {
+                return 10;
+            }
+
+            @Override
+            public TimeSpan getBulkInvoiceRunRetention() {
+                return new TimeSpan("1d");
+            }
+
+            @Override
+            public boolean isPreAggregatedUsageEnabled() {
+                return false;
+            }
+        };
     }
 
     @Test(groups = "fast")
@@ -180,6 +204,55 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
         assertEquals(invoice.getInvoiceItems().get(0).getSubscriptionId(), sub.getId());
     }
 
+    @Test(groups = "fast")
+    public void testInvoiceHistoryCutoffMatchesFullReplay() throws InvoiceApiException, CatalogApiException {
+        final int maxInvoiceHistoryMonths = 6;
+        final InvoiceGenerator cutoffGenerator = new DefaultInvoiceGenerator(clock, createInvoiceConfig(maxInvoiceHistoryMonths), null);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        final Plan plan = new MockPlan();
+
+        // Fixed price trial, followed by a monthly evergreen phase
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID bundleId1 = UUID.randomUUID();
+        events.add(createBillingEvent(subscriptionId1, bundleId1, new LocalDate(2011, 1, 15), plan, createMockMonthlyPlanPhase(null, FIVE, PhaseType.TRIAL), 14));
+        events.add(createBillingEvent(subscriptionId1, bundleId1, new LocalDate(2011, 2, 14), plan, createMockMonthlyPlanPhase(TEN, null, PhaseType.EVERGREEN), 14));
+        // Annual subscription
+        events.add(createBillingEvent(UUID.randomUUID(), UUID.randomUUID(), new LocalDate(2011, 3, 3), plan, createMockAnnualPlanPhase(ONE_HUNDRED, PhaseType.EVERGREEN), 3));
+        // Monthly subscription starting after the cutoff date, with a leading pro-ration
+        events.add(createBillingEvent(UUID.randomUUID(), UUID.randomUUID(), new LocalDate(2013, 2, 20), plan, createMockMonthlyPlanPhase(TWENTY, PhaseType.EVERGREEN), 1));
+
+        final LocalDate targetDate = new LocalDate(2013, 6, 20);
+        final LocalDate cutoffDate = InvoiceDateUtils.calculateInvoiceHistoryCutoffDate(targetDate, maxInvoiceHistoryMonths);
+
+        final Invoice fullReplay = generator.generateInvoice(account, events, null, targetDate, Currency.USD, internalCallContext);
+        final Invoice cutoffReplay = cutoffGenerator.generateInvoice(account, events, null, targetDate, Currency.USD, internalCallContext);
+        assertNotNull(fullReplay);
+        assertNotNull(cutoffReplay);
+
+        // The cut-off replay should yield exactly the items of the full replay within the invoice history
+        final List<String> expectedItems = new ArrayList<String>();
+        for (final InvoiceItem item : fullReplay.getInvoiceItems()) {
+            if (InvoiceDateUtils.isWithinInvoiceHistory(item.getStartDate(), item.getEndDate(), cutoffDate)) {
+                expectedItems.add(describeItem(item));
+            }
+        }
+        final List<String> actualItems = new ArrayList<String>();
+        for (final InvoiceItem item : cutoffReplay.getInvoiceItems()) {
+            actualItems.add(describeItem(item));
+        }
+
+        Collections.sort(expectedItems);
+        Collections.sort(actualItems);
+
+        assertTrue(expectedItems.size() < fullReplay.getNumberOfItems());
+        assertEquals(actualItems, expectedItems);
+    }
+
+    private String describeItem(final InvoiceItem item) {
+        return item.getInvoiceItemType() + "/" + item.getSubscriptionId() + "/" + item.getStartDate() + "/" + item.getEndDate() + "/" + item.getAmount();
+    }
+
     private SubscriptionBase createSubscription() {
         return createSubscription(UUID.randomUUID(), UUID.randomUUID());
     }
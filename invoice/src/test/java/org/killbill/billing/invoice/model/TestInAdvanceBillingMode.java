@@ -17,6 +17,7 @@
 package org.killbill.billing.invoice.model;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 
@@ -28,6 +29,7 @@ import org.testng.annotations.Test;
 
 import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.generator.InvoiceDateUtils;
 
 public class TestInAdvanceBillingMode extends InvoiceTestSuiteNoDB {
 
@@ -145,6 +147,22 @@ public class TestInAdvanceBillingMode extends InvoiceTestSuiteNoDB {
         verifyInvoiceItems(startDate, endDate, targetDate, TIMEZONE, billingCycleDayLocal, BILLING_PERIOD, expectedDates);
     }
 
+    @Test(groups = "fast")
+    public void testCutoffDateMatchesFullReplay() throws Exception {
+        final LocalDate startDate = new LocalDate(2011, 1, 17);
+        final LocalDate targetDate = new LocalDate(2014, 3, 20);
+        for (final BillingPeriod billingPeriod : new BillingPeriod[]{BillingPeriod.MONTHLY, BillingPeriod.QUARTERLY, BillingPeriod.ANNUAL}) {
+            for (final int billingCycleDayLocal : new int[]{1, 17, 31}) {
+                for (final LocalDate endDate : new LocalDate[]{null, new LocalDate(2013, 8, 5), new LocalDate(2011, 1, 25)}) {
+                    // Walk the cutoff date across the whole history, including the period boundaries
+                    for (LocalDate cutoffDate = startDate.minusDays(1); cutoffDate.isBefore(targetDate); cutoffDate = cutoffDate.plusDays(4)) {
+                        verifyCutoffDate(startDate, endDate, targetDate, billingCycleDayLocal, billingPeriod, cutoffDate);
+                    }
+                }
+            }
+        }
+    }
+
     private void verifyInvoiceItems(final LocalDate startDate, final LocalDate endDate, final LocalDate targetDate,
                                     final DateTimeZone dateTimeZone, final int billingCycleDayLocal, final BillingPeriod billingPeriod,
                                     final LinkedHashMap<LocalDate, LocalDate> expectedDates) throws InvalidDateSequenceException {
@@ -161,4 +179,25 @@ public class TestInAdvanceBillingMode extends InvoiceTestSuiteNoDB {
         }
         Assert.assertEquals(invoiceItems.size(), i);
     }
+
+    private void verifyCutoffDate(final LocalDate startDate, final LocalDate endDate, final LocalDate targetDate,
+                                  final int billingCycleDayLocal, final BillingPeriod billingPeriod, final LocalDate cutoffDate) throws InvalidDateSequenceException {
+        final InAdvanceBillingMode billingMode = new InAdvanceBillingMode();
+
+        final List<RecurringInvoiceItemData> expectedItems = new ArrayList<RecurringInvoiceItemData>();
+        for (final RecurringInvoiceItemData itemData : billingMode.generateInvoiceItemData(startDate, endDate, targetDate, billingCycleDayLocal, billingPeriod)) {
+            if (InvoiceDateUtils.isWithinInvoiceHistory(itemData.getStartDate(), itemData.getEndDate(), cutoffDate)) {
+                expectedItems.add(itemData);
+            }
+        }
+
+        final List<RecurringInvoiceItemData> invoiceItems = billingMode.generateInvoiceItemData(startDate, endDate, targetDate, billingCycleDayLocal, billingPeriod, cutoffDate);
+
+        Assert.assertEquals(invoiceItems.size(), expectedItems.size(), "cutoffDate=" + cutoffDate);
+        for (int i = 0; i < invoiceItems.size(); i++) {
+            Assert.assertEquals(invoiceItems.get(i).getStartDate(), expectedItems.get(i).getStartDate(), "cutoffDate=" + cutoffDate);
+            Assert.assertEquals(invoiceItems.get(i).getEndDate(), expectedItems.get(i).getEndDate(), "cutoffDate=" + cutoffDate);
+            Assert.assertEquals(invoiceItems.get(i).getNumberOfCycles().compareTo(expectedItems.get(i).getNumberOfCycles()), 0, "cutoffDate=" + cutoffDate);
+        }
+    }
 }
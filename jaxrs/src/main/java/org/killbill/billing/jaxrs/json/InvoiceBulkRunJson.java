@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.api.InvoiceBulkRun;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.wordnik.swagger.annotations.ApiModelProperty;
+
+public class InvoiceBulkRunJson {
+
+    @ApiModelProperty(dataType = "java.util.UUID")
+    private final String runId;
+    private final LocalDate targetDate;
+    private final DateTime startDate;
+    private final DateTime endDate;
+    private final Boolean isCompleted;
+    private final Integer nbAccounts;
+    private final Integer nbProcessedAccounts;
+    private final Integer nbInvoices;
+    private final Integer nbFailures;
+    private final Double throughput;
+
+    @JsonCreator
+    public InvoiceBulkRunJson(@JsonProperty("runId") final String runId,
+                              @JsonProperty("targetDate") final LocalDate targetDate,
+                              @JsonProperty("startDate") final DateTime startDate,
+                              @JsonProperty("endDate") final DateTime endDate,
+                              @JsonProperty("isCompleted") final Boolean isCompleted,
+                              @JsonProperty("nbAccounts") final Integer nbAccounts,
+                              @JsonProperty("nbProcessedAccounts") final Integer nbProcessedAccounts,
+                              @JsonProperty("nbInvoices") final Integer nbInvoices,
+                              @JsonProperty("nbFailures") final Integer nbFailures,
+                              @JsonProperty("throughput") final Double throughput) {
+        this.runId = runId;
+        this.targetDate = targetDate;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.isCompleted = isCompleted;
+        this.nbAccounts = nbAccounts;
+        this.nbProcessedAccounts = nbProcessedAccounts;
+        this.nbInvoices = nbInvoices;
+        this.nbFailures = nbFailures;
+        this.throughput = throughput;
+    }
+
+    public InvoiceBulkRunJson(final InvoiceBulkRun run) {
+        this(run.getId().toString(), run.getTargetDate(), run.getStartDate(), run.getEndDate(), run.isCompleted(), run.getNbAccounts(),
+             run.getNbProcessedAccounts(), run.getNbInvoices(), run.getNbFailures(), run.getThroughput());
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public LocalDate getTargetDate() {
+        return targetDate;
+    }
+
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    @JsonProperty("isCompleted")
+    public Boolean isCompleted() {
+        return isCompleted;
+    }
+
+    public Integer getNbAccounts() {
+        return nbAccounts;
+    }
+
+    public Integer getNbProcessedAccounts() {
+        return nbProcessedAccounts;
+    }
+
+    public Integer getNbInvoices() {
+        return nbInvoices;
+    }
+
+    public Integer getNbFailures() {
+        return nbFailures;
+    }
+
+    public Double getThroughput() {
+        return throughput;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoiceBulkRunJson{");
+        sb.append("runId='").append(runId).append('\'');
+        sb.append(", targetDate=").append(targetDate);
+        sb.append(", isCompleted=").append(isCompleted);
+        sb.append(", nbAccounts=").append(nbAccounts);
+        sb.append(", nbProcessedAccounts=").append(nbProcessedAccounts);
+        sb.append(", nbInvoices=").append(nbInvoices);
+        sb.append(", nbFailures=").append(nbFailures);
+        sb.append('}');
+        return sb.toString();
+    }
+}
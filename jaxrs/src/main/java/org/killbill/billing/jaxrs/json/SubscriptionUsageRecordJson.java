@@ -38,12 +38,16 @@ public class SubscriptionUsageRecordJson {
     private final String subscriptionId;
     @ApiModelProperty(required = true)
     private final List<UnitUsageRecordJson> unitUsageRecords;
+    // Optional idempotency key: submissions retried with the same tracking id are only recorded once per subscription
+    private final String trackingId;
 
     @JsonCreator
     public SubscriptionUsageRecordJson(@JsonProperty("subscriptionId") final String subscriptionId,
-                                       @JsonProperty("unitUsageRecords") final List<UnitUsageRecordJson> unitUsageRecords) {
+                                       @JsonProperty("unitUsageRecords") final List<UnitUsageRecordJson> unitUsageRecords,
+                                       @JsonProperty("trackingId") final String trackingId) {
         this.subscriptionId = subscriptionId;
         this.unitUsageRecords = unitUsageRecords;
+        this.trackingId = trackingId;
     }
 
     public String getSubscriptionId() {
@@ -54,6 +58,10 @@ public class SubscriptionUsageRecordJson {
         return unitUsageRecords;
     }
 
+    public String getTrackingId() {
+        return trackingId;
+    }
+
     public static class UnitUsageRecordJson {
 
         private final String unitType;
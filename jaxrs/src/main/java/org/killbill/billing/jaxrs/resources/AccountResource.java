@@ -49,6 +49,7 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
+import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.MutableAccountData;
 import org.killbill.billing.catalog.api.Currency;
@@ -129,6 +130,7 @@ public class AccountResource extends JaxRsResourceBase {
     private final InvoiceUserApi invoiceApi;
     private final InvoicePaymentApi invoicePaymentApi;
     private final OverdueInternalApi overdueApi;
+    private final AccountInternalApi accountInternalApi;
     private final PaymentConfig paymentConfig;
 
     @Inject
@@ -142,6 +144,7 @@ public class AccountResource extends JaxRsResourceBase {
                            final CustomFieldUserApi customFieldUserApi,
                            final SubscriptionApi subscriptionApi,
                            final OverdueInternalApi overdueApi,
+                           final AccountInternalApi accountInternalApi,
                            final Clock clock,
                            final PaymentConfig paymentConfig,
                            final Context context) {
@@ -150,6 +153,7 @@ public class AccountResource extends JaxRsResourceBase {
         this.invoiceApi = invoiceApi;
         this.invoicePaymentApi = invoicePaymentApi;
         this.overdueApi = overdueApi;
+        this.accountInternalApi = accountInternalApi;
         this.paymentConfig = paymentConfig;
     }
 
@@ -180,15 +184,28 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
-                                                                                                                                                           QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Pagination<Account> accounts;
+        final URI nextPageUri;
+        if (continuationToken == null) {
+            accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
+                                                                                                                                                    QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
+                                                                                                                                                    QUERY_AUDIT, auditMode.getLevel().toString()));
+        } else {
+            final Long pageLimit = toKeysetPaginationLimit(limit);
+            accounts = accountInternalApi.getAccountsFromRecordId(decodeContinuationToken(continuationToken), pageLimit, withCount, tenantContext);
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(AccountResource.class, "getAccounts", encodeContinuationToken(accounts.getNextOffset()), pageLimit, ImmutableMap.<String, String>of(QUERY_SEARCH_WITH_COUNT, withCount.toString(),
+                                                                                                                                                                                                  QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
+                                                                                                                                                                                                  QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
+                                                                                                                                                                                                  QUERY_AUDIT, auditMode.getLevel().toString()));
+        }
         return buildStreamingPaginationResponse(accounts,
                                                 new Function<Account, AccountJson>() {
                                                     @Override
@@ -210,16 +227,30 @@ public class AccountResource extends JaxRsResourceBase {
     public Response searchAccounts(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                   @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Account> accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "searchAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
-                                                                                                                                                              QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
-                                                                                                                                                              QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
-                                                                                                                                                              QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Pagination<Account> accounts;
+        final URI nextPageUri;
+        if (continuationToken == null) {
+            accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(AccountResource.class, "searchAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
+                                                                                                                                                       QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
+                                                                                                                                                       QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
+                                                                                                                                                       QUERY_AUDIT, auditMode.getLevel().toString()));
+        } else {
+            final Long pageLimit = toKeysetPaginationLimit(limit);
+            accounts = accountInternalApi.searchAccountsFromRecordId(searchKey, decodeContinuationToken(continuationToken), pageLimit, withCount, tenantContext);
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(AccountResource.class, "searchAccounts", encodeContinuationToken(accounts.getNextOffset()), pageLimit, ImmutableMap.<String, String>of("searchKey", searchKey,
+                                                                                                                                                                                                     QUERY_SEARCH_WITH_COUNT, withCount.toString(),
+                                                                                                                                                                                                     QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
+                                                                                                                                                                                                     QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
+                                                                                                                                                                                                     QUERY_AUDIT, auditMode.getLevel().toString()));
+        }
         return buildStreamingPaginationResponse(accounts,
                                                 new Function<Account, AccountJson>() {
                                                     @Override
@@ -22,6 +22,7 @@ import java.util.UUID;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -30,6 +31,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.jaxrs.json.AdminPaymentJson;
 import org.killbill.billing.jaxrs.util.Context;
@@ -43,8 +45,12 @@ import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
+import org.killbill.billing.util.api.RecordIdApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.log.ScopedDebugLogging;
 import org.killbill.clock.Clock;
 
 import com.google.common.base.Predicate;
@@ -64,11 +70,15 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class AdminResource extends JaxRsResourceBase {
 
     private final AdminPaymentApi adminPaymentApi;
+    private final RecordIdApi recordIdApi;
+    private final ScopedDebugLogging scopedDebugLogging;
 
     @Inject
-    public AdminResource(final JaxrsUriBuilder uriBuilder, final TagUserApi tagUserApi, final CustomFieldUserApi customFieldUserApi, final AuditUserApi auditUserApi, final AccountUserApi accountUserApi, final PaymentApi paymentApi, final AdminPaymentApi adminPaymentApi, final Clock clock, final Context context) {
+    public AdminResource(final JaxrsUriBuilder uriBuilder, final TagUserApi tagUserApi, final CustomFieldUserApi customFieldUserApi, final AuditUserApi auditUserApi, final AccountUserApi accountUserApi, final PaymentApi paymentApi, final AdminPaymentApi adminPaymentApi, final RecordIdApi recordIdApi, final ScopedDebugLogging scopedDebugLogging, final Clock clock, final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
         this.adminPaymentApi = adminPaymentApi;
+        this.recordIdApi = recordIdApi;
+        this.scopedDebugLogging = scopedDebugLogging;
     }
 
 
@@ -104,4 +114,55 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.OK).build();
     }
 
+    @PUT
+    @Path("/debug/tenant")
+    @ApiOperation(value = "Turn DEBUG logging on while the current tenant is being processed (not persisted, local to this node)")
+    public Response enableDebugForTenant(@javax.ws.rs.core.Context final HttpServletRequest request) {
+        scopedDebugLogging.enableForTenant(getTenantRecordId(context.createContext(request)));
+        return Response.status(Status.OK).build();
+    }
+
+    @DELETE
+    @Path("/debug/tenant")
+    @ApiOperation(value = "Turn DEBUG logging off for the current tenant")
+    public Response disableDebugForTenant(@javax.ws.rs.core.Context final HttpServletRequest request) {
+        scopedDebugLogging.disableForTenant(getTenantRecordId(context.createContext(request)));
+        return Response.status(Status.OK).build();
+    }
+
+    @PUT
+    @Path("/debug/accounts/{accountId:" + UUID_PATTERN + "}")
+    @ApiOperation(value = "Turn DEBUG logging on while the account is being processed (not persisted, local to this node)")
+    @ApiResponses(value = {@ApiResponse(code = 404, message = "Account not found")})
+    public Response enableDebugForAccount(@PathParam("accountId") final String accountIdStr,
+                                          @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Long accountRecordId = recordIdApi.getRecordId(UUID.fromString(accountIdStr), ObjectType.ACCOUNT, context.createContext(request));
+        if (accountRecordId == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        scopedDebugLogging.enableForAccount(accountRecordId);
+        return Response.status(Status.OK).build();
+    }
+
+    @DELETE
+    @Path("/debug/accounts/{accountId:" + UUID_PATTERN + "}")
+    @ApiOperation(value = "Turn DEBUG logging off for the account")
+    @ApiResponses(value = {@ApiResponse(code = 404, message = "Account not found")})
+    public Response disableDebugForAccount(@PathParam("accountId") final String accountIdStr,
+                                           @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Long accountRecordId = recordIdApi.getRecordId(UUID.fromString(accountIdStr), ObjectType.ACCOUNT, context.createContext(request));
+        if (accountRecordId == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        scopedDebugLogging.disableForAccount(accountRecordId);
+        return Response.status(Status.OK).build();
+    }
+
+    private Long getTenantRecordId(final TenantContext tenantContext) {
+        // Multi-tenancy may not have been configured (see InternalCallContextFactory)
+        if (tenantContext.getTenantId() == null) {
+            return InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID;
+        }
+        return recordIdApi.getRecordId(tenantContext.getTenantId(), ObjectType.TENANT, tenantContext);
+    }
 }
@@ -71,11 +71,14 @@ import org.killbill.billing.entitlement.api.SubscriptionEventType;
 import org.killbill.billing.invoice.api.DryRunArguments;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceBulkRun;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceNotifier;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
+import org.killbill.billing.jaxrs.json.InvoiceBulkRunJson;
 import org.killbill.billing.jaxrs.json.InvoiceDryRunJson;
 import org.killbill.billing.jaxrs.json.InvoiceItemJson;
 import org.killbill.billing.jaxrs.json.InvoiceJson;
@@ -132,6 +135,7 @@ public class InvoiceResource extends JaxRsResourceBase {
     private static final String LOCALE_PARAM_NAME = "locale";
 
     private final InvoiceUserApi invoiceApi;
+    private final InvoiceInternalApi invoiceInternalApi;
     private final InvoiceNotifier invoiceNotifier;
     private final TenantUserApi tenantApi;
     private final Locale defaultLocale;
@@ -139,6 +143,7 @@ public class InvoiceResource extends JaxRsResourceBase {
     @Inject
     public InvoiceResource(final AccountUserApi accountUserApi,
                            final InvoiceUserApi invoiceApi,
+                           final InvoiceInternalApi invoiceInternalApi,
                            final PaymentApi paymentApi,
                            final InvoiceNotifier invoiceNotifier,
                            final Clock clock,
@@ -150,6 +155,7 @@ public class InvoiceResource extends JaxRsResourceBase {
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
         this.invoiceApi = invoiceApi;
+        this.invoiceInternalApi = invoiceInternalApi;
         this.invoiceNotifier = invoiceNotifier;
         this.tenantApi = tenantApi;
         this.defaultLocale = Locale.getDefault();
@@ -219,13 +225,25 @@ public class InvoiceResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getInvoices(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                 @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Pagination<Invoice> invoices;
+        final URI nextPageUri;
+        if (continuationToken == null) {
+            invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                    QUERY_AUDIT, auditMode.getLevel().toString()));
+        } else {
+            final Long pageLimit = toKeysetPaginationLimit(limit);
+            invoices = invoiceInternalApi.getInvoicesFromRecordId(decodeContinuationToken(continuationToken), pageLimit, withCount, tenantContext);
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(InvoiceResource.class, "getInvoices", encodeContinuationToken(invoices.getNextOffset()), pageLimit, ImmutableMap.<String, String>of(QUERY_SEARCH_WITH_COUNT, withCount.toString(),
+                                                                                                                                                                                                  QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                                                                  QUERY_AUDIT, auditMode.getLevel().toString()));
+        }
 
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
         return buildStreamingPaginationResponse(invoices,
@@ -252,14 +270,27 @@ public class InvoiceResource extends JaxRsResourceBase {
     public Response searchInvoices(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                   @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                    @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
         final TenantContext tenantContext = context.createContext(request);
-        final Pagination<Invoice> invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
-                                                                                                                                                              QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
-                                                                                                                                                              QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Pagination<Invoice> invoices;
+        final URI nextPageUri;
+        if (continuationToken == null) {
+            invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
+                                                                                                                                                       QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                       QUERY_AUDIT, auditMode.getLevel().toString()));
+        } else {
+            final Long pageLimit = toKeysetPaginationLimit(limit);
+            invoices = invoiceInternalApi.searchInvoicesFromRecordId(searchKey, decodeContinuationToken(continuationToken), pageLimit, withCount, tenantContext);
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(InvoiceResource.class, "searchInvoices", encodeContinuationToken(invoices.getNextOffset()), pageLimit, ImmutableMap.<String, String>of("searchKey", searchKey,
+                                                                                                                                                                                                     QUERY_SEARCH_WITH_COUNT, withCount.toString(),
+                                                                                                                                                                                                     QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                                                                     QUERY_AUDIT, auditMode.getLevel().toString()));
+        }
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
         return buildStreamingPaginationResponse(invoices,
                                                 new Function<Invoice, InvoiceJson>() {
@@ -305,6 +336,42 @@ public class InvoiceResource extends JaxRsResourceBase {
     }
 
 
+    @Timed
+    @POST
+    @Path("/" + BULK)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Trigger an invoice run for all the accounts due for a target date", response = InvoiceBulkRunJson.class)
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid target date supplied")})
+    public Response triggerBulkInvoiceRun(@QueryParam(QUERY_TARGET_DATE) final String targetDate,
+                                          @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                          @HeaderParam(HDR_REASON) final String reason,
+                                          @HeaderParam(HDR_COMMENT) final String comment,
+                                          @javax.ws.rs.core.Context final HttpServletRequest request,
+                                          @javax.ws.rs.core.Context final UriInfo uriInfo) throws InvoiceApiException {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+        final LocalDate inputDate = toLocalDate((Account) null, targetDate, callContext);
+
+        final InvoiceBulkRun run = invoiceInternalApi.triggerBulkInvoiceRun(inputDate, callContext);
+        return uriBuilder.buildResponse(uriInfo, InvoiceResource.class, "getBulkInvoiceRun", run.getId());
+    }
+
+    @Timed
+    @GET
+    @Path("/" + BULK + "/{runId:" + UUID_PATTERN + "}/")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Retrieve the progress of an invoice run", response = InvoiceBulkRunJson.class)
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid run id supplied"),
+                           @ApiResponse(code = 404, message = "Invoice run not found")})
+    public Response getBulkInvoiceRun(@PathParam("runId") final String runId,
+                                      @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createContext(request);
+        final InvoiceBulkRun run = invoiceInternalApi.getBulkInvoiceRun(UUID.fromString(runId), tenantContext);
+        if (run == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        return Response.status(Status.OK).entity(new InvoiceBulkRunJson(run)).build();
+    }
+
     @Timed
     @POST
     @Path("/" + DRY_RUN)
@@ -78,8 +78,10 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
@@ -88,6 +90,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
@@ -96,6 +99,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.io.BaseEncoding;
 
 public abstract class JaxRsResourceBase implements JaxrsResource {
 
@@ -274,6 +278,17 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
             }
         };
 
+        if (DefaultPagination.isKeyset(entities)) {
+            // Offsets are record ids in that case: only expose the opaque token
+            return Response.status(Status.OK)
+                           .entity(json)
+                           .header(HDR_PAGINATION_NEXT_CONTINUATION_TOKEN, encodeContinuationToken(entities.getNextOffset()))
+                           .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
+                           .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
+                           .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                           .build();
+        }
+
         return Response.status(Status.OK)
                        .entity(json)
                        .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
@@ -284,6 +299,32 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                        .build();
     }
 
+    // Continuation tokens are opaque to clients, they currently wrap the record id to start from
+    protected String encodeContinuationToken(@Nullable final Long recordId) {
+        if (recordId == null) {
+            return null;
+        }
+        return BaseEncoding.base64Url().omitPadding().encode(recordId.toString().getBytes(Charsets.UTF_8));
+    }
+
+    protected Long decodeContinuationToken(final String continuationToken) {
+        if (continuationToken.isEmpty()) {
+            return 0L;
+        }
+
+        try {
+            return Long.valueOf(new String(BaseEncoding.base64Url().omitPadding().decode(continuationToken), Charsets.UTF_8));
+        } catch (final IllegalArgumentException e) {
+            // Includes NumberFormatException
+            throw new IllegalArgumentException("Invalid continuationToken " + continuationToken, e);
+        }
+    }
+
+    // Keyset pages are bounded: non positive limits are rejected (400) and large ones are capped
+    protected Long toKeysetPaginationLimit(final Long limit) {
+        return DefaultPaginationSqlDaoHelper.checkKeysetPaginationLimit(limit);
+    }
+
     protected void validatePaymentMethodForAccount(final UUID accountId, final UUID paymentMethodId, final CallContext callContext) throws PaymentApiException {
         verifyNonNull(paymentMethodId, "paymentMethodId should be specified");
 
@@ -49,6 +49,7 @@ public interface JaxrsResource {
     public static String HDR_PAGINATION_TOTAL_NB_RECORDS = "X-Killbill-Pagination-TotalNbRecords";
     public static String HDR_PAGINATION_MAX_NB_RECORDS = "X-Killbill-Pagination-MaxNbRecords";
     public static String HDR_PAGINATION_NEXT_PAGE_URI = "X-Killbill-Pagination-NextPageUri";
+    public static String HDR_PAGINATION_NEXT_CONTINUATION_TOKEN = "X-Killbill-Pagination-NextContinuationToken";
 
     /*
      * Patterns
@@ -72,6 +73,9 @@ public interface JaxrsResource {
     public static final String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     public static final String QUERY_SEARCH_OFFSET = "offset";
     public static final String QUERY_SEARCH_LIMIT = "limit";
+    // Keyset pagination (an empty token requests the first page) instead of offset pagination
+    public static final String QUERY_SEARCH_CONTINUATION_TOKEN = "continuationToken";
+    public static final String QUERY_SEARCH_WITH_COUNT = "withCount";
 
     public static final String QUERY_ACCOUNT_WITH_BALANCE = "accountWithBalance";
     public static final String QUERY_ACCOUNT_WITH_BALANCE_AND_CBA = "accountWithBalanceAndCBA";
@@ -193,6 +197,10 @@ public interface JaxrsResource {
     public static final String USAGES = "usages";
     public static final String USAGES_PATH = PREFIX + "/" + USAGES;
 
+    public static final String BULK = "bulk";
+    // Newline-delimited JSON, used for streamed bulk uploads
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     public static final String EXPORT = "export";
     public static final String EXPORT_PATH = PREFIX + "/" + EXPORT;
 
@@ -157,6 +157,8 @@ public class PaymentResource extends JaxRsResourceBase {
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createContext(request);
 
+        // No continuation token here (see AccountResource#getAccounts): offsets span the payments of all the plugins, one
+        // after the other, and, with plugin info, come from the plugins themselves, whose API only supports offsets
         final Pagination<Payment> payments;
         if (Strings.isNullOrEmpty(pluginName)) {
             payments = paymentApi.getPayments(offset, limit, withPluginInfo, pluginProperties, tenantContext);
@@ -201,7 +203,7 @@ public class PaymentResource extends JaxRsResourceBase {
         final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
         final TenantContext tenantContext = context.createContext(request);
 
-        // Search the plugin(s)
+        // Search the plugin(s): their API only supports offsets, hence no continuation token here
         final Pagination<Payment> payments;
         if (Strings.isNullOrEmpty(pluginName)) {
             payments = paymentApi.searchPayments(searchKey, offset, limit, withPluginInfo, pluginProperties, tenantContext);
@@ -16,6 +16,8 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,6 +47,7 @@ import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
 import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UsageUserApi;
@@ -56,6 +59,7 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.clock.Clock;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Singleton;
@@ -72,6 +76,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class UsageResource extends JaxRsResourceBase {
 
     private final UsageUserApi usageUserApi;
+    private final InternalUserApi usageInternalUserApi;
     private final EntitlementApi entitlementApi;
 
     @Inject
@@ -81,12 +86,14 @@ public class UsageResource extends JaxRsResourceBase {
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
                          final UsageUserApi usageUserApi,
+                         final InternalUserApi usageInternalUserApi,
                          final PaymentApi paymentApi,
                          final EntitlementApi entitlementApi,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
         this.usageUserApi = usageUserApi;
+        this.usageInternalUserApi = usageInternalUserApi;
         this.entitlementApi = entitlementApi;
     }
 
@@ -95,28 +102,67 @@ public class UsageResource extends JaxRsResourceBase {
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
     @ApiOperation(value = "Record usage for a subscription")
-    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid subscription (e.g. inactive)")})
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid subscription (e.g. inactive) or tracking id")})
     public Response recordUsage(final SubscriptionUsageRecordJson json,
                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
                                 @HeaderParam(HDR_REASON) final String reason,
                                 @HeaderParam(HDR_COMMENT) final String comment,
                                 @javax.ws.rs.core.Context final HttpServletRequest request,
                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException, AccountApiException {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+        if (!recordUsage(json, callContext)) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        return Response.status(Status.CREATED).build();
+    }
+
+    @Timed
+    @POST
+    @Path("/" + BULK)
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Record usage for multiple subscriptions, streamed as newline-delimited SubscriptionUsageRecordJson objects")
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid subscription (e.g. inactive) or tracking id, records preceding it have been recorded")})
+    public Response recordUsages(final InputStream records,
+                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                 @HeaderParam(HDR_REASON) final String reason,
+                                 @HeaderParam(HDR_COMMENT) final String comment,
+                                 @javax.ws.rs.core.Context final HttpServletRequest request,
+                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException, AccountApiException, IOException {
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+
+        // Records are parsed and persisted one at a time, the payload is never fully loaded in memory
+        final MappingIterator<SubscriptionUsageRecordJson> iterator = mapper.reader(SubscriptionUsageRecordJson.class).readValues(records);
+        try {
+            while (iterator.hasNextValue()) {
+                if (!recordUsage(iterator.nextValue(), callContext)) {
+                    return Response.status(Status.BAD_REQUEST).build();
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        return Response.status(Status.CREATED).build();
+    }
+
+    private boolean recordUsage(final SubscriptionUsageRecordJson json, final CallContext callContext) throws EntitlementApiException {
         verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
         verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
                              json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
         Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty());
+        Preconditions.checkArgument(json.getTrackingId() == null || json.getTrackingId().length() <= InternalUserApi.MAX_TRACKING_ID_LENGTH,
+                                    "SubscriptionUsageRecordJson trackingId should be at most %s characters", InternalUserApi.MAX_TRACKING_ID_LENGTH);
 
-        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
         // Verify subscription exists..
         final Entitlement entitlement = entitlementApi.getEntitlementForId(UUID.fromString(json.getSubscriptionId()), callContext);
         if (entitlement.getState() != EntitlementState.ACTIVE) {
-            return Response.status(Status.BAD_REQUEST).build();
+            return false;
         }
 
         final SubscriptionUsageRecord record = json.toSubscriptionUsageRecord();
-        usageUserApi.recordRolledUpUsage(record, callContext);
-        return Response.status(Status.CREATED).build();
+        // Retries of an already recorded submission are acknowledged as well
+        usageInternalUserApi.recordRolledUpUsage(record, json.getTrackingId(), callContext);
+        return true;
     }
 
     @Timed
@@ -53,6 +53,20 @@ public class JaxrsUriBuilder {
         return uriBuilder.build();
     }
 
+    public URI nextPageFromContinuationToken(final Class<? extends JaxrsResource> theClass, final String getMethodName, final String nextContinuationToken, final Long limit, final Map<String, String> params) {
+        if (nextContinuationToken == null || limit == null) {
+            // End of pagination
+            return null;
+        }
+
+        final UriBuilder uriBuilder = getUriBuilder(theClass, getMethodName).queryParam(JaxRsResourceBase.QUERY_SEARCH_CONTINUATION_TOKEN, nextContinuationToken)
+                                                                            .queryParam(JaxRsResourceBase.QUERY_SEARCH_LIMIT, limit);
+        for (final String key : params.keySet()) {
+            uriBuilder.queryParam(key, params.get(key));
+        }
+        return uriBuilder.build();
+    }
+
     public Response buildResponse(final Class<? extends JaxrsResource> theClass, final String getMethodName, final Object objectId, final String baseUri) {
 
         // Let's build a n absolute location for cross resources
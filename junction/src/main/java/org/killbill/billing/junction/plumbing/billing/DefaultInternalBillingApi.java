@@ -16,7 +16,10 @@
 
 package org.killbill.billing.junction.plumbing.billing;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.UUID;
 
@@ -51,6 +54,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 
 public class DefaultInternalBillingApi implements BillingInternalApi {
@@ -106,12 +110,16 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             log.warn("Failed while getting BillingEvent", e);
         }
 
-        // Pretty-print the events, before and after the blocking calculator does its magic
-        final StringBuilder logStringBuilder = new StringBuilder("Computed billing events for accountId ").append(accountId);
-        eventsToString(logStringBuilder, result, "\nBilling Events Raw");
-        blockCalculator.insertBlockingEvents(result, context);
-        eventsToString(logStringBuilder, result, "\nBilling Events After Blocking");
-        log.info(logStringBuilder.toString());
+        // Pretty-print the events, before and after the blocking calculator does its magic (only when needed, this can be large)
+        if (log.isDebugEnabled()) {
+            final StringBuilder logStringBuilder = new StringBuilder("Computed billing events for accountId ").append(accountId);
+            eventsToString(logStringBuilder, result, "\nBilling Events Raw");
+            blockCalculator.insertBlockingEvents(result, context);
+            eventsToString(logStringBuilder, result, "\nBilling Events After Blocking");
+            log.debug(logStringBuilder.toString());
+        } else {
+            blockCalculator.insertBlockingEvents(result, context);
+        }
 
         return result;
     }
@@ -140,17 +148,24 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
 
         }
 
+        // Fetch the subscriptions (and their events) and the bundle tags for the whole account at once, instead of once per bundle
+        final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount = subscriptionApi.getSubscriptionsForAccount(context);
+        final Set<UUID> bundleIdsWithAutoInvoiceOff = getBundleIdsWithAutoInvoiceOff(account.getId(), context);
+
         for (final SubscriptionBaseBundle bundle : bundles) {
-            final DryRunArguments dryRunArgumentsForBundle = (dryRunArguments != null &&
-                                                             dryRunArguments.getBundleId() != null &&
-                                                             dryRunArguments.getBundleId().equals(bundle.getId())) ?
-                                                             dryRunArguments : null;
-            final List<SubscriptionBase> subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArgumentsForBundle, context);
+            final List<SubscriptionBase> subscriptions;
+            if (dryRunArguments != null &&
+                dryRunArguments.getBundleId() != null &&
+                dryRunArguments.getBundleId().equals(bundle.getId())) {
+                subscriptions = subscriptionApi.getSubscriptionsForBundle(bundle.getId(), dryRunArguments, context);
+            } else if (subscriptionsForAccount.get(bundle.getId()) != null) {
+                subscriptions = subscriptionsForAccount.get(bundle.getId());
+            } else {
+                subscriptions = ImmutableList.<SubscriptionBase>of();
+            }
 
             //Check if billing is off for the bundle
-            final List<Tag> bundleTags = tagApi.getTags(bundle.getId(), ObjectType.BUNDLE, context);
-            boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags);
-            if (found_AUTO_INVOICING_OFF) {
+            if (bundleIdsWithAutoInvoiceOff.contains(bundle.getId())) {
                 for (final SubscriptionBase subscription : subscriptions) { // billing is off so list sub ids in set to be excluded
                     result.getSubscriptionIdsWithAutoInvoiceOff().add(subscription.getId());
                 }
@@ -160,6 +175,16 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         }
     }
 
+    private Set<UUID> getBundleIdsWithAutoInvoiceOff(final UUID accountId, final InternalCallContext context) {
+        final Set<UUID> bundleIdsWithAutoInvoiceOff = new HashSet<UUID>();
+        for (final Tag tag : tagApi.getTagsForAccountType(accountId, ObjectType.BUNDLE, context)) {
+            if (ControlTagType.AUTO_INVOICING_OFF.getId().equals(tag.getTagDefinitionId())) {
+                bundleIdsWithAutoInvoiceOff.add(tag.getObjectId());
+            }
+        }
+        return bundleIdsWithAutoInvoiceOff;
+    }
+
     private void addBillingEventsForSubscription(final List<SubscriptionBase> subscriptions, final UUID bundleId, final Account account,
                                                  final boolean dryRunMode,
                                                  final InternalCallContext context,
@@ -17,10 +17,6 @@
 package org.killbill.billing.overdue.calculator;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.SortedSet;
 import java.util.UUID;
 
 import org.joda.time.DateTimeZone;
@@ -31,74 +27,58 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.account.api.Account;
-import org.killbill.billing.invoice.api.Invoice;
-import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.UnpaidInvoicesSummary;
 import org.killbill.billing.overdue.OverdueTestSuiteNoDB;
 import org.killbill.billing.overdue.config.api.BillingState;
+import org.killbill.billing.overdue.config.api.OverdueException;
 import org.killbill.billing.callcontext.InternalTenantContext;
 
 public class TestBillingStateCalculator extends OverdueTestSuiteNoDB {
 
-    protected LocalDate now;
+    private Account account;
 
     @Override
     @BeforeMethod(groups = "fast")
     public void beforeMethod() throws Exception {
         super.beforeMethod();
-        final Account account = Mockito.mock(Account.class);
+        account = Mockito.mock(Account.class);
+        Mockito.when(account.getId()).thenReturn(UUID.randomUUID());
         Mockito.when(account.getTimeZone()).thenReturn(DateTimeZone.UTC);
         Mockito.when(accountApi.getAccountById(Mockito.<UUID>any(), Mockito.<InternalTenantContext>any())).thenReturn(account);
     }
 
-    public BillingStateCalculator createBSCalc() {
-        now = new LocalDate();
-        final Collection<Invoice> invoices = new ArrayList<Invoice>();
-        invoices.add(createInvoice(now, BigDecimal.ZERO, null));
-        invoices.add(createInvoice(now.plusDays(1), BigDecimal.TEN, null));
-        invoices.add(createInvoice(now.plusDays(2), new BigDecimal("100.0"), null));
-
-        Mockito.when(invoiceApi.getUnpaidInvoicesByAccountId(Mockito.<UUID>any(), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(invoices);
-
-        return new BillingStateCalculator(invoiceApi, clock) {
-            @Override
-            public BillingState calculateBillingState(final Account overdueable,
-                                                      final InternalTenantContext context) {
-                return null;
-            }
-        };
-    }
-
-    public Invoice createInvoice(final LocalDate date, final BigDecimal balance, final List<InvoiceItem> invoiceItems) {
-        final Invoice invoice = Mockito.mock(Invoice.class);
-        Mockito.when(invoice.getBalance()).thenReturn(balance);
-        Mockito.when(invoice.getInvoiceDate()).thenReturn(date);
-        Mockito.when(invoice.getInvoiceItems()).thenReturn(invoiceItems);
-        Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
-
-        return invoice;
-    }
-
     @Test(groups = "fast")
-    public void testUnpaidInvoices() {
-        final BillingStateCalculator calc = createBSCalc();
-        final SortedSet<Invoice> invoices = calc.unpaidInvoicesForAccount(new UUID(0L, 0L), DateTimeZone.UTC, internalCallContext);
-
-        Assert.assertEquals(invoices.size(), 3);
-        Assert.assertEquals(BigDecimal.ZERO.compareTo(invoices.first().getBalance()), 0);
-        Assert.assertEquals(new BigDecimal("100.0").compareTo(invoices.last().getBalance()), 0);
+    public void testUnpaidInvoices() throws OverdueException {
+        final LocalDate now = new LocalDate();
+        final UUID earliestInvoiceId = UUID.randomUUID();
+        mockUnpaidInvoicesSummary(2, new BigDecimal("110.0"), now, earliestInvoiceId);
+
+        final BillingState billingState = new BillingStateCalculator(invoiceApi, clock).calculateBillingState(account, internalCallContext);
+        Assert.assertEquals(billingState.getObjectId(), account.getId());
+        Assert.assertEquals(billingState.getNumberOfUnpaidInvoices(), 2);
+        Assert.assertEquals(billingState.getBalanceOfUnpaidInvoices().compareTo(new BigDecimal("110.0")), 0);
+        Assert.assertEquals(billingState.getDateOfEarliestUnpaidInvoice(), now);
+        Assert.assertEquals(billingState.getIdOfEarliestUnpaidInvoice(), earliestInvoiceId);
+        Assert.assertEquals(billingState.getAccountTimeZone(), DateTimeZone.UTC);
     }
 
     @Test(groups = "fast")
-    public void testSum() {
-        final BillingStateCalculator calc = createBSCalc();
-        final SortedSet<Invoice> invoices = calc.unpaidInvoicesForAccount(new UUID(0L, 0L), DateTimeZone.UTC, internalCallContext);
-        Assert.assertEquals(new BigDecimal("110.0").compareTo(calc.sumBalance(invoices)), 0);
+    public void testNoUnpaidInvoice() throws OverdueException {
+        mockUnpaidInvoicesSummary(0, BigDecimal.ZERO, null, null);
+
+        final BillingState billingState = new BillingStateCalculator(invoiceApi, clock).calculateBillingState(account, internalCallContext);
+        Assert.assertEquals(billingState.getNumberOfUnpaidInvoices(), 0);
+        Assert.assertEquals(billingState.getBalanceOfUnpaidInvoices().compareTo(BigDecimal.ZERO), 0);
+        Assert.assertNull(billingState.getDateOfEarliestUnpaidInvoice());
+        Assert.assertNull(billingState.getIdOfEarliestUnpaidInvoice());
     }
 
-    @Test(groups = "fast")
-    public void testEarliest() {
-        final BillingStateCalculator calc = createBSCalc();
-        final SortedSet<Invoice> invoices = calc.unpaidInvoicesForAccount(new UUID(0L, 0L), DateTimeZone.UTC, internalCallContext);
-        Assert.assertEquals(calc.earliest(invoices).getInvoiceDate(), now);
+    private void mockUnpaidInvoicesSummary(final int numberOfUnpaidInvoices, final BigDecimal balance, final LocalDate earliestInvoiceDate, final UUID earliestInvoiceId) {
+        final UnpaidInvoicesSummary unpaidInvoices = Mockito.mock(UnpaidInvoicesSummary.class);
+        Mockito.when(unpaidInvoices.getNumberOfUnpaidInvoices()).thenReturn(numberOfUnpaidInvoices);
+        Mockito.when(unpaidInvoices.getBalanceOfUnpaidInvoices()).thenReturn(balance);
+        Mockito.when(unpaidInvoices.getDateOfEarliestUnpaidInvoice()).thenReturn(earliestInvoiceDate);
+        Mockito.when(unpaidInvoices.getIdOfEarliestUnpaidInvoice()).thenReturn(earliestInvoiceId);
+        Mockito.when(invoiceApi.getUnpaidInvoicesSummary(Mockito.eq(account.getId()), Mockito.<LocalDate>any(), Mockito.<InternalTenantContext>any())).thenReturn(unpaidInvoices);
     }
 }
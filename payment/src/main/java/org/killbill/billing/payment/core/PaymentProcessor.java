@@ -27,7 +27,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -61,6 +67,7 @@ import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.PaymentConfig;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.EntityPaginationBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationHelper.SourcePaginationBuilder;
@@ -72,6 +79,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
@@ -79,6 +87,7 @@ import com.google.inject.name.Named;
 
 import static org.killbill.billing.payment.glue.PaymentModule.PLUGIN_EXECUTOR_NAMED;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPage;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPlugins;
 
 public class PaymentProcessor extends ProcessorBase {
@@ -87,6 +96,7 @@ public class PaymentProcessor extends ProcessorBase {
 
     private final PaymentAutomatonRunner paymentAutomatonRunner;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentConfig paymentConfig;
 
     private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
 
@@ -101,10 +111,12 @@ public class PaymentProcessor extends ProcessorBase {
                             @Named(PLUGIN_EXECUTOR_NAMED) final ExecutorService executor,
                             final PaymentAutomatonRunner paymentAutomatonRunner,
                             final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                            final PaymentConfig paymentConfig,
                             final Clock clock) {
         super(pluginRegistry, accountUserApi, paymentDao, tagUserApi, locker, executor, internalCallContextFactory, invoiceApi, clock);
         this.paymentAutomatonRunner = paymentAutomatonRunner;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentConfig = paymentConfig;
     }
 
     public Payment createAuthorization(final boolean isApiPayment, @Nullable final UUID attemptId, final Account account, @Nullable final UUID paymentMethodId, @Nullable final UUID paymentId, final BigDecimal amount, final Currency currency,
@@ -162,32 +174,17 @@ public class PaymentProcessor extends ProcessorBase {
 
     public List<Payment> getAccountPayments(final UUID accountId, final boolean withPluginInfo, final TenantContext context, final InternalTenantContext tenantContext) throws PaymentApiException {
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
-        final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsModelDaoByPaymentId = groupTransactionsByPaymentId(paymentDao.getTransactionsForAccount(accountId, tenantContext));
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ?
+                                                                                   getPaymentTransactionInfoPlugins(paymentsModelDao, context, tenantContext) :
+                                                                                   ImmutableMap.<UUID, List<PaymentTransactionInfoPlugin>>of();
 
-        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
-        final Collection<UUID> absentPlugins = new HashSet<UUID>();
         return Lists.<PaymentModelDao, Payment>transform(paymentsModelDao,
                                                          new Function<PaymentModelDao, Payment>() {
                                                              @Override
                                                              public Payment apply(final PaymentModelDao paymentModelDao) {
-                                                                 List<PaymentTransactionInfoPlugin> pluginInfo = null;
-
-                                                                 if (withPluginInfo) {
-                                                                     PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
-                                                                     if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
-                                                                         try {
-                                                                             pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), tenantContext);
-                                                                             paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
-                                                                         } catch (final PaymentApiException e) {
-                                                                             log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
-                                                                             absentPlugins.add(paymentModelDao.getPaymentMethodId());
-                                                                         }
-                                                                     }
-
-                                                                     pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
-                                                                 }
-
-                                                                 return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, tenantContext);
+                                                                 final List<PaymentTransactionInfoPlugin> pluginInfo = pluginInfoByPaymentId.get(paymentModelDao.getId());
+                                                                 return toPayment(paymentModelDao, getTransactionsForPayment(paymentModelDao, transactionsModelDaoByPaymentId), pluginInfo, tenantContext);
                                                              }
                                                          });
     }
@@ -225,22 +222,21 @@ public class PaymentProcessor extends ProcessorBase {
     public Pagination<Payment> getPayments(final Long offset, final Long limit, final String pluginName, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) throws PaymentApiException {
         final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
 
-        return getEntityPagination(limit,
-                                   new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                       @Override
-                                       public Pagination<PaymentModelDao> build() {
-                                           // Find all payments for all accounts
-                                           return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
-                                       }
-                                   },
-                                   new Function<PaymentModelDao, Payment>() {
-                                       @Override
-                                       public Payment apply(final PaymentModelDao paymentModelDao) {
-                                           final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                           return toPayment(paymentModelDao.getId(), pluginInfo, internalTenantContext);
-                                       }
-                                   }
-                                  );
+        return getEntityPaginationFromPage(limit,
+                                           new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                               @Override
+                                               public Pagination<PaymentModelDao> build() {
+                                                   // Find all payments for all accounts
+                                                   return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
+                                               }
+                                           },
+                                           new Function<List<PaymentModelDao>, Iterable<Payment>>() {
+                                               @Override
+                                               public Iterable<Payment> apply(final List<PaymentModelDao> paymentModelDaos) {
+                                                   return toPayments(paymentModelDaos, pluginApi, tenantContext, internalTenantContext);
+                                               }
+                                           }
+                                          );
     }
 
     public Pagination<Payment> searchPayments(final String searchKey, final Long offset, final Long limit, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext tenantContext, final InternalTenantContext internalTenantContext) {
@@ -297,20 +293,20 @@ public class PaymentProcessor extends ProcessorBase {
                                        }
                                       );
         } else {
-            return getEntityPagination(limit,
-                                       new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                           @Override
-                                           public Pagination<PaymentModelDao> build() {
-                                               return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
-                                           }
-                                       },
-                                       new Function<PaymentModelDao, Payment>() {
-                                           @Override
-                                           public Payment apply(final PaymentModelDao paymentModelDao) {
-                                               return toPayment(paymentModelDao.getId(), null, internalTenantContext);
-                                           }
-                                       }
-                                      );
+            return getEntityPaginationFromPage(limit,
+                                               new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                   @Override
+                                                   public Pagination<PaymentModelDao> build() {
+                                                       return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
+                                                   }
+                                               },
+                                               new Function<List<PaymentModelDao>, Iterable<Payment>>() {
+                                                   @Override
+                                                   public Iterable<Payment> apply(final List<PaymentModelDao> paymentModelDaos) {
+                                                       return toPayments(paymentModelDaos, null, tenantContext, internalTenantContext);
+                                                   }
+                                               }
+                                              );
         }
     }
 
@@ -341,7 +337,7 @@ public class PaymentProcessor extends ProcessorBase {
         return getPayment(nonNullPaymentId, true, properties, callContext, internalCallContext);
     }
 
-    // Used in bulk get API (getAccountPayments / getPayments)
+    // Used in bulk get APIs (getAccountPayments / getPayments / searchPayments)
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao, final TenantContext context) {
         if (pluginApi == null) {
             return null;
@@ -355,6 +351,88 @@ public class PaymentProcessor extends ProcessorBase {
         }
     }
 
+    // Used in bulk get API (getAccountPayments): the plugin calls are dispatched on the plugin executor, with at most getPaymentPluginInfoConcurrency
+    // of them in flight for this request. Payments whose plugin info couldn't be retrieved before the deadline are returned without it (i.e. with the
+    // Kill Bill view of their transactions), as if the plugin call had failed.
+    private Map<UUID, List<PaymentTransactionInfoPlugin>> getPaymentTransactionInfoPlugins(final Iterable<PaymentModelDao> paymentModelDaos, final TenantContext context, final InternalTenantContext tenantContext) {
+        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<UUID, PaymentPluginApi>();
+        final Collection<UUID> absentPlugins = new HashSet<UUID>();
+        final LinkedList<PaymentModelDao> pendingPaymentModelDaos = new LinkedList<PaymentModelDao>();
+        final Map<UUID, PaymentPluginApi> pluginApiByPaymentId = new HashMap<UUID, PaymentPluginApi>();
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
+            if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
+                try {
+                    pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), tenantContext);
+                    paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
+                } catch (final PaymentApiException e) {
+                    log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
+                    absentPlugins.add(paymentModelDao.getPaymentMethodId());
+                }
+            }
+
+            if (pluginApi != null) {
+                pendingPaymentModelDaos.add(paymentModelDao);
+                pluginApiByPaymentId.put(paymentModelDao.getId(), pluginApi);
+            }
+        }
+
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<UUID, List<PaymentTransactionInfoPlugin>>();
+        if (pendingPaymentModelDaos.isEmpty()) {
+            return pluginInfoByPaymentId;
+        }
+
+        final CompletionService<List<PaymentTransactionInfoPlugin>> completionService = new ExecutorCompletionService<List<PaymentTransactionInfoPlugin>>(executor);
+        final Map<Future<List<PaymentTransactionInfoPlugin>>, UUID> paymentIdByFuture = new HashMap<Future<List<PaymentTransactionInfoPlugin>>, UUID>();
+        final long deadlineNanos = System.nanoTime() + paymentConfig.getPaymentPluginInfoTimeout().getMillis() * 1000000L;
+        final int maxInFlight = Math.max(1, paymentConfig.getPaymentPluginInfoConcurrency());
+        int inFlight = 0;
+        try {
+            while (!pendingPaymentModelDaos.isEmpty() || inFlight > 0) {
+                while (!pendingPaymentModelDaos.isEmpty() && inFlight < maxInFlight) {
+                    final PaymentModelDao paymentModelDao = pendingPaymentModelDaos.poll();
+                    final PaymentPluginApi pluginApi = pluginApiByPaymentId.get(paymentModelDao.getId());
+                    final Future<List<PaymentTransactionInfoPlugin>> future = completionService.submit(new Callable<List<PaymentTransactionInfoPlugin>>() {
+                        @Override
+                        public List<PaymentTransactionInfoPlugin> call() {
+                            return getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
+                        }
+                    });
+                    paymentIdByFuture.put(future, paymentModelDao.getId());
+                    inFlight++;
+                }
+
+                final long remainingNanos = deadlineNanos - System.nanoTime();
+                final Future<List<PaymentTransactionInfoPlugin>> completedFuture = remainingNanos > 0 ? completionService.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                if (completedFuture == null) {
+                    log.warn("Timeout while retrieving plugin info: {} payment(s) returned without plugin info", pendingPaymentModelDaos.size() + inFlight);
+                    break;
+                }
+                inFlight--;
+
+                final UUID paymentId = paymentIdByFuture.remove(completedFuture);
+                try {
+                    final List<PaymentTransactionInfoPlugin> pluginInfo = completedFuture.get();
+                    if (pluginInfo != null) {
+                        pluginInfoByPaymentId.put(paymentId, pluginInfo);
+                    }
+                } catch (final ExecutionException e) {
+                    log.warn("Unable to retrieve plugin info for payment " + paymentId, e.getCause());
+                }
+            }
+        } catch (final InterruptedException e) {
+            log.warn("Interrupted while retrieving plugin info");
+            Thread.currentThread().interrupt();
+        } finally {
+            // Skip the plugin calls which haven't started yet (running ones aren't interrupted, as for PluginDispatcher timeouts)
+            for (final Future<List<PaymentTransactionInfoPlugin>> future : paymentIdByFuture.keySet()) {
+                future.cancel(false);
+            }
+        }
+
+        return pluginInfoByPaymentId;
+    }
+
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final PaymentPluginApi plugin, final PaymentModelDao paymentModelDao, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentApiException {
         try {
             return plugin.getPaymentInfo(paymentModelDao.getAccountId(), paymentModelDao.getId(), properties, context);
@@ -363,7 +441,7 @@ public class PaymentProcessor extends ProcessorBase {
         }
     }
 
-    // Used in bulk get APIs (getPayments / searchPayments)
+    // Used in bulk get API (searchPayments with plugin info)
     private Payment toPayment(final UUID paymentId, @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions, final InternalTenantContext tenantContext) {
         final PaymentModelDao paymentModelDao = paymentDao.getPayment(paymentId, tenantContext);
         if (paymentModelDao == null) {
@@ -374,6 +452,45 @@ public class PaymentProcessor extends ProcessorBase {
         return toPayment(paymentModelDao, pluginTransactions, tenantContext);
     }
 
+    // Used in bulk get APIs (getPayments / searchPayments): the transactions of the whole page are retrieved at once
+    private Iterable<Payment> toPayments(final List<PaymentModelDao> paymentModelDaos, @Nullable final PaymentPluginApi pluginApi, final TenantContext context, final InternalTenantContext tenantContext) {
+        final Collection<UUID> paymentIds = Lists.<PaymentModelDao, UUID>transform(paymentModelDaos,
+                                                                                   new Function<PaymentModelDao, UUID>() {
+                                                                                       @Override
+                                                                                       public UUID apply(final PaymentModelDao paymentModelDao) {
+                                                                                           return paymentModelDao.getId();
+                                                                                       }
+                                                                                   });
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsModelDaoByPaymentId = groupTransactionsByPaymentId(paymentDao.getTransactionsForPayments(paymentIds, tenantContext));
+
+        return Iterables.<PaymentModelDao, Payment>transform(paymentModelDaos,
+                                                             new Function<PaymentModelDao, Payment>() {
+                                                                 @Override
+                                                                 public Payment apply(final PaymentModelDao paymentModelDao) {
+                                                                     final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
+                                                                     return toPayment(paymentModelDao, getTransactionsForPayment(paymentModelDao, transactionsModelDaoByPaymentId), pluginInfo, tenantContext);
+                                                                 }
+                                                             });
+    }
+
+    private Map<UUID, List<PaymentTransactionModelDao>> groupTransactionsByPaymentId(final Iterable<PaymentTransactionModelDao> transactionsModelDao) {
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsModelDaoByPaymentId = new HashMap<UUID, List<PaymentTransactionModelDao>>();
+        for (final PaymentTransactionModelDao transactionModelDao : transactionsModelDao) {
+            List<PaymentTransactionModelDao> transactionsForPayment = transactionsModelDaoByPaymentId.get(transactionModelDao.getPaymentId());
+            if (transactionsForPayment == null) {
+                transactionsForPayment = new LinkedList<PaymentTransactionModelDao>();
+                transactionsModelDaoByPaymentId.put(transactionModelDao.getPaymentId(), transactionsForPayment);
+            }
+            transactionsForPayment.add(transactionModelDao);
+        }
+        return transactionsModelDaoByPaymentId;
+    }
+
+    private List<PaymentTransactionModelDao> getTransactionsForPayment(final PaymentModelDao paymentModelDao, final Map<UUID, List<PaymentTransactionModelDao>> transactionsModelDaoByPaymentId) {
+        final List<PaymentTransactionModelDao> transactionsForPayment = transactionsModelDaoByPaymentId.get(paymentModelDao.getId());
+        return transactionsForPayment != null ? transactionsForPayment : ImmutableList.<PaymentTransactionModelDao>of();
+    }
+
     // Used in single get APIs (getPayment / getPaymentByExternalKey)
     private Payment toPayment(final PaymentModelDao paymentModelDao, final boolean withPluginInfo, final Iterable<PluginProperty> properties, final TenantContext context, final InternalTenantContext tenantContext) throws PaymentApiException {
         final PaymentPluginApi plugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), tenantContext);
@@ -389,7 +506,7 @@ public class PaymentProcessor extends ProcessorBase {
         return toPayment(paymentModelDao, transactionsForPayment, pluginTransactions, tenantContext);
     }
 
-    // Used in bulk get API (getAccountPayments)
+    // The transactions must all belong to that payment
     private Payment toPayment(final PaymentModelDao curPaymentModelDao, final Iterable<PaymentTransactionModelDao> curTransactionsModelDao, @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions, final InternalTenantContext internalTenantContext) {
         final Ordering<PaymentTransaction> perPaymentTransactionOrdering = Ordering.<PaymentTransaction>from(new Comparator<PaymentTransaction>() {
             @Override
@@ -398,17 +515,9 @@ public class PaymentProcessor extends ProcessorBase {
             }
         });
 
-        // Need to filter for optimized codepaths looking up by account_record_id
-        final Iterable<PaymentTransactionModelDao> filteredTransactions = Iterables.filter(curTransactionsModelDao, new Predicate<PaymentTransactionModelDao>() {
-            @Override
-            public boolean apply(final PaymentTransactionModelDao curPaymentTransactionModelDao) {
-                return curPaymentTransactionModelDao.getPaymentId().equals(curPaymentModelDao.getId());
-            }
-        });
-
         PaymentModelDao newPaymentModelDao = curPaymentModelDao;
         final Collection<PaymentTransaction> transactions = new LinkedList<PaymentTransaction>();
-        for (final PaymentTransactionModelDao curPaymentTransactionModelDao : filteredTransactions) {
+        for (final PaymentTransactionModelDao curPaymentTransactionModelDao : curTransactionsModelDao) {
             PaymentTransactionModelDao newPaymentTransactionModelDao = curPaymentTransactionModelDao;
 
             final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactions);
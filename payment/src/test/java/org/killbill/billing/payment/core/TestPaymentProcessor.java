@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -39,11 +40,14 @@ import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.provider.MockPaymentProviderPlugin;
+import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.eventbus.Subscribe;
 import com.jayway.awaitility.Awaitility;
 
@@ -56,10 +60,21 @@ public class TestPaymentProcessor extends PaymentTestSuiteWithEmbeddedDB {
     private static final BigDecimal FIVE = new BigDecimal("5");
     private static final BigDecimal TEN = new BigDecimal("10");
     private static final Currency CURRENCY = Currency.BTC;
+    private static final int PLUGIN_INFO_CONCURRENCY = 3;
+    private static final int PLUGIN_INFO_TIMEOUT_SECONDS = 1;
 
     private PaymentBusListener paymentBusListener;
     private Account account;
 
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/payment.properties",
+                               ImmutableMap.<String, String>of("org.killbill.payment.provider.default", MockPaymentProviderPlugin.PLUGIN_NAME,
+                                                               "killbill.payment.engine.events.off", "false",
+                                                               "org.killbill.payment.plugin.info.concurrency", String.valueOf(PLUGIN_INFO_CONCURRENCY),
+                                                               "org.killbill.payment.plugin.info.timeout", PLUGIN_INFO_TIMEOUT_SECONDS + "s"));
+    }
+
     @BeforeMethod(groups = "slow")
     public void setUp() throws Exception {
         account = testHelper.createTestAccount(UUID.randomUUID().toString(), true);
@@ -159,6 +174,86 @@ public class TestPaymentProcessor extends PaymentTestSuiteWithEmbeddedDB {
         paymentBusListener.verify(1, account.getId(), paymentId, TEN);
     }
 
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfo() throws Exception {
+        final List<UUID> paymentIds = new LinkedList<UUID>();
+        for (int i = 0; i < 12; i++) {
+            final Payment purchase = paymentProcessor.createPurchase(true, null, account, null, null, TEN, CURRENCY, UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                                                     SHOULD_LOCK_ACCOUNT, PLUGIN_PROPERTIES, callContext, internalCallContext);
+            paymentIds.add(purchase.getId());
+        }
+
+        final List<Payment> payments = paymentProcessor.getAccountPayments(account.getId(), true, callContext, internalCallContext);
+        Assert.assertEquals(payments.size(), paymentIds.size());
+        for (final Payment payment : payments) {
+            Assert.assertTrue(paymentIds.contains(payment.getId()));
+            Assert.assertEquals(payment.getTransactions().size(), 1);
+            final PaymentTransaction transaction = payment.getTransactions().get(0);
+            Assert.assertNotNull(transaction.getPaymentInfoPlugin());
+            Assert.assertEquals(transaction.getPaymentInfoPlugin().getKbPaymentId(), payment.getId());
+            Assert.assertEquals(transaction.getPaymentInfoPlugin().getKbTransactionPaymentId(), transaction.getId());
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithPluginInfoConcurrencyCap() throws Exception {
+        final MockPaymentProviderPlugin mockPaymentProviderPlugin = (MockPaymentProviderPlugin) registry.getServiceForName(MockPaymentProviderPlugin.PLUGIN_NAME);
+        for (int i = 0; i < 12; i++) {
+            final Payment purchase = paymentProcessor.createPurchase(true, null, account, null, null, TEN, CURRENCY, UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                                                     SHOULD_LOCK_ACCOUNT, PLUGIN_PROPERTIES, callContext, internalCallContext);
+            mockPaymentProviderPlugin.makeGetPaymentInfoWait(purchase.getId(), 100);
+        }
+        mockPaymentProviderPlugin.getAndResetMaxConcurrentGetPaymentInfoCalls();
+
+        final List<Payment> payments = paymentProcessor.getAccountPayments(account.getId(), true, callContext, internalCallContext);
+        Assert.assertEquals(payments.size(), 12);
+        for (final Payment payment : payments) {
+            Assert.assertNotNull(payment.getTransactions().get(0).getPaymentInfoPlugin());
+        }
+        // The plugin executor has more threads than that
+        Assert.assertEquals(mockPaymentProviderPlugin.getAndResetMaxConcurrentGetPaymentInfoCalls(), PLUGIN_INFO_CONCURRENCY);
+    }
+
+    @Test(groups = "slow")
+    public void testGetAccountPaymentsWithSlowPlugin() throws Exception {
+        final MockPaymentProviderPlugin mockPaymentProviderPlugin = (MockPaymentProviderPlugin) registry.getServiceForName(MockPaymentProviderPlugin.PLUGIN_NAME);
+        final List<UUID> paymentIds = new LinkedList<UUID>();
+        for (int i = 0; i < 6; i++) {
+            final Payment purchase = paymentProcessor.createPurchase(true, null, account, null, null, TEN, CURRENCY, UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                                                                     SHOULD_LOCK_ACCOUNT, PLUGIN_PROPERTIES, callContext, internalCallContext);
+            paymentIds.add(purchase.getId());
+        }
+        // The plugin doesn't answer for that payment before the deadline
+        final UUID slowPaymentId = paymentIds.get(2);
+        mockPaymentProviderPlugin.makeGetPaymentInfoWait(slowPaymentId, 4000L * PLUGIN_INFO_TIMEOUT_SECONDS);
+
+        final long startMillis = System.currentTimeMillis();
+        final List<Payment> payments = paymentProcessor.getAccountPayments(account.getId(), true, callContext, internalCallContext);
+        Assert.assertTrue(System.currentTimeMillis() - startMillis < 4000L * PLUGIN_INFO_TIMEOUT_SECONDS);
+
+        Assert.assertEquals(payments.size(), paymentIds.size());
+        for (final Payment payment : payments) {
+            Assert.assertEquals(payment.getTransactions().size(), 1);
+            final PaymentTransaction transaction = payment.getTransactions().get(0);
+            if (payment.getId().equals(slowPaymentId)) {
+                // Kill Bill view of the transaction
+                Assert.assertNull(transaction.getPaymentInfoPlugin());
+                Assert.assertEquals(transaction.getTransactionStatus(), TransactionStatus.SUCCESS);
+            } else {
+                Assert.assertNotNull(transaction.getPaymentInfoPlugin());
+                Assert.assertEquals(transaction.getPaymentInfoPlugin().getKbPaymentId(), payment.getId());
+            }
+        }
+
+        // The slow call isn't interrupted: let it complete, not to skew the other tests
+        Awaitility.await().atMost(10, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return mockPaymentProviderPlugin.getConcurrentGetPaymentInfoCalls() == 0;
+            }
+        });
+    }
+
     @Test(groups = "slow")
     public void testCredit() throws Exception {
         final String paymentExternalKey = UUID.randomUUID().toString();
@@ -212,6 +212,46 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
         assertEquals(transactions2.size(), 2);
     }
 
+    @Test(groups = "slow")
+    public void testTransactionsForPayments() {
+        final UUID paymentMethodId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        final DateTime utcNow = clock.getUTCNow();
+
+        final List<UUID> paymentIds = new ArrayList<UUID>();
+        for (int i = 0; i < 3; i++) {
+            final PaymentModelDao paymentModelDao = new PaymentModelDao(utcNow, utcNow, accountId, paymentMethodId, UUID.randomUUID().toString());
+            final PaymentTransactionModelDao transactionModelDao = new PaymentTransactionModelDao(utcNow, utcNow, null, UUID.randomUUID().toString(),
+                                                                                                  paymentModelDao.getId(), TransactionType.AUTHORIZE, utcNow,
+                                                                                                  TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                                                                  "success", "");
+            paymentDao.insertPaymentWithFirstTransaction(paymentModelDao, transactionModelDao, internalCallContext);
+            paymentIds.add(paymentModelDao.getId());
+        }
+        final PaymentTransactionModelDao captureModelDao = new PaymentTransactionModelDao(utcNow, utcNow, null, UUID.randomUUID().toString(),
+                                                                                          paymentIds.get(0), TransactionType.CAPTURE, utcNow,
+                                                                                          TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                                                          "success", "");
+        paymentDao.updatePaymentWithNewTransaction(paymentIds.get(0), captureModelDao, internalCallContext);
+
+        final List<PaymentTransactionModelDao> transactions = paymentDao.getTransactionsForPayments(ImmutableList.<UUID>of(paymentIds.get(0), paymentIds.get(2)), internalCallContext);
+        assertEquals(transactions.size(), 3);
+        assertEquals(Iterables.size(Iterables.filter(transactions, new Predicate<PaymentTransactionModelDao>() {
+            @Override
+            public boolean apply(final PaymentTransactionModelDao input) {
+                return input.getPaymentId().equals(paymentIds.get(0));
+            }
+        })), 2);
+        assertEquals(Iterables.size(Iterables.filter(transactions, new Predicate<PaymentTransactionModelDao>() {
+            @Override
+            public boolean apply(final PaymentTransactionModelDao input) {
+                return input.getPaymentId().equals(paymentIds.get(2));
+            }
+        })), 1);
+
+        assertEquals(paymentDao.getTransactionsForPayments(ImmutableList.<UUID>of(), internalCallContext).size(), 0);
+    }
+
     @Test(groups = "slow")
     public void testPaymentMethod() {
 
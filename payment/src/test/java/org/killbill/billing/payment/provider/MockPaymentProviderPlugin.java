@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.api.PaymentMethodPlugin;
@@ -68,6 +69,11 @@ public class MockPaymentProviderPlugin implements NoOpPaymentPluginApi {
     private final Map<String, PaymentMethodPlugin> paymentMethods = new ConcurrentHashMap<String, PaymentMethodPlugin>();
     private final Map<String, PaymentMethodInfoPlugin> paymentMethodsInfo = new ConcurrentHashMap<String, PaymentMethodInfoPlugin>();
 
+    // Latency and concurrency of the getPaymentInfo calls, for bulk retrievals
+    private final Map<String, Long> getPaymentInfoDelaysMillis = new ConcurrentHashMap<String, Long>();
+    private final AtomicInteger concurrentGetPaymentInfoCalls = new AtomicInteger(0);
+    private final AtomicInteger maxConcurrentGetPaymentInfoCalls = new AtomicInteger(0);
+
     private final Clock clock;
 
     private class InternalPaymentInfo {
@@ -188,6 +194,20 @@ public class MockPaymentProviderPlugin implements NoOpPaymentPluginApi {
         payments.clear();
         paymentTransactions.clear();
         paymentMethodsInfo.clear();
+        getPaymentInfoDelaysMillis.clear();
+        maxConcurrentGetPaymentInfoCalls.set(0);
+    }
+
+    public void makeGetPaymentInfoWait(final UUID kbPaymentId, final long delayMillis) {
+        getPaymentInfoDelaysMillis.put(kbPaymentId.toString(), delayMillis);
+    }
+
+    public int getConcurrentGetPaymentInfoCalls() {
+        return concurrentGetPaymentInfoCalls.get();
+    }
+
+    public int getAndResetMaxConcurrentGetPaymentInfoCalls() {
+        return maxConcurrentGetPaymentInfoCalls.getAndSet(0);
     }
 
     @Override
@@ -236,6 +256,24 @@ public class MockPaymentProviderPlugin implements NoOpPaymentPluginApi {
 
     @Override
     public List<PaymentTransactionInfoPlugin> getPaymentInfo(final UUID kbAccountId, final UUID kbPaymentId, final Iterable<PluginProperty> properties, final TenantContext context) throws PaymentPluginApiException {
+        final int concurrentCalls = concurrentGetPaymentInfoCalls.incrementAndGet();
+        try {
+            int maxConcurrentCalls = maxConcurrentGetPaymentInfoCalls.get();
+            while (concurrentCalls > maxConcurrentCalls && !maxConcurrentGetPaymentInfoCalls.compareAndSet(maxConcurrentCalls, concurrentCalls)) {
+                maxConcurrentCalls = maxConcurrentGetPaymentInfoCalls.get();
+            }
+
+            final Long delayMillis = getPaymentInfoDelaysMillis.get(kbPaymentId.toString());
+            if (delayMillis != null) {
+                Thread.sleep(delayMillis);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentPluginApiException("getPaymentInfo interrupted", e);
+        } finally {
+            concurrentGetPaymentInfoCalls.decrementAndGet();
+        }
+
         final List<PaymentTransactionInfoPlugin> result = paymentTransactions.get(kbPaymentId.toString());
         return result != null ? result : ImmutableList.<PaymentTransactionInfoPlugin>of();
     }
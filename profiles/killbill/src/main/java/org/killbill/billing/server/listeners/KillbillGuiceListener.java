@@ -29,8 +29,10 @@ import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.platform.config.DefaultKillbillConfigSource;
 import org.killbill.billing.server.filters.ProfilingContainerResponseFilter;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
+import org.killbill.billing.server.log.ScopedDebugTurboFilter;
 import org.killbill.billing.server.modules.KillbillServerModule;
 import org.killbill.billing.server.security.TenantFilter;
+import org.killbill.billing.util.log.ScopedDebugLogging;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.commons.skeleton.modules.BaseServerModuleBuilder;
 import org.slf4j.ILoggerFactory;
@@ -38,6 +40,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Module;
 import com.google.inject.servlet.ServletModule;
@@ -106,6 +109,14 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
         if (iLoggerFactory instanceof LoggerContext) {
             final LoggerContext lc = (LoggerContext) iLoggerFactory;
             lc.setPackagingDataEnabled(false);
+
+            // The logging backend isn't managed by Guice
+            final ScopedDebugLogging scopedDebugLogging = injector.getInstance(ScopedDebugLogging.class);
+            for (final TurboFilter turboFilter : lc.getTurboFilterList()) {
+                if (turboFilter instanceof ScopedDebugTurboFilter) {
+                    ((ScopedDebugTurboFilter) turboFilter).setScopedDebugLogging(scopedDebugLogging);
+                }
+            }
         }
     }
 
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log;
+
+import org.killbill.billing.util.log.ScopedDebugLogging;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Turns DEBUG on for the Kill Bill loggers while a tenant or an account enabled through the admin endpoint
+ * is being processed (see ScopedDebugLogging). Other loggers and levels are left to the regular configuration.
+ * <p/>
+ * Logback creates the filter before Guice: it stays neutral until the server hands it the ScopedDebugLogging instance.
+ */
+public class ScopedDebugTurboFilter extends TurboFilter {
+
+    private static final String DEFAULT_LOGGER_PREFIX = "org.killbill.billing.";
+
+    private String loggerPrefix = DEFAULT_LOGGER_PREFIX;
+
+    private volatile ScopedDebugLogging scopedDebugLogging;
+
+    @Override
+    public FilterReply decide(final Marker marker, final Logger logger, final Level level, final String format, final Object[] params, final Throwable t) {
+        final ScopedDebugLogging scopedDebugLogging = this.scopedDebugLogging;
+        if (scopedDebugLogging == null ||
+            !scopedDebugLogging.isAnyEnabled() ||
+            !level.isGreaterOrEqual(Level.DEBUG) ||
+            !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return scopedDebugLogging.isEnabledForCurrentContext() ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    public void setScopedDebugLogging(final ScopedDebugLogging scopedDebugLogging) {
+        this.scopedDebugLogging = scopedDebugLogging;
+    }
+
+    public void setLoggerPrefix(final String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
@@ -48,8 +48,21 @@ public class LuhnMaskingObfuscator extends Obfuscator {
             return formattedMessage;
         }
 
-        final int length = formattedMessage.length();
-        int unwrittenStart = 0;
+        final StringBuilder masked = new StringBuilder(formattedMessage.length());
+        mask(formattedMessage, 0, formattedMessage.length(), masked);
+        return masked.toString();
+    }
+
+    /**
+     * Append the masked [start, end[ section of the given message to the builder.
+     *
+     * @param formattedMessage the message to mask
+     * @param start            start of the section (inclusive)
+     * @param end              end of the section (exclusive)
+     * @param masked           builder to append to
+     */
+    void mask(final String formattedMessage, final int start, final int end, final StringBuilder masked) {
+        int unwrittenStart = start;
         int numberStart = -1;
         int numberEnd;
         int digitsSeen = 0;
@@ -57,9 +70,7 @@ public class LuhnMaskingObfuscator extends Obfuscator {
         int pos;
         char current;
 
-        final StringBuilder masked = new StringBuilder(formattedMessage.length());
-
-        for (pos = 0; pos < length; pos++) {
+        for (pos = start; pos < end; pos++) {
             current = formattedMessage.charAt(pos);
             if (isDigit(current)) {
                 digitsSeen++;
@@ -96,8 +107,6 @@ public class LuhnMaskingObfuscator extends Obfuscator {
         } else {
             masked.append(formattedMessage, unwrittenStart, pos);
         }
-
-        return masked.toString();
     }
 
     private boolean hasEnoughDigits(final CharSequence formattedMessage) {
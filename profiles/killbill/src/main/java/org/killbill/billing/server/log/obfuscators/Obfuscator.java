@@ -76,7 +76,7 @@ public abstract class Obfuscator {
         return obfuscatedStringBuilder.toString();
     }
 
-    private boolean shouldObfuscate(final String confidentialData, final ILoggingEvent event) {
+    protected boolean shouldObfuscate(final String confidentialData, final ILoggingEvent event) {
         return !isProfilingHeader(confidentialData, event);
     }
 
@@ -97,7 +97,7 @@ public abstract class Obfuscator {
         return false;
     }
 
-    private String obfuscateConfidentialData(final CharSequence confidentialSequence) {
+    protected String obfuscateConfidentialData(final CharSequence confidentialSequence) {
         return obfuscateConfidentialData(confidentialSequence, null);
     }
 
@@ -18,6 +18,7 @@
 package org.killbill.billing.server.log.obfuscators;
 
 import java.util.Collection;
+import java.util.regex.Pattern;
 
 import ch.qos.logback.classic.pattern.ClassicConverter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -44,9 +45,9 @@ import com.google.common.collect.ImmutableList;
  */
 public class ObfuscatorConverter extends ClassicConverter {
 
+    // Sensitive keys and card numbers are masked in a single pass (see PatternObfuscator)
     private final Collection<Obfuscator> obfuscators = ImmutableList.<Obfuscator>of(new ConfigMagicObfuscator(),
-                                                                                    new PatternObfuscator(),
-                                                                                    new LuhnMaskingObfuscator());
+                                                                                    new PatternObfuscator(ImmutableList.<Pattern>of(), new LuhnMaskingObfuscator()));
 
     @Override
     public String convert(final ILoggingEvent event) {
@@ -19,11 +19,27 @@ package org.killbill.billing.server.log.obfuscators;
 
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
+/**
+ * PatternObfuscator masks the values of sensitive JSON and XML keys.
+ * <p/>
+ * Instead of running the three regular expressions of each key over the message one after the other, the message is
+ * scanned once: every {@code "key":}, {@code key>} and {@code key</key>} occurrence of a sensitive key is matched
+ * by hand, with the same semantics as the regular expressions. When a LuhnMaskingObfuscator is provided, card numbers
+ * are masked during the same traversal, in between the sensitive values.
+ * <p/>
+ * The regular expressions are applied sequentially, so a value which overlaps another match (e.g. a JSON value
+ * swallowing the next key when a comma is missing) depends on the order of the keys: in that case, the scanner falls
+ * back to the regular expressions to produce exactly the same output.
+ */
 public class PatternObfuscator extends Obfuscator {
 
     // Hide by default sensitive bank, PCI and PII data. For PANs, see LuhnMaskingObfuscator
@@ -46,26 +62,325 @@ public class PatternObfuscator extends Obfuscator {
             "xid"
     };
 
+    private static final String MULTI_VALUES_XML_KEY = "</key>";
+    private static final String MULTI_VALUES_XML_VALUE = "<value";
+    private static final String MULTI_VALUES_XML_VALUE_END = "</value>";
+
+    // Sensitive keys, lower case, indexed by their last character
+    private final String[][] sensitiveKeysByLastChar = new String[128][];
     private final Collection<Pattern> patterns = new LinkedList<Pattern>();
+    private final Collection<Pattern> extraPatterns;
+    private final LuhnMaskingObfuscator luhnMaskingObfuscator;
 
     public PatternObfuscator() {
         this(ImmutableList.<Pattern>of());
     }
 
     public PatternObfuscator(final Collection<Pattern> extraPatterns) {
+        this(extraPatterns, null);
+    }
+
+    /**
+     * @param extraPatterns         additional patterns, applied after the sensitive keys
+     * @param luhnMaskingObfuscator if specified, card numbers are masked as well (after the extra patterns)
+     */
+    public PatternObfuscator(final Collection<Pattern> extraPatterns, @Nullable final LuhnMaskingObfuscator luhnMaskingObfuscator) {
         super();
 
         for (final String sensitiveKey : DEFAULT_SENSITIVE_KEYS) {
             this.patterns.add(buildJSONPattern(sensitiveKey));
             this.patterns.add(buildXMLPattern(sensitiveKey));
             this.patterns.add(buildMultiValuesXMLPattern(sensitiveKey));
+
+            final String lowerCaseKey = sensitiveKey.toLowerCase(Locale.ENGLISH);
+            final char lastChar = lowerCaseKey.charAt(lowerCaseKey.length() - 1);
+            final String[] keys = sensitiveKeysByLastChar[lastChar];
+            if (keys == null) {
+                sensitiveKeysByLastChar[lastChar] = new String[]{lowerCaseKey};
+            } else {
+                final String[] newKeys = new String[keys.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, keys.length);
+                newKeys[keys.length] = lowerCaseKey;
+                sensitiveKeysByLastChar[lastChar] = newKeys;
+            }
         }
         this.patterns.addAll(extraPatterns);
+        this.extraPatterns = ImmutableList.<Pattern>copyOf(extraPatterns);
+        this.luhnMaskingObfuscator = luhnMaskingObfuscator;
     }
 
     @Override
     public String obfuscate(final String originalString, final ILoggingEvent event) {
-        return obfuscate(originalString, patterns, event);
+        // Card numbers can only be masked during the scan if no extra pattern needs to run before
+        final String obfuscatedString = scan(originalString, event, extraPatterns.isEmpty() ? luhnMaskingObfuscator : null);
+        if (obfuscatedString == null) {
+            return obfuscateWithPatterns(originalString, event);
+        } else if (extraPatterns.isEmpty()) {
+            return obfuscatedString;
+        }
+
+        final String obfuscatedStringWithExtraPatterns = obfuscate(obfuscatedString, extraPatterns, event);
+        return luhnMaskingObfuscator != null ? luhnMaskingObfuscator.obfuscate(obfuscatedStringWithExtraPatterns, event) : obfuscatedStringWithExtraPatterns;
+    }
+
+    /**
+     * Reference implementation, which applies the regular expressions one by one (see ObfuscatorBenchmark)
+     */
+    @VisibleForTesting
+    String obfuscateWithPatterns(final String originalString, final ILoggingEvent event) {
+        final String obfuscatedString = obfuscate(originalString, patterns, event);
+        return luhnMaskingObfuscator != null ? luhnMaskingObfuscator.obfuscate(obfuscatedString, event) : obfuscatedString;
+    }
+
+    /**
+     * Mask the sensitive values in a single traversal
+     *
+     * @return the obfuscated String (the original String itself if there is nothing to mask),
+     * or null if some matches overlap and the regular expressions need to be applied instead
+     */
+    @VisibleForTesting
+    String scan(final String originalString, final ILoggingEvent event, @Nullable final LuhnMaskingObfuscator cardNumbersObfuscator) {
+        final int length = originalString.length();
+
+        StringBuilder obfuscatedStringBuilder = null;
+        int unwrittenStart = 0;
+        // End of the text examined by the previous matches (or match attempts): another key in there is ambiguous
+        int examinedEnd = 0;
+        // Position of the '>' closing the previous XML match, if any
+        int previousClosingTag = -1;
+
+        // Start and end of the sensitive value, end of the examined text
+        final int[] match = new int[3];
+        for (int pos = 0; pos < length; pos++) {
+            final char current = originalString.charAt(pos);
+
+            final boolean matched;
+            if (current == '"') {
+                if (pos + 1 >= length || originalString.charAt(pos + 1) != ':' || !endsWithSensitiveKey(originalString, pos)) {
+                    continue;
+                }
+                matched = matchJSONValue(originalString, pos, match);
+            } else if (current == '>') {
+                if (!endsWithSensitiveKey(originalString, pos)) {
+                    continue;
+                }
+                matched = matchXMLValue(originalString, pos, match);
+            } else if (current == '<') {
+                if (!regionMatchesIgnoreCase(originalString, pos, MULTI_VALUES_XML_KEY) || !endsWithSensitiveKey(originalString, pos)) {
+                    continue;
+                }
+                matched = matchMultiValuesXMLValue(originalString, pos, match);
+            } else {
+                continue;
+            }
+
+            if (pos < examinedEnd || (matched && pos == previousClosingTag)) {
+                return null;
+            }
+            examinedEnd = match[2];
+
+            if (!matched) {
+                continue;
+            }
+            if (current == '>') {
+                previousClosingTag = match[2];
+            }
+
+            final String confidentialData = originalString.substring(match[0], match[1]);
+            if (!shouldObfuscate(confidentialData, event)) {
+                continue;
+            }
+
+            if (obfuscatedStringBuilder == null) {
+                obfuscatedStringBuilder = new StringBuilder(length + MASK_LABEL_LENGTH);
+            }
+            append(originalString, unwrittenStart, match[0], obfuscatedStringBuilder, cardNumbersObfuscator);
+            obfuscatedStringBuilder.append(obfuscateConfidentialData(confidentialData));
+            unwrittenStart = match[1];
+        }
+
+        if (obfuscatedStringBuilder == null) {
+            return cardNumbersObfuscator == null ? originalString : cardNumbersObfuscator.obfuscate(originalString, event);
+        }
+        append(originalString, unwrittenStart, length, obfuscatedStringBuilder, cardNumbersObfuscator);
+        return obfuscatedStringBuilder.toString();
+    }
+
+    private void append(final String originalString, final int start, final int end, final StringBuilder obfuscatedStringBuilder, @Nullable final LuhnMaskingObfuscator cardNumbersObfuscator) {
+        if (cardNumbersObfuscator == null) {
+            obfuscatedStringBuilder.append(originalString, start, end);
+        } else {
+            // The sensitive values are always delimited by characters which end card numbers, so the text in between can be masked independently
+            cardNumbersObfuscator.mask(originalString, start, end, obfuscatedStringBuilder);
+        }
+    }
+
+    // See buildJSONPattern: key":\s*([^,{]+)
+    private boolean matchJSONValue(final String originalString, final int quotePos, final int[] match) {
+        final int length = originalString.length();
+
+        int valueStart = quotePos + 2;
+        while (valueStart < length && isWhitespace(originalString.charAt(valueStart))) {
+            valueStart++;
+        }
+        if (valueStart == length || isJSONValueDelimiter(originalString.charAt(valueStart))) {
+            if (valueStart == quotePos + 2) {
+                match[2] = valueStart + 1;
+                return false;
+            }
+            // The regular expression backtracks and the value is the last whitespace
+            match[0] = valueStart - 1;
+            match[1] = valueStart;
+            match[2] = valueStart;
+            return true;
+        }
+
+        int valueEnd = valueStart + 1;
+        while (valueEnd < length && !isJSONValueDelimiter(originalString.charAt(valueEnd))) {
+            valueEnd++;
+        }
+        match[0] = valueStart;
+        match[1] = valueEnd;
+        match[2] = valueEnd;
+        return true;
+    }
+
+    // See buildXMLPattern: key>([^<\n]+)</[^<>]*key>
+    private boolean matchXMLValue(final String originalString, final int openingTagEnd, final int[] match) {
+        final int length = originalString.length();
+
+        final int valueStart = openingTagEnd + 1;
+        final int valueEnd = xmlValueEnd(originalString, valueStart);
+        if (valueEnd == valueStart || valueEnd + 1 >= length || originalString.charAt(valueEnd) != '<' || originalString.charAt(valueEnd + 1) != '/') {
+            match[2] = valueEnd + 1;
+            return false;
+        }
+
+        int closingTagEnd = valueEnd + 2;
+        while (closingTagEnd < length && originalString.charAt(closingTagEnd) != '<' && originalString.charAt(closingTagEnd) != '>') {
+            closingTagEnd++;
+        }
+        match[2] = closingTagEnd + 1;
+        if (closingTagEnd == length || originalString.charAt(closingTagEnd) != '>' || !endsWithSameSensitiveKey(originalString, openingTagEnd, valueEnd + 2, closingTagEnd)) {
+            return false;
+        }
+
+        match[0] = valueStart;
+        match[1] = valueEnd;
+        match[2] = closingTagEnd;
+        return true;
+    }
+
+    // See buildMultiValuesXMLPattern: key</key>\s*<value[^>]*>([^<\n]+)</value>
+    private boolean matchMultiValuesXMLValue(final String originalString, final int keyEnd, final int[] match) {
+        final int length = originalString.length();
+
+        int valueTagStart = keyEnd + MULTI_VALUES_XML_KEY.length();
+        while (valueTagStart < length && isWhitespace(originalString.charAt(valueTagStart))) {
+            valueTagStart++;
+        }
+        if (!regionMatchesIgnoreCase(originalString, valueTagStart, MULTI_VALUES_XML_VALUE)) {
+            match[2] = valueTagStart + MULTI_VALUES_XML_VALUE.length();
+            return false;
+        }
+
+        int valueTagEnd = valueTagStart + MULTI_VALUES_XML_VALUE.length();
+        while (valueTagEnd < length && originalString.charAt(valueTagEnd) != '>') {
+            valueTagEnd++;
+        }
+        if (valueTagEnd == length) {
+            match[2] = length;
+            return false;
+        }
+
+        final int valueStart = valueTagEnd + 1;
+        final int valueEnd = xmlValueEnd(originalString, valueStart);
+        if (valueEnd == valueStart || !regionMatchesIgnoreCase(originalString, valueEnd, MULTI_VALUES_XML_VALUE_END)) {
+            match[2] = valueEnd + MULTI_VALUES_XML_VALUE_END.length();
+            return false;
+        }
+
+        match[0] = valueStart;
+        match[1] = valueEnd;
+        match[2] = valueEnd + MULTI_VALUES_XML_VALUE_END.length();
+        return true;
+    }
+
+    private int xmlValueEnd(final String originalString, final int valueStart) {
+        final int length = originalString.length();
+        int valueEnd = valueStart;
+        while (valueEnd < length && originalString.charAt(valueEnd) != '<' && originalString.charAt(valueEnd) != '\n') {
+            valueEnd++;
+        }
+        return valueEnd;
+    }
+
+    private boolean endsWithSensitiveKey(final String originalString, final int end) {
+        final String[] keys = getCandidateKeys(originalString, end);
+        if (keys == null) {
+            return false;
+        }
+        for (final String key : keys) {
+            if (endsWith(originalString, end, key, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether both tags end with the same key (the closing one, in [closingTagStart, closingTagEnd[)
+    private boolean endsWithSameSensitiveKey(final String originalString, final int openingTagEnd, final int closingTagStart, final int closingTagEnd) {
+        final String[] keys = getCandidateKeys(originalString, openingTagEnd);
+        if (keys == null) {
+            return false;
+        }
+        for (final String key : keys) {
+            if (endsWith(originalString, openingTagEnd, key, 0) && endsWith(originalString, closingTagEnd, key, closingTagStart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String[] getCandidateKeys(final String originalString, final int end) {
+        if (end == 0) {
+            return null;
+        }
+        final char lastChar = toLowerCase(originalString.charAt(end - 1));
+        return lastChar < sensitiveKeysByLastChar.length ? sensitiveKeysByLastChar[lastChar] : null;
+    }
+
+    // Whether the text before end (and after start) is the specified lower case key, ignoring case as the regular expressions do
+    private static boolean endsWith(final String originalString, final int end, final String lowerCaseKey, final int start) {
+        final int keyStart = end - lowerCaseKey.length();
+        if (keyStart < start) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseKey.length(); i++) {
+            if (toLowerCase(originalString.charAt(keyStart + i)) != lowerCaseKey.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatchesIgnoreCase(final String originalString, final int start, final String lowerCaseString) {
+        final int end = start + lowerCaseString.length();
+        return end <= originalString.length() && endsWith(originalString, end, lowerCaseString, start);
+    }
+
+    // Pattern.CASE_INSENSITIVE only folds US-ASCII characters
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    // Same as \s in the patterns
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isJSONValueDelimiter(final char c) {
+        return c == ',' || c == '{';
     }
 
     private Pattern buildJSONPattern(final String key) {
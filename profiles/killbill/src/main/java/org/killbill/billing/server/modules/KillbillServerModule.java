@@ -56,10 +56,12 @@ import org.killbill.billing.server.DefaultServerService;
 import org.killbill.billing.server.ServerService;
 import org.killbill.billing.server.config.KillbillServerConfig;
 import org.killbill.billing.server.filters.ResponseCorsFilter;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher;
 import org.killbill.billing.server.notifications.PushNotificationListener;
 import org.killbill.billing.subscription.glue.DefaultSubscriptionModule;
 import org.killbill.billing.tenant.glue.DefaultTenantModule;
 import org.killbill.billing.usage.glue.UsageModule;
+import org.killbill.billing.util.config.NotificationConfig;
 import org.killbill.billing.util.dao.AuditLogModelDaoMapper;
 import org.killbill.billing.util.dao.RecordIdIdMappingsMapper;
 import org.killbill.billing.util.email.EmailModule;
@@ -82,6 +84,7 @@ import org.killbill.clock.Clock;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.killbill.commons.jdbi.mapper.LowerToCamelBeanMapperFactory;
+import org.skife.config.ConfigurationObjectFactory;
 import org.skife.jdbi.v2.ResultSetMapperFactory;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
@@ -194,6 +197,9 @@ public class KillbillServerModule extends KillbillPlatformModule {
 
     protected void configurePushNotification() {
         bind(ServerService.class).to(DefaultServerService.class).asEagerSingleton();
+        final NotificationConfig notificationConfig = new ConfigurationObjectFactory(skifeConfigSource).build(NotificationConfig.class);
+        bind(NotificationConfig.class).toInstance(notificationConfig);
+        bind(PushNotificationDispatcher.class).asEagerSingleton();
         bind(PushNotificationListener.class).asEagerSingleton();
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.killbill.clock.Clock;
+
+/**
+ * Delivery state of a push notification callback url: the number of in-flight requests is bounded (notifications
+ * beyond that limit wait in a bounded in-memory queue, in order) and, after too many consecutive failures, deliveries
+ * are suspended for a while (circuit breaker) so that an unresponsive endpoint doesn't tie up connections for every event.
+ */
+class CallbackEndpoint {
+
+    private final Semaphore inFlightRequests;
+    private final Queue<PushNotificationKey> pendingNotifications;
+    private final AtomicInteger nbPendingNotifications;
+    private final int maxPendingNotifications;
+    private final AtomicInteger consecutiveFailures;
+    private final int failureThreshold;
+    private final long suspensionMillis;
+    private final Clock clock;
+
+    private volatile long suspendedUntilMillis;
+
+    CallbackEndpoint(final int maxConcurrentRequests, final int maxPendingNotifications, final int failureThreshold, final long suspensionMillis, final Clock clock) {
+        this.inFlightRequests = new Semaphore(maxConcurrentRequests);
+        this.pendingNotifications = new ConcurrentLinkedQueue<PushNotificationKey>();
+        this.nbPendingNotifications = new AtomicInteger(0);
+        this.maxPendingNotifications = maxPendingNotifications;
+        this.consecutiveFailures = new AtomicInteger(0);
+        this.failureThreshold = failureThreshold;
+        this.suspensionMillis = suspensionMillis;
+        this.clock = clock;
+        this.suspendedUntilMillis = 0;
+    }
+
+    /**
+     * @return true if a request can be sent, in which case release must be invoked once it completes
+     */
+    boolean tryAcquire() {
+        // Once the suspension is over, requests go through again: the first failure will re-open the circuit
+        if (isSuspended()) {
+            return false;
+        }
+        return inFlightRequests.tryAcquire();
+    }
+
+    /**
+     * Give back a slot acquired without sending any request
+     */
+    void releaseUnused() {
+        inFlightRequests.release();
+    }
+
+    void release(final boolean success) {
+        inFlightRequests.release();
+        if (success) {
+            consecutiveFailures.set(0);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            suspendedUntilMillis = clock.getUTCNow().getMillis() + suspensionMillis;
+        }
+    }
+
+    boolean isSuspended() {
+        return clock.getUTCNow().getMillis() < suspendedUntilMillis;
+    }
+
+    long getSuspendedUntilMillis() {
+        return suspendedUntilMillis;
+    }
+
+    /**
+     * @return false if the in-memory queue is full
+     */
+    boolean offer(final PushNotificationKey notification) {
+        if (nbPendingNotifications.incrementAndGet() > maxPendingNotifications) {
+            nbPendingNotifications.decrementAndGet();
+            return false;
+        }
+        pendingNotifications.offer(notification);
+        return true;
+    }
+
+    @Nullable
+    PushNotificationKey poll() {
+        final PushNotificationKey notification = pendingNotifications.poll();
+        if (notification != null) {
+            nbPendingNotifications.decrementAndGet();
+        }
+        return notification;
+    }
+
+    boolean hasPendingNotifications() {
+        return !pendingNotifications.isEmpty();
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.tenant.api.TenantApiException;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.util.callcontext.CallContextFactory;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.NotificationConfig;
+import org.killbill.clock.Clock;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.skife.config.TimeSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.Response;
+
+/**
+ * Delivers push notifications to the tenant callbacks.
+ * <p/>
+ * Requests are sent asynchronously (the caller never waits for the remote endpoint), the number of in-flight
+ * requests per callback url is bounded (notifications beyond that limit are queued in memory, in order) and failing
+ * callbacks are suspended for a while (see CallbackEndpoint).
+ * Failed deliveries are persisted in a notification queue and retried with the configured delays. Notifications
+ * which can't be kept in memory (suspended callback, full in-memory queue, shutdown) are persisted as well, without
+ * counting as an attempt.
+ */
+public class PushNotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushNotificationDispatcher.class);
+
+    public static final String PUSH_NOTIFICATION_RETRY_QUEUE = "push-notification-retry-queue";
+
+    private final NotificationConfig config;
+    private final NotificationQueueService notificationQueueService;
+    private final TenantUserApi tenantApi;
+    private final CallContextFactory contextFactory;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final Clock clock;
+    private final ConcurrentMap<String, CallbackEndpoint> endpoints;
+
+    private final Meter delivered;
+    private final Meter failed;
+    private final Meter rejected;
+    private final Meter retried;
+    private final Meter dropped;
+    private final Timer responseTime;
+
+    private volatile AsyncHttpClient httpClient;
+    private volatile NotificationQueue retryQueue;
+
+    @Inject
+    public PushNotificationDispatcher(final NotificationConfig config,
+                                      final NotificationQueueService notificationQueueService,
+                                      final TenantUserApi tenantApi,
+                                      final CallContextFactory contextFactory,
+                                      final InternalCallContextFactory internalCallContextFactory,
+                                      final MetricRegistry metricRegistry,
+                                      final Clock clock) {
+        this.config = config;
+        this.notificationQueueService = notificationQueueService;
+        this.tenantApi = tenantApi;
+        this.contextFactory = contextFactory;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.clock = clock;
+        this.endpoints = new ConcurrentHashMap<String, CallbackEndpoint>();
+
+        this.delivered = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "delivered"));
+        this.failed = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "failed"));
+        this.rejected = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "rejected"));
+        this.retried = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "retried"));
+        this.dropped = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "dropped"));
+        this.responseTime = metricRegistry.timer(MetricRegistry.name(PushNotificationDispatcher.class, "responseTime"));
+    }
+
+    public void initialize(final String serviceName) throws NotificationQueueAlreadyExists {
+        httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeout((int) config.getTimeout().getMillis()).build());
+
+        final NotificationQueueHandler notificationQueueHandler = new NotificationQueueHandler() {
+            @Override
+            public void handleReadyNotification(final NotificationEvent notificationKey, final DateTime eventDate, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+                if (!(notificationKey instanceof PushNotificationKey)) {
+                    log.error("Push notification service received an unexpected event type {}", notificationKey.getClass().getName());
+                    return;
+                }
+
+                final PushNotificationKey key = (PushNotificationKey) notificationKey;
+                if (!isCallbackRegistered(key.getTenantId(), key.getUrl())) {
+                    log.info("Discarding push notification retry {}: the callback has been unregistered", key);
+                    return;
+                }
+                dispatch(key.getTenantId(), key.getUrl(), key.getBody(), key.getAttemptNumber());
+            }
+        };
+
+        retryQueue = notificationQueueService.createNotificationQueue(serviceName,
+                                                                      PUSH_NOTIFICATION_RETRY_QUEUE,
+                                                                      notificationQueueHandler);
+    }
+
+    public void start() {
+        if (retryQueue != null) {
+            retryQueue.startQueue();
+        }
+    }
+
+    public void stop() throws NoSuchNotificationQueue {
+        // In-flight requests fail on close and, as for the notifications still waiting in memory, get persisted for later
+        final AsyncHttpClient httpClient = this.httpClient;
+        this.httpClient = null;
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        for (final CallbackEndpoint endpoint : endpoints.values()) {
+            deferPending(endpoint, getFirstRetryDate());
+        }
+
+        final NotificationQueue retryQueue = this.retryQueue;
+        this.retryQueue = null;
+        if (retryQueue != null) {
+            retryQueue.stopQueue();
+            notificationQueueService.deleteNotificationQueue(retryQueue.getServiceName(), retryQueue.getQueueName());
+        }
+    }
+
+    /**
+     * Send the notification without waiting for the response
+     *
+     * @param tenantId      tenant which registered the callback
+     * @param url           callback url
+     * @param body          json payload
+     * @param attemptNumber number of previous attempts for that notification
+     */
+    public void dispatch(final UUID tenantId, final String url, final String body, final int attemptNumber) {
+        final CallbackEndpoint endpoint = getEndpoint(url);
+        final PushNotificationKey notification = new PushNotificationKey(tenantId, url, body, attemptNumber);
+        if (endpoint.isSuspended()) {
+            rejected.mark();
+            log.debug("Deferring push notification {} for the tenant {}: callback suspended", url, tenantId);
+            persist(notification, new DateTime(endpoint.getSuspendedUntilMillis(), DateTimeZone.UTC));
+            return;
+        }
+        if (!endpoint.offer(notification)) {
+            rejected.mark();
+            log.debug("Deferring push notification {} for the tenant {}: too many pending requests", url, tenantId);
+            persist(notification, getFirstRetryDate());
+            return;
+        }
+
+        sendPending(endpoint);
+    }
+
+    // Send the queued notifications, as long as in-flight requests slots are available
+    private void sendPending(final CallbackEndpoint endpoint) {
+        while (endpoint.tryAcquire()) {
+            final PushNotificationKey notification = endpoint.poll();
+            if (notification != null) {
+                send(endpoint, notification);
+            } else {
+                endpoint.releaseUnused();
+                // Another thread may have queued a notification in the meantime, while we were holding the slot
+                if (!endpoint.hasPendingNotifications()) {
+                    return;
+                }
+            }
+        }
+
+        if (endpoint.isSuspended()) {
+            deferPending(endpoint, new DateTime(endpoint.getSuspendedUntilMillis(), DateTimeZone.UTC));
+        }
+    }
+
+    private void send(final CallbackEndpoint endpoint, final PushNotificationKey notification) {
+        final UUID tenantId = notification.getTenantId();
+        final String url = notification.getUrl();
+
+        final AsyncHttpClient httpClient = this.httpClient;
+        if (httpClient == null) {
+            // Shutting down
+            endpoint.releaseUnused();
+            persist(notification, getFirstRetryDate());
+            return;
+        }
+
+        final BoundRequestBuilder builder = httpClient.preparePost(url);
+        builder.setBody(notification.getBody() == null ? "{}" : notification.getBody());
+        builder.addHeader(PushNotificationListener.HTTP_HEADER_CONTENT_TYPE, PushNotificationListener.CONTENT_TYPE_JSON);
+
+        final long startNanos = System.nanoTime();
+        try {
+            builder.execute(new AsyncCompletionHandler<Response>() {
+                @Override
+                public Response onCompleted(final Response response) throws Exception {
+                    responseTime.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+                    final boolean success = response.getStatusCode() >= 200 && response.getStatusCode() < 300;
+                    endpoint.release(success);
+                    if (success) {
+                        delivered.mark();
+                    } else {
+                        log.warn("Failed to push notification {} for the tenant {}: status code {}", url, tenantId, response.getStatusCode());
+                        onFailure(notification);
+                    }
+                    sendPending(endpoint);
+                    return response;
+                }
+
+                @Override
+                public void onThrowable(final Throwable t) {
+                    endpoint.release(false);
+                    log.warn(String.format("Failed to push notification %s for the tenant %s", url, tenantId), t);
+                    onFailure(notification);
+                    sendPending(endpoint);
+                }
+            });
+        } catch (final IOException e) {
+            endpoint.release(false);
+            log.warn(String.format("Failed to push notification %s for the tenant %s", url, tenantId), e);
+            onFailure(notification);
+        }
+    }
+
+    private void onFailure(final PushNotificationKey notification) {
+        failed.mark();
+
+        final List<TimeSpan> retries = config.getRetries();
+        final int attemptNumber = notification.getAttemptNumber();
+        if (attemptNumber >= retries.size()) {
+            dropped.mark();
+            log.warn("Giving up on push notification {} for the tenant {} after {} attempts", notification.getUrl(), notification.getTenantId(), attemptNumber + 1);
+            return;
+        }
+
+        final DateTime effectiveDate = clock.getUTCNow().plus(retries.get(attemptNumber).getMillis());
+        persist(new PushNotificationKey(notification.getTenantId(), notification.getUrl(), notification.getBody(), attemptNumber + 1), effectiveDate);
+    }
+
+    private void deferPending(final CallbackEndpoint endpoint, final DateTime effectiveDate) {
+        PushNotificationKey notification;
+        while ((notification = endpoint.poll()) != null) {
+            persist(notification, effectiveDate);
+        }
+    }
+
+    // Failed notifications are persisted with their next attempt number, the ones never sent (deferred) as is
+    private void persist(final PushNotificationKey notification, final DateTime effectiveDate) {
+        final NotificationQueue retryQueue = this.retryQueue;
+        if (retryQueue == null) {
+            dropped.mark();
+            log.warn("Dropping push notification {} for the tenant {}: the retry queue isn't available", notification.getUrl(), notification.getTenantId());
+            return;
+        }
+
+        try {
+            final InternalTenantContext context = internalCallContextFactory.createInternalTenantContext(contextFactory.createTenantContext(notification.getTenantId()));
+            retryQueue.recordFutureNotification(effectiveDate, notification, null, null, context.getTenantRecordId());
+            retried.mark();
+        } catch (final IOException e) {
+            dropped.mark();
+            log.warn(String.format("Failed to schedule the retry of push notification %s for the tenant %s", notification.getUrl(), notification.getTenantId()), e);
+        } catch (final RuntimeException e) {
+            // E.g. a payload too large for the notifications table
+            dropped.mark();
+            log.warn(String.format("Failed to schedule the retry of push notification %s for the tenant %s", notification.getUrl(), notification.getTenantId()), e);
+        }
+    }
+
+    private DateTime getFirstRetryDate() {
+        final List<TimeSpan> retries = config.getRetries();
+        return retries.isEmpty() ? clock.getUTCNow() : clock.getUTCNow().plus(retries.get(0).getMillis());
+    }
+
+    private boolean isCallbackRegistered(final UUID tenantId, final String url) {
+        final TenantContext context = contextFactory.createTenantContext(tenantId);
+        try {
+            return tenantApi.getTenantValuesForKey(TenantKey.PUSH_NOTIFICATION_CB.toString(), context).contains(url);
+        } catch (final TenantApiException e) {
+            log.warn("Failed to retrieve push notification callback for tenant {}", tenantId);
+            // Be conservative and retry anyways
+            return true;
+        }
+    }
+
+    private CallbackEndpoint getEndpoint(final String url) {
+        final CallbackEndpoint endpoint = endpoints.get(url);
+        if (endpoint != null) {
+            return endpoint;
+        }
+
+        final CallbackEndpoint newEndpoint = new CallbackEndpoint(config.getMaxConcurrentRequestsPerCallback(),
+                                                                  config.getMaxPendingRequestsPerCallback(),
+                                                                  config.getCircuitBreakerFailureThreshold(),
+                                                                  config.getCircuitBreakerDuration().getMillis(),
+                                                                  clock);
+        final CallbackEndpoint existingEndpoint = endpoints.putIfAbsent(url, newEndpoint);
+        return existingEndpoint != null ? existingEndpoint : newEndpoint;
+    }
+}
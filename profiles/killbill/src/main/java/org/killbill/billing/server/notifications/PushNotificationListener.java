@@ -21,7 +21,6 @@ package org.killbill.billing.server.notifications;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -35,13 +34,6 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ning.http.client.AsyncCompletionHandler;
-import com.ning.http.client.AsyncHttpClient;
-import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
-import com.ning.http.client.AsyncHttpClientConfig;
-import com.ning.http.client.ListenableFuture;
-import com.ning.http.client.Response;
-
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.AllowConcurrentEvents;
@@ -56,18 +48,16 @@ public class PushNotificationListener {
     @VisibleForTesting
     public static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
-    private static final int TIMEOUT_NOTIFICATION = 15; // 15 seconds
-
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
-    private final AsyncHttpClient httpClient;
+    private final PushNotificationDispatcher dispatcher;
     private final ObjectMapper mapper;
 
     @Inject
-    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory) {
-        this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeout(TIMEOUT_NOTIFICATION * 1000).build());
+    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory, final PushNotificationDispatcher dispatcher) {
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
+        this.dispatcher = dispatcher;
         this.mapper = mapper;
     }
 
@@ -76,6 +66,7 @@ public class PushNotificationListener {
     public void triggerPushNotifications(final ExtBusEvent event) {
         final TenantContext context = contextFactory.createTenantContext(event.getTenantId());
         try {
+            // Cached by the tenant api (see DefaultTenantUserApi.CACHED_TENANT_KEY)
             final List<String> callbacks = getCallbacksForTenant(context);
             if (callbacks.isEmpty()) {
                 // Optimization - see https://github.com/killbill/killbill/issues/297
@@ -93,30 +84,9 @@ public class PushNotificationListener {
         final NotificationJson notification = new NotificationJson(event);
         final String body = mapper.writeValueAsString(notification);
         for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, TIMEOUT_NOTIFICATION);
-        }
-    }
-
-    private boolean doPost(final UUID tenantId, final String url, final String body, final int timeoutSec) {
-        final BoundRequestBuilder builder = httpClient.preparePost(url);
-        builder.setBody(body == null ? "{}" : body);
-        builder.addHeader(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
-
-        final Response response;
-        try {
-            final ListenableFuture<Response> futureStatus =
-                    builder.execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(final Response response) throws Exception {
-                            return response;
-                        }
-                    });
-            response = futureStatus.get(timeoutSec, TimeUnit.SECONDS);
-        } catch (final Exception e) {
-            log.warn(String.format("Failed to push notification %s for the tenant %s", url, tenantId), e);
-            return false;
+            // Doesn't block the bus thread: failures are retried by the dispatcher
+            dispatcher.dispatch(tenantId, cur, body, 0);
         }
-        return response.getStatusCode() >= 200 && response.getStatusCode() < 300;
     }
 
     private List<String> getCallbacksForTenant(final TenantContext context) throws TenantApiException {
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.security;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.tenant.api.Tenant;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Tenants whose api credentials were successfully verified, by api key.
+ * <p/>
+ * Verifying the credentials against the tenants table requires a database round trip and a key stretching
+ * (see KillbillCredentialsMatcher), which is what this cache saves on subsequent requests. Only a salted
+ * SHA-256 digest of the secret is kept in memory (the salt is generated at startup and never leaves the JVM)
+ * and entries expire after the configured TTL, which bounds how long a modified secret is still accepted.
+ */
+public class TenantCredentialsCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int SALT_LENGTH = 16;
+
+    private final Cache<String, VerifiedCredentials> verifiedCredentials;
+    private final byte[] salt;
+
+    public TenantCredentialsCache(final long maxEntries, final long ttlMillis) {
+        this.verifiedCredentials = CacheBuilder.newBuilder()
+                                               .maximumSize(maxEntries)
+                                               .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                                               .build();
+        this.salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * @return the tenant if these credentials were verified recently, null otherwise
+     */
+    @Nullable
+    public Tenant get(final String apiKey, final String apiSecret) {
+        final VerifiedCredentials credentials = verifiedCredentials.getIfPresent(apiKey);
+        if (credentials == null) {
+            return null;
+        }
+
+        return MessageDigest.isEqual(credentials.secretDigest, digest(apiSecret)) ? credentials.tenant : null;
+    }
+
+    public void put(final String apiKey, final String apiSecret, final Tenant tenant) {
+        verifiedCredentials.put(apiKey, new VerifiedCredentials(digest(apiSecret), tenant));
+    }
+
+    public void invalidateAll() {
+        verifiedCredentials.invalidateAll();
+    }
+
+    private byte[] digest(final String apiSecret) {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            // Every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        messageDigest.update(salt);
+        return messageDigest.digest(apiSecret.getBytes(Charsets.UTF_8));
+    }
+
+    private static final class VerifiedCredentials {
+
+        private final byte[] secretDigest;
+        private final Tenant tenant;
+
+        private VerifiedCredentials(final byte[] secretDigest, final Tenant tenant) {
+            this.secretDigest = secretDigest;
+            this.tenant = tenant;
+        }
+    }
+}
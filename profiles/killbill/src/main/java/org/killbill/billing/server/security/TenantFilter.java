@@ -44,6 +44,7 @@ import org.killbill.billing.server.modules.KillbillPlatformModule;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.util.config.SecurityConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,7 +65,12 @@ public class TenantFilter implements Filter {
     @Named(KillbillPlatformModule.SHIRO_DATA_SOURCE_ID_NAMED)
     protected DataSource dataSource;
 
+    @Inject
+    protected SecurityConfig securityConfig;
+
     private ModularRealmAuthenticator modularRealmAuthenticator;
+    // Null if disabled
+    private TenantCredentialsCache tenantCredentialsCache;
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
@@ -72,6 +78,10 @@ public class TenantFilter implements Filter {
         // We use Shiro to verify the api credentials - but the Shiro Subject is only used for RBAC
         modularRealmAuthenticator = new ModularRealmAuthenticator();
         modularRealmAuthenticator.setRealms(ImmutableList.<Realm>of(killbillJdbcTenantRealm));
+
+        if (securityConfig.getTenantCredentialsCacheMaxEntries() > 0) {
+            tenantCredentialsCache = new TenantCredentialsCache(securityConfig.getTenantCredentialsCacheMaxEntries(), securityConfig.getTenantCredentialsCacheTTL().getMillis());
+        }
     }
 
     @Override
@@ -92,6 +102,14 @@ public class TenantFilter implements Filter {
             return;
         }
 
+        // Credentials verified recently: skip the database lookups and the key stretching
+        final Tenant cachedTenant = tenantCredentialsCache == null ? null : tenantCredentialsCache.get(apiKey, apiSecret);
+        if (cachedTenant != null) {
+            request.setAttribute(TENANT, cachedTenant);
+            chain.doFilter(request, response);
+            return;
+        }
+
         // Verify the apiKey/apiSecret combo
         final AuthenticationToken token = new UsernamePasswordToken(apiKey, apiSecret);
         try {
@@ -105,6 +123,9 @@ public class TenantFilter implements Filter {
         try {
             // Load the tenant in the request object (apiKey is unique across tenants)
             final Tenant tenant = tenantUserApi.getTenantByApiKey(apiKey);
+            if (tenantCredentialsCache != null) {
+                tenantCredentialsCache.put(apiKey, apiSecret, tenant);
+            }
             request.setAttribute(TENANT, tenant);
 
             chain.doFilter(request, response);
@@ -124,6 +145,9 @@ public class TenantFilter implements Filter {
 
     @Override
     public void destroy() {
+        if (tenantCredentialsCache != null) {
+            tenantCredentialsCache.invalidateAll();
+        }
     }
 
     private boolean shouldContinueIfTenantInformationIsWrongOrMissing(final ServletRequest request) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.log;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.log.ScopedDebugLogging;
+import org.killbill.billing.util.log.ScopedDebugLogging.PreviousContext;
+import org.slf4j.MDC;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class TestScopedDebugTurboFilter extends ServerTestSuiteNoDB {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger killbillLogger = loggerContext.getLogger("org.killbill.billing.invoice.InvoiceDispatcher");
+    private final Logger otherLogger = loggerContext.getLogger("jdbc.sqlonly");
+
+    private ScopedDebugTurboFilter filter;
+    private ScopedDebugLogging scopedDebugLogging;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        scopedDebugLogging = new ScopedDebugLogging();
+        filter = new ScopedDebugTurboFilter();
+        filter.setScopedDebugLogging(scopedDebugLogging);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        loggerContext.resetTurboFilterList();
+        MDC.remove(ScopedDebugLogging.MDC_TENANT_RECORD_ID);
+        MDC.remove(ScopedDebugLogging.MDC_ACCOUNT_RECORD_ID);
+    }
+
+    @Test(groups = "fast")
+    public void testNothingEnabled() throws Exception {
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+    }
+
+    @Test(groups = "fast")
+    public void testEnabledForTenant() throws Exception {
+        scopedDebugLogging.enableForTenant(1L);
+
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.ACCEPT);
+        Assert.assertEquals(decide(killbillLogger, Level.TRACE), FilterReply.NEUTRAL);
+        Assert.assertEquals(decide(otherLogger, Level.DEBUG), FilterReply.NEUTRAL);
+
+        scopedDebugLogging.setContext(new InternalTenantContext(3L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+
+        MDC.remove(ScopedDebugLogging.MDC_TENANT_RECORD_ID);
+        MDC.remove(ScopedDebugLogging.MDC_ACCOUNT_RECORD_ID);
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+
+        scopedDebugLogging.disableForTenant(1L);
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+    }
+
+    @Test(groups = "fast")
+    public void testEnabledForAccount() throws Exception {
+        scopedDebugLogging.enableForAccount(2L);
+
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.ACCEPT);
+
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 4L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+
+        // No account in the context (e.g. tenant-level operations)
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, null));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+    }
+
+    @Test(groups = "fast")
+    public void testIsDebugEnabled() throws Exception {
+        loggerContext.addTurboFilter(filter);
+        killbillLogger.setLevel(Level.INFO);
+        otherLogger.setLevel(Level.INFO);
+
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertFalse(killbillLogger.isDebugEnabled());
+
+        scopedDebugLogging.enableForAccount(2L);
+        Assert.assertTrue(killbillLogger.isDebugEnabled());
+        Assert.assertFalse(otherLogger.isDebugEnabled());
+    }
+
+    @Test(groups = "fast")
+    public void testNestedContexts() throws Exception {
+        scopedDebugLogging.enableForAccount(2L);
+
+        final PreviousContext outerPreviousContext = scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.ACCEPT);
+
+        final PreviousContext innerPreviousContext = scopedDebugLogging.setContext(new InternalTenantContext(1L, 4L));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+
+        // The outer scope gets its values back
+        scopedDebugLogging.restoreContext(innerPreviousContext);
+        Assert.assertEquals(MDC.get(ScopedDebugLogging.MDC_ACCOUNT_RECORD_ID), "2");
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.ACCEPT);
+
+        scopedDebugLogging.restoreContext(outerPreviousContext);
+        Assert.assertNull(MDC.get(ScopedDebugLogging.MDC_TENANT_RECORD_ID));
+        Assert.assertNull(MDC.get(ScopedDebugLogging.MDC_ACCOUNT_RECORD_ID));
+        Assert.assertEquals(decide(killbillLogger, Level.DEBUG), FilterReply.NEUTRAL);
+    }
+
+    @Test(groups = "fast")
+    public void testNotInitialized() throws Exception {
+        final ScopedDebugTurboFilter uninitializedFilter = new ScopedDebugTurboFilter();
+        scopedDebugLogging.enableForAccount(2L);
+        scopedDebugLogging.setContext(new InternalTenantContext(1L, 2L));
+        Assert.assertEquals(uninitializedFilter.decide(null, killbillLogger, Level.DEBUG, null, null, null), FilterReply.NEUTRAL);
+    }
+
+    private FilterReply decide(final Logger logger, final Level level) {
+        return filter.decide(null, logger, level, null, null, null);
+    }
+}
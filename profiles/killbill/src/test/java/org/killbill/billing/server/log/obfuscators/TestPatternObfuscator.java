@@ -17,12 +17,15 @@
 
 package org.killbill.billing.server.log.obfuscators;
 
+import java.util.regex.Pattern;
+
 import org.killbill.billing.server.log.ServerTestSuiteNoDB;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.collect.ImmutableList;
 
 public class TestPatternObfuscator extends ServerTestSuiteNoDB {
 
@@ -278,6 +281,26 @@ public class TestPatternObfuscator extends ServerTestSuiteNoDB {
                event);
     }
 
+    @Test(groups = "fast")
+    public void testOverlappingValuesFallBackToPatterns() throws Exception {
+        // The comma is missing, so the number value swallows the name one: the output depends on the order of the patterns
+        final String input = "{\"number\": \"1\" \"name\": \"abc\", \"currency\": \"USD\"}";
+        Assert.assertNull(obfuscator.scan(input, Mockito.mock(ILoggingEvent.class), null));
+
+        verify(input, "{\"number\": ******MASKED******, \"currency\": \"USD\"}");
+    }
+
+    @Test(groups = "fast")
+    public void testCardNumbersAreMaskedInTheSamePass() throws Exception {
+        final PatternObfuscator obfuscatorWithLuhn = new PatternObfuscator(ImmutableList.<Pattern>of(), new LuhnMaskingObfuscator());
+        final ILoggingEvent event = Mockito.mock(ILoggingEvent.class);
+        final String input = "{\"name\":\"John\",\"description\":\"Card 4111 1111 1111 1111\",\"xid\":\"42\"}";
+
+        final String obfuscated = obfuscatorWithLuhn.obfuscate(input, event);
+        Assert.assertEquals(obfuscated, "{\"name\":MASKED,\"description\":\"Card ****MASKED*****1111\",\"xid\":MASKED");
+        Assert.assertEquals(obfuscated, obfuscatorWithLuhn.obfuscateWithPatterns(input, event));
+    }
+
     private void verify(final String input, final ILoggingEvent event) {
         verify(input, input, event);
     }
@@ -289,5 +312,7 @@ public class TestPatternObfuscator extends ServerTestSuiteNoDB {
     private void verify(final String input, final String output, final ILoggingEvent event) {
         final String obfuscated = obfuscator.obfuscate(input, event);
         Assert.assertEquals(obfuscated, output, obfuscated);
+        // The single-pass scanner and the regular expressions have to agree
+        Assert.assertEquals(obfuscator.obfuscateWithPatterns(input, event), obfuscated);
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.UUID;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.clock.ClockMock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCallbackEndpoint extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testConcurrentRequestsAreBounded() throws Exception {
+        final CallbackEndpoint endpoint = new CallbackEndpoint(2, 100, 5, 60000, new ClockMock());
+
+        Assert.assertTrue(endpoint.tryAcquire());
+        Assert.assertTrue(endpoint.tryAcquire());
+        Assert.assertFalse(endpoint.tryAcquire());
+
+        endpoint.release(true);
+        Assert.assertTrue(endpoint.tryAcquire());
+    }
+
+    @Test(groups = "fast")
+    public void testFailingEndpointIsSuspended() throws Exception {
+        final ClockMock clock = new ClockMock();
+        final CallbackEndpoint endpoint = new CallbackEndpoint(10, 100, 2, 60000, clock);
+
+        // Non consecutive failures don't suspend the endpoint
+        failOnce(endpoint);
+        Assert.assertTrue(endpoint.tryAcquire());
+        endpoint.release(true);
+        failOnce(endpoint);
+        Assert.assertFalse(endpoint.isSuspended());
+
+        failOnce(endpoint);
+        Assert.assertTrue(endpoint.isSuspended());
+        Assert.assertFalse(endpoint.tryAcquire());
+
+        clock.addDeltaFromReality(60001);
+        Assert.assertFalse(endpoint.isSuspended());
+
+        // A new failure re-opens the circuit right away
+        failOnce(endpoint);
+        Assert.assertTrue(endpoint.isSuspended());
+    }
+
+    @Test(groups = "fast")
+    public void testPendingNotificationsAreBounded() throws Exception {
+        final CallbackEndpoint endpoint = new CallbackEndpoint(1, 2, 5, 60000, new ClockMock());
+        final PushNotificationKey first = new PushNotificationKey(UUID.randomUUID(), "http://127.0.0.1/callmeback", "{\"n\":1}", 0);
+        final PushNotificationKey second = new PushNotificationKey(UUID.randomUUID(), "http://127.0.0.1/callmeback", "{\"n\":2}", 0);
+
+        Assert.assertFalse(endpoint.hasPendingNotifications());
+        Assert.assertTrue(endpoint.offer(first));
+        Assert.assertTrue(endpoint.offer(second));
+        Assert.assertFalse(endpoint.offer(new PushNotificationKey(UUID.randomUUID(), "http://127.0.0.1/callmeback", "{}", 0)));
+
+        // First in, first out
+        Assert.assertEquals(endpoint.poll(), first);
+        Assert.assertTrue(endpoint.offer(first));
+        Assert.assertEquals(endpoint.poll(), second);
+        Assert.assertEquals(endpoint.poll(), first);
+        Assert.assertNull(endpoint.poll());
+        Assert.assertFalse(endpoint.hasPendingNotifications());
+    }
+
+    private void failOnce(final CallbackEndpoint endpoint) {
+        Assert.assertTrue(endpoint.tryAcquire());
+        endpoint.release(false);
+    }
+}
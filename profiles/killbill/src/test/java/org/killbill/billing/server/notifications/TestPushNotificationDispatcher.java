@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.util.callcontext.CallContextFactory;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.NotificationConfig;
+import org.killbill.clock.ClockMock;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationQueue;
+import org.killbill.notificationq.api.NotificationQueueService;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+
+public class TestPushNotificationDispatcher extends ServerTestSuiteNoDB {
+
+    private static final int SERVER_PORT = 8089;
+    private static final String CALLBACK_ENDPOINT = "/callmeback";
+    private static final String CALLBACK = "http://127.0.0.1:" + SERVER_PORT + CALLBACK_ENDPOINT;
+
+    private Server server;
+    private StubServlet stubServlet;
+    private NotificationQueue retryQueue;
+    private MetricRegistry metricRegistry;
+    private PushNotificationDispatcher dispatcher;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        stubServlet = new StubServlet();
+        server = new Server(SERVER_PORT);
+        final ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(stubServlet), CALLBACK_ENDPOINT);
+        server.setHandler(context);
+        server.start();
+
+        final NotificationConfig config = Mockito.mock(NotificationConfig.class);
+        Mockito.when(config.getTimeout()).thenReturn(new TimeSpan("5s"));
+        Mockito.when(config.getMaxConcurrentRequestsPerCallback()).thenReturn(1);
+        Mockito.when(config.getMaxPendingRequestsPerCallback()).thenReturn(100);
+        Mockito.when(config.getRetries()).thenReturn(ImmutableList.<TimeSpan>of(new TimeSpan("1m"), new TimeSpan("5m")));
+        Mockito.when(config.getCircuitBreakerFailureThreshold()).thenReturn(5);
+        Mockito.when(config.getCircuitBreakerDuration()).thenReturn(new TimeSpan("1m"));
+
+        retryQueue = Mockito.mock(NotificationQueue.class);
+        final NotificationQueueService notificationQueueService = Mockito.mock(NotificationQueueService.class);
+        Mockito.when(notificationQueueService.createNotificationQueue(Mockito.anyString(), Mockito.anyString(), Mockito.<NotificationQueueHandler>any())).thenReturn(retryQueue);
+
+        final CallContextFactory contextFactory = Mockito.mock(CallContextFactory.class);
+        Mockito.when(contextFactory.createTenantContext(Mockito.<UUID>any())).thenReturn(Mockito.mock(TenantContext.class));
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalTenantContext(Mockito.<TenantContext>any())).thenReturn(new InternalTenantContext(1L, null));
+
+        metricRegistry = new MetricRegistry();
+        dispatcher = new PushNotificationDispatcher(config, notificationQueueService, Mockito.mock(TenantUserApi.class), contextFactory, internalCallContextFactory, metricRegistry, new ClockMock());
+        dispatcher.initialize("server-service");
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        dispatcher.stop();
+        server.stop();
+    }
+
+    @Test(groups = "fast")
+    public void testSuccessfulDelivery() throws Exception {
+        stubServlet.setStatus(HttpServletResponse.SC_OK);
+
+        dispatcher.dispatch(UUID.randomUUID(), CALLBACK, "{\"eventType\":\"ACCOUNT_CREATION\"}", 0);
+
+        waitForMeter("delivered", 1);
+        Assert.assertEquals(stubServlet.getReceivedCalls(), 1);
+        Mockito.verify(retryQueue, Mockito.never()).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.<Long>any(), Mockito.<Long>any());
+    }
+
+    @Test(groups = "fast")
+    public void testFailedDeliveryIsRetried() throws Exception {
+        stubServlet.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        final UUID tenantId = UUID.randomUUID();
+
+        dispatcher.dispatch(tenantId, CALLBACK, "{\"eventType\":\"ACCOUNT_CREATION\"}", 0);
+
+        waitForMeter("retried", 1);
+        final ArgumentCaptor<NotificationEvent> key = ArgumentCaptor.forClass(NotificationEvent.class);
+        Mockito.verify(retryQueue).recordFutureNotification(Mockito.<DateTime>any(), key.capture(), Mockito.<UUID>any(), Mockito.<Long>any(), Mockito.eq(1L));
+        final PushNotificationKey pushNotificationKey = (PushNotificationKey) key.getValue();
+        Assert.assertEquals(pushNotificationKey.getTenantId(), tenantId);
+        Assert.assertEquals(pushNotificationKey.getUrl(), CALLBACK);
+        Assert.assertEquals(pushNotificationKey.getBody(), "{\"eventType\":\"ACCOUNT_CREATION\"}");
+        Assert.assertEquals(pushNotificationKey.getAttemptNumber(), (Integer) 1);
+        Assert.assertEquals(getMeterCount("failed"), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testDeliveryIsDroppedAfterLastRetry() throws Exception {
+        stubServlet.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+        dispatcher.dispatch(UUID.randomUUID(), CALLBACK, "{}", 2);
+
+        waitForMeter("dropped", 1);
+        Assert.assertEquals(getMeterCount("retried"), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testOverLimitDeliveriesAreQueuedInOrder() throws Exception {
+        stubServlet.setStatus(HttpServletResponse.SC_OK);
+
+        // Only one in-flight request allowed: the other ones wait in memory
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(UUID.randomUUID(), CALLBACK, "{\"n\":" + i + "}", 0);
+        }
+
+        waitForMeter("delivered", 5);
+        Assert.assertEquals(stubServlet.getReceivedBodies(), ImmutableList.<String>of("{\"n\":0}", "{\"n\":1}", "{\"n\":2}", "{\"n\":3}", "{\"n\":4}"));
+        Assert.assertEquals(getMeterCount("rejected"), 0);
+        Mockito.verify(retryQueue, Mockito.never()).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.<Long>any(), Mockito.<Long>any());
+    }
+
+    @Test(groups = "fast")
+    public void testRetryQueueFailureIsCounted() throws Exception {
+        stubServlet.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Mockito.doThrow(new IllegalStateException("Data too long for column 'event_json'"))
+               .when(retryQueue).recordFutureNotification(Mockito.<DateTime>any(), Mockito.<NotificationEvent>any(), Mockito.<UUID>any(), Mockito.<Long>any(), Mockito.<Long>any());
+
+        dispatcher.dispatch(UUID.randomUUID(), CALLBACK, "{}", 0);
+
+        waitForMeter("dropped", 1);
+        Assert.assertEquals(getMeterCount("failed"), 1);
+        Assert.assertEquals(getMeterCount("retried"), 0);
+    }
+
+    private void waitForMeter(final String name, final long expectedCount) throws InterruptedException {
+        long remainingMs = 10000;
+        while (getMeterCount(name) < expectedCount && remainingMs > 0) {
+            Thread.sleep(100);
+            remainingMs -= 100;
+        }
+        Assert.assertEquals(getMeterCount(name), expectedCount);
+    }
+
+    private long getMeterCount(final String name) {
+        return metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, name)).getCount();
+    }
+
+    private static final class StubServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 2381634128795431862L;
+
+        private final AtomicInteger receivedCalls = new AtomicInteger(0);
+        private final List<String> receivedBodies = Collections.synchronizedList(new ArrayList<String>());
+
+        private volatile int status;
+
+        @Override
+        protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+            receivedCalls.incrementAndGet();
+            receivedBodies.add(CharStreams.toString(request.getReader()));
+            response.setStatus(status);
+        }
+
+        public void setStatus(final int status) {
+            this.status = status;
+        }
+
+        public int getReceivedCalls() {
+            return receivedCalls.get();
+        }
+
+        public List<String> getReceivedBodies() {
+            synchronized (receivedBodies) {
+                return new ArrayList<String>(receivedBodies);
+            }
+        }
+    }
+}
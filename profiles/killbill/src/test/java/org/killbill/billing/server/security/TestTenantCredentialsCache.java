@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.security;
+
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.billing.tenant.api.Tenant;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTenantCredentialsCache extends ServerTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testOnlyMatchingSecretsAreTrusted() throws Exception {
+        final TenantCredentialsCache cache = new TenantCredentialsCache(10, 60000);
+        final Tenant tenant = Mockito.mock(Tenant.class);
+
+        Assert.assertNull(cache.get("bob", "bobIsFr3nch"));
+
+        cache.put("bob", "bobIsFr3nch", tenant);
+        Assert.assertEquals(cache.get("bob", "bobIsFr3nch"), tenant);
+        Assert.assertNull(cache.get("bob", "bobIsN0tFr3nch"));
+        Assert.assertNull(cache.get("bobIsFr3nch", "bob"));
+
+        // A wrong secret doesn't evict the verified one
+        Assert.assertEquals(cache.get("bob", "bobIsFr3nch"), tenant);
+
+        cache.invalidateAll();
+        Assert.assertNull(cache.get("bob", "bobIsFr3nch"));
+    }
+
+    @Test(groups = "fast")
+    public void testEntriesExpire() throws Exception {
+        final TenantCredentialsCache cache = new TenantCredentialsCache(10, 1);
+        cache.put("bob", "bobIsFr3nch", Mockito.mock(Tenant.class));
+
+        Thread.sleep(10);
+        Assert.assertNull(cache.get("bob", "bobIsFr3nch"));
+    }
+}
@@ -18,28 +18,37 @@
 package org.killbill.billing.usage.api.svcs;
 
 import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.RawUsage;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 public class DefaultInternalUserApi implements InternalUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
+    private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
-    public DefaultInternalUserApi(final RolledUpUsageDao rolledUpUsageDao) {
+    public DefaultInternalUserApi(final RolledUpUsageDao rolledUpUsageDao, final InternalCallContextFactory internalCallContextFactory) {
         this.rolledUpUsageDao = rolledUpUsageDao;
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @Override
@@ -53,4 +62,22 @@ public class DefaultInternalUserApi implements InternalUserApi {
             }
         }));
     }
+
+    @Override
+    public List<RawUsage> getAggregatedUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalTenantContext internalTenantContext) {
+        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, transitionTimes, internalTenantContext);
+        return ImmutableList.copyOf(Iterables.transform(usage, new Function<RolledUpUsageModelDao, RawUsage>() {
+            @Override
+            public RawUsage apply(final RolledUpUsageModelDao input) {
+                return new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount());
+            }
+        }));
+    }
+
+    @Override
+    public boolean recordRolledUpUsage(final SubscriptionUsageRecord record, @Nullable final String trackingId, final CallContext context) {
+        Preconditions.checkArgument(trackingId == null || trackingId.length() <= MAX_TRACKING_ID_LENGTH, "trackingId should be at most %s characters", MAX_TRACKING_ID_LENGTH);
+        final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(record.getSubscriptionId(), ObjectType.SUBSCRIPTION, context);
+        return rolledUpUsageDao.record(record.getSubscriptionId(), RolledUpUsageModelDao.fromSubscriptionUsageRecord(record), trackingId, internalCallContext);
+    }
 }
@@ -16,30 +16,99 @@
 
 package org.killbill.billing.usage.dao;
 
-import java.math.BigDecimal;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private final IDBI dbi;
     private final RolledUpUsageSqlDao rolledUpUsageSqlDao;
 
     @Inject
     public DefaultRolledUpUsageDao(final IDBI dbi) {
+        this.dbi = dbi;
         this.rolledUpUsageSqlDao = dbi.onDemand(RolledUpUsageSqlDao.class);
     }
 
     @Override
     public void record(final UUID subscriptionId, final String unitType, final LocalDate date, final Long amount, final InternalCallContext context) {
         final RolledUpUsageModelDao rolledUpUsageModelDao = new RolledUpUsageModelDao(subscriptionId, unitType, date, amount);
-        rolledUpUsageSqlDao.create(rolledUpUsageModelDao, context);
+        record(ImmutableList.<RolledUpUsageModelDao>of(rolledUpUsageModelDao), context);
+    }
+
+    @Override
+    public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        if (Iterables.isEmpty(usages)) {
+            return;
+        }
+        rolledUpUsageSqlDao.batchCreate(usages, context);
+    }
+
+    @Override
+    public boolean record(final UUID subscriptionId, final Iterable<RolledUpUsageModelDao> usages, @Nullable final String trackingId, final InternalCallContext context) {
+        if (trackingId == null) {
+            record(usages, context);
+            return true;
+        }
+
+        // Fast path for retries
+        if (rolledUpUsageSqlDao.getTrackingIdRecordId(subscriptionId, trackingId, context) != null) {
+            return false;
+        }
+
+        try {
+            dbi.inTransaction(new TransactionCallback<Void>() {
+                @Override
+                public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                    final RolledUpUsageSqlDao transactional = handle.attach(RolledUpUsageSqlDao.class);
+                    // Inserted first, so that a concurrent submission with the same tracking id blocks on the unique index
+                    transactional.createTrackingId(subscriptionId, trackingId, context);
+                    if (!Iterables.isEmpty(usages)) {
+                        transactional.batchCreate(usages, context);
+                    }
+                    return null;
+                }
+            });
+        } catch (final UnableToExecuteStatementException e) {
+            // Lost the race against a concurrent submission
+            if (rolledUpUsageSqlDao.getTrackingIdRecordId(subscriptionId, trackingId, context) != null) {
+                return false;
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public List<RolledUpUsageModelDao> getAggregatedUsageForSubscription(final UUID subscriptionId, final List<LocalDate> transitionTimes, final InternalTenantContext context) {
+        final List<RolledUpUsageModelDao> result = new LinkedList<RolledUpUsageModelDao>();
+        // The database sums the usage of each interval: one row per unit type is returned, whatever the number of days or submissions
+        for (int i = 0; i < transitionTimes.size() - 1; i++) {
+            final LocalDate intervalStartDate = transitionTimes.get(i);
+            for (final RolledUpUsageModelDao intervalUsage : rolledUpUsageSqlDao.getUsageTotalsForSubscription(subscriptionId,
+                                                                                                              intervalStartDate.toDate(),
+                                                                                                              transitionTimes.get(i + 1).toDate(),
+                                                                                                              context)) {
+                result.add(new RolledUpUsageModelDao(subscriptionId, intervalUsage.getUnitType(), intervalStartDate, intervalUsage.getAmount()));
+            }
+        }
+        return result;
     }
 
     @Override
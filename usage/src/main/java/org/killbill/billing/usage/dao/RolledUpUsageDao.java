@@ -19,6 +19,8 @@ package org.killbill.billing.usage.dao;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -28,8 +30,28 @@ public interface RolledUpUsageDao {
     void record(UUID subscriptionId, String unitType, LocalDate date,
                 Long amount, InternalCallContext context);
 
+    void record(Iterable<RolledUpUsageModelDao> usages, InternalCallContext context);
+
+    /**
+     * Record usage for a subscription, at most once per tracking id.
+     *
+     * @param subscriptionId the subscription all usages belong to
+     * @param usages         the usages to record
+     * @param trackingId     idempotency key set by the producer, unique per subscription (null to always record)
+     * @param context        the call context
+     * @return false if usage with that tracking id was already recorded for the subscription (nothing is recorded)
+     */
+    boolean record(UUID subscriptionId, Iterable<RolledUpUsageModelDao> usages, @Nullable String trackingId, InternalCallContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, String unitType, InternalTenantContext context);
 
+    /**
+     * @param transitionTimes sorted interval boundaries
+     * @return one entry per unit type and per [transitionTimes[i], transitionTimes[i+1]) interval, dated with the start of the interval,
+     * with the total amount recorded during that interval
+     */
+    List<RolledUpUsageModelDao> getAggregatedUsageForSubscription(UUID subscriptionId, List<LocalDate> transitionTimes, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, LocalDate startDate, LocalDate endDate, InternalTenantContext context);
 
 
@@ -16,10 +16,15 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UnitUsageRecord;
+import org.killbill.billing.usage.api.UsageRecord;
 import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
@@ -47,6 +52,16 @@ public class RolledUpUsageModelDao extends EntityModelDaoBase implements EntityM
         this(UUIDs.randomUUID(), null, null, subscriptionId, unitType, recordDate, amount);
     }
 
+    public static List<RolledUpUsageModelDao> fromSubscriptionUsageRecord(final SubscriptionUsageRecord record) {
+        final List<RolledUpUsageModelDao> usages = new LinkedList<RolledUpUsageModelDao>();
+        for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+            for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount()));
+            }
+        }
+        return usages;
+    }
+
     public UUID getSubscriptionId() {
         return subscriptionId;
     }
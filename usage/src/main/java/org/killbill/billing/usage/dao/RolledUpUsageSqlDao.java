@@ -28,8 +28,10 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 
 @EntitySqlDaoStringTemplate()
 public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao, Entity> {
@@ -38,6 +40,29 @@ public interface RolledUpUsageSqlDao extends EntitySqlDao<RolledUpUsageModelDao,
     public void create(@BindBean RolledUpUsageModelDao rolledUpUsage,
                        @InternalTenantContextBinder final InternalCallContext context);
 
+    // Single JDBC batch (and transaction, when invoked on demand) for all rows
+    @SqlBatch
+    @BatchChunkSize(1000)
+    public void batchCreate(@BindBean Iterable<RolledUpUsageModelDao> rolledUpUsages,
+                            @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlQuery
+    public Long getTrackingIdRecordId(@Bind("subscriptionId") final UUID subscriptionId,
+                                      @Bind("trackingId") final String trackingId,
+                                      @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlUpdate
+    public void createTrackingId(@Bind("subscriptionId") final UUID subscriptionId,
+                                 @Bind("trackingId") final String trackingId,
+                                 @InternalTenantContextBinder final InternalCallContext context);
+
+    // Only the unit type and amount of the returned rows are set
+    @SqlQuery
+    public List<RolledUpUsageModelDao> getUsageTotalsForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                    @Bind("startDate") final Date startDate,
+                                                                    @Bind("endDate") final Date endDate,
+                                                                    @InternalTenantContextBinder final InternalTenantContext context);
+
     @SqlQuery
     public List<RolledUpUsageModelDao> getUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
                                                                @Bind("startDate") final Date startDate,
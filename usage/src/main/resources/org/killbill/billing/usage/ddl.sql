@@ -15,6 +15,22 @@ CREATE TABLE rolled_up_usage (
     PRIMARY KEY(record_id)
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 CREATE UNIQUE INDEX rolled_up_usage_id ON rolled_up_usage(id);
-CREATE INDEX rolled_up_usage_subscription_id ON rolled_up_usage(subscription_id ASC);
+CREATE INDEX rolled_up_usage_subscription_id ON rolled_up_usage(subscription_id, record_date);
 CREATE INDEX rolled_up_usage_tenant_account_record_id ON rolled_up_usage(tenant_record_id, account_record_id);
 CREATE INDEX rolled_up_usage_account_record_id ON rolled_up_usage(account_record_id);
+
+-- Tracking ids are only needed for as long as producers may retry a submission: they aren't purged by Kill Bill,
+-- old rows can be deleted periodically, e.g. delete from rolled_up_usage_tracking_ids where created_date < now() - interval 30 day;
+DROP TABLE IF EXISTS rolled_up_usage_tracking_ids;
+CREATE TABLE rolled_up_usage_tracking_ids (
+    record_id int(11) unsigned NOT NULL AUTO_INCREMENT,
+    subscription_id char(36) NOT NULL,
+    tracking_id varchar(128) NOT NULL,
+    created_by varchar(50) NOT NULL,
+    created_date datetime NOT NULL,
+    account_record_id int(11) unsigned default null,
+    tenant_record_id int(11) unsigned default null,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_tracking_ids_tenant_subscription_tracking_id ON rolled_up_usage_tracking_ids(tenant_record_id, subscription_id, tracking_id);
+CREATE INDEX rolled_up_usage_tracking_ids_created_date ON rolled_up_usage_tracking_ids(created_date);
@@ -16,15 +16,26 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.joda.time.LocalDate;
 import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
 
@@ -91,6 +102,166 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
 
 
 
+    @Test(groups = "slow")
+    public void testBatchRecord() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        for (LocalDate curDate = startDate; curDate.compareTo(endDate) < 0; curDate = curDate.plusDays(1)) {
+            usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, curDate, 1L));
+            usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, curDate, 2L));
+        }
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result1 = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType1, internalCallContext);
+        assertEquals(result1.size(), 31);
+        final List<RolledUpUsageModelDao> result2 = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(result2.size(), 62);
+
+        // No-op
+        rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(), internalCallContext);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordWithTrackingId() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final UUID otherSubscriptionId = UUID.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final LocalDate endDate = new LocalDate(2013, 2, 1);
+
+        final List<RolledUpUsageModelDao> usages = ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType, startDate, 10L),
+                                                                                          new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(1), 5L));
+        assertTrue(rolledUpUsageDao.record(subscriptionId, usages, "tracking-1", internalCallContext));
+        // Retry
+        assertFalse(rolledUpUsageDao.record(subscriptionId, usages, "tracking-1", internalCallContext));
+        assertEquals(rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContext).size(), 2);
+        assertEquals(rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, ImmutableList.<LocalDate>of(startDate, endDate), internalCallContext).get(0).getAmount(), (Long) 15L);
+
+        // New submission
+        final List<RolledUpUsageModelDao> otherUsages = ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(2), 1L));
+        assertTrue(rolledUpUsageDao.record(subscriptionId, otherUsages, "tracking-2", internalCallContext));
+        assertEquals(rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContext).size(), 3);
+
+        // Tracking ids are scoped by subscription
+        final List<RolledUpUsageModelDao> otherSubscriptionUsages = ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(otherSubscriptionId, unitType, startDate, 7L));
+        assertTrue(rolledUpUsageDao.record(otherSubscriptionId, otherSubscriptionUsages, "tracking-1", internalCallContext));
+        assertEquals(rolledUpUsageDao.getUsageForSubscription(otherSubscriptionId, startDate, endDate, unitType, internalCallContext).size(), 1);
+
+        // No tracking id, always recorded
+        assertTrue(rolledUpUsageDao.record(subscriptionId, otherUsages, null, internalCallContext));
+        assertTrue(rolledUpUsageDao.record(subscriptionId, otherUsages, null, internalCallContext));
+        assertEquals(rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContext).size(), 5);
+    }
+
+    @Test(groups = "slow")
+    public void testAggregatedUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType1 = "foo";
+        final String unitType2 = "bar";
+        final LocalDate startDate = new LocalDate(2013, 1, 15);
+        final LocalDate endDate = new LocalDate(2013, 5, 15);
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        for (LocalDate curDate = startDate.minusDays(10); curDate.compareTo(endDate.plusDays(10)) < 0; curDate = curDate.plusDays(1)) {
+            usages.add(new RolledUpUsageModelDao(subscriptionId, unitType1, curDate, 1L));
+            usages.add(new RolledUpUsageModelDao(subscriptionId, unitType2, curDate, 2L));
+        }
+        // Several submissions for the same days
+        rolledUpUsageDao.record(usages.subList(0, 51), internalCallContext);
+        rolledUpUsageDao.record(usages.subList(51, usages.size()), internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, unitType1, new LocalDate(2013, 3, 3), 100L, internalCallContext);
+
+        // BCD 15
+        verifyAggregatedUsage(subscriptionId, ImmutableList.<LocalDate>of(startDate, new LocalDate(2013, 2, 15), new LocalDate(2013, 3, 15), new LocalDate(2013, 4, 15), endDate), unitType1, unitType2);
+        // BCD 1, with partial first and last periods
+        verifyAggregatedUsage(subscriptionId, ImmutableList.<LocalDate>of(startDate, new LocalDate(2013, 2, 1), new LocalDate(2013, 3, 1), new LocalDate(2013, 4, 1), new LocalDate(2013, 5, 1), endDate), unitType1, unitType2);
+        // Within a single month
+        verifyAggregatedUsage(subscriptionId, ImmutableList.<LocalDate>of(new LocalDate(2013, 3, 2), new LocalDate(2013, 3, 20)), unitType1, unitType2);
+        // Nothing
+        assertEquals(rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, ImmutableList.<LocalDate>of(new LocalDate(2014, 1, 1), new LocalDate(2014, 3, 1)), internalCallContext).size(), 0);
+        assertEquals(rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, ImmutableList.<LocalDate>of(startDate), internalCallContext).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testConcurrentRecords() throws Exception {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType = "foo";
+        final LocalDate startDate = new LocalDate(2013, 1, 1);
+        final int nbThreads = 10;
+        final int nbRecordsPerThread = 20;
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        startLatch.await();
+                        for (int j = 0; j < nbRecordsPerThread; j++) {
+                            // All threads record usage for the same days
+                            rolledUpUsageDao.record(ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, unitType, startDate, 1L),
+                                                                                             new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(1), 2L)),
+                                                    internalCallContext);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            startLatch.countDown();
+            for (final Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, ImmutableList.<LocalDate>of(startDate, startDate.plusDays(1), startDate.plusDays(2)), internalCallContext);
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getRecordDate().compareTo(startDate), 0);
+        assertEquals(result.get(0).getAmount(), (Long) (long) (nbThreads * nbRecordsPerThread));
+        assertEquals(result.get(1).getRecordDate().compareTo(startDate.plusDays(1)), 0);
+        assertEquals(result.get(1).getAmount(), (Long) (long) (2 * nbThreads * nbRecordsPerThread));
+    }
+
+    private void verifyAggregatedUsage(final UUID subscriptionId, final List<LocalDate> transitionTimes, final String unitType1, final String unitType2) {
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getAggregatedUsageForSubscription(subscriptionId, transitionTimes, internalCallContext);
+        assertEquals(result.size(), 2 * (transitionTimes.size() - 1));
+
+        for (int i = 0; i < transitionTimes.size() - 1; i++) {
+            final LocalDate startDate = transitionTimes.get(i);
+            final LocalDate endDate = transitionTimes.get(i + 1);
+
+            final List<RolledUpUsageModelDao> rawUsage = rolledUpUsageDao.getAllUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+            long expectedAmount1 = 0;
+            long expectedAmount2 = 0;
+            for (final RolledUpUsageModelDao cur : rawUsage) {
+                if (unitType1.equals(cur.getUnitType())) {
+                    expectedAmount1 += cur.getAmount();
+                } else {
+                    expectedAmount2 += cur.getAmount();
+                }
+            }
+
+            int nbEntries = 0;
+            for (final RolledUpUsageModelDao cur : result) {
+                if (cur.getRecordDate().compareTo(startDate) != 0) {
+                    continue;
+                }
+                nbEntries++;
+                assertEquals(cur.getSubscriptionId(), subscriptionId);
+                assertEquals(cur.getAmount(), (Long) (unitType1.equals(cur.getUnitType()) ? expectedAmount1 : expectedAmount2));
+            }
+            assertEquals(nbEntries, 2);
+        }
+    }
+
     @Test(groups = "slow")
     public void testNoEntries() {
         final UUID subscriptionId = UUID.randomUUID();
@@ -18,8 +18,6 @@
 
 package org.killbill.billing.util.cache;
 
-import java.util.UUID;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -31,13 +29,13 @@ import org.skife.jdbi.v2.Handle;
 import net.sf.ehcache.loader.CacheLoader;
 
 @Singleton
-public class AccountRecordIdCacheLoader extends BaseIdCacheLoader implements CacheLoader {
+public class AccountRecordIdCacheLoader extends BaseIdCacheLoader<EntityIdCacheKey> implements CacheLoader {
 
     private final NonEntityDao nonEntityDao;
 
     @Inject
     public AccountRecordIdCacheLoader(final NonEntityDao nonEntityDao) {
-        super();
+        super(EntityIdCacheKey.class);
         this.nonEntityDao = nonEntityDao;
     }
 
@@ -47,7 +45,7 @@ public class AccountRecordIdCacheLoader extends BaseIdCacheLoader implements Cac
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType, final Handle handle) {
-        return nonEntityDao.retrieveAccountRecordIdFromObjectInTransaction(UUID.fromString(rawKey), objectType, null, handle);
+    protected Object doRetrieveOperation(final EntityIdCacheKey key, final ObjectType objectType, final Handle handle) {
+        return nonEntityDao.retrieveAccountRecordIdFromObjectInTransaction(key.getId(), objectType, null, handle);
     }
 }
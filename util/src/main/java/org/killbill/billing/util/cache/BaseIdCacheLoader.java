@@ -21,37 +21,33 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.skife.jdbi.v2.Handle;
 
-public abstract class BaseIdCacheLoader extends BaseCacheLoader {
+public abstract class BaseIdCacheLoader<K> extends BaseCacheLoader {
 
-    protected BaseIdCacheLoader() {
+    private final Class<K> keyClass;
+
+    protected BaseIdCacheLoader(final Class<K> keyClass) {
         super();
+        this.keyClass = keyClass;
     }
 
     @Override
     public abstract CacheType getCacheType();
 
-    protected abstract Object doRetrieveOperation(final String rawKey, final ObjectType objectType, final Handle handle);
+    protected abstract Object doRetrieveOperation(final K key, final ObjectType objectType, final Handle handle);
 
     @Override
     public Object load(final Object key, final Object argument) {
         checkCacheLoaderStatus();
 
-        if (!(key instanceof String)) {
+        if (!keyClass.isInstance(key)) {
             throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
         }
         if (!(argument instanceof CacheLoaderArgument)) {
             throw new IllegalArgumentException("Unexpected key type of " + argument.getClass().getName());
         }
 
-        final String rawKey;
-        if (getCacheType().isKeyPrefixedWithTableName()) {
-            final String[] parts = ((String) key).split(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
-            rawKey = parts[1];
-        } else {
-            rawKey = (String) key;
-        }
         final ObjectType objectType = ((CacheLoaderArgument) argument).getObjectType();
         final Handle handle = ((CacheLoaderArgument) argument).getHandle();
-        return doRetrieveOperation(rawKey, objectType, handle);
+        return doRetrieveOperation(keyClass.cast(key), objectType, handle);
     }
 }
@@ -35,55 +35,55 @@ public @interface Cachable {
     public final String TENANT_OVERDUE_CONFIG_CACHE_NAME = "tenant-overdue-config";
     public final String TENANT_KV_CACHE_NAME = "tenant-kv";
     public final String OVERRIDDEN_PLAN_CACHE_NAME = "overridden-plan";
+    public final String OVERRIDDEN_PLAN_DEFINITION_CACHE_NAME = "overridden-plan-definition";
 
     public CacheType value();
 
     public enum CacheType {
 
-        /* Mapping from object 'id (UUID)' -> object 'recordId (Long' */
-        RECORD_ID(RECORD_ID_CACHE_NAME, false),
+        /* Mapping from object 'id (UUID)' -> object 'recordId (Long' (see EntityIdCacheKey) */
+        RECORD_ID(RECORD_ID_CACHE_NAME),
 
-        /* Mapping from object 'id (UUID)' -> matching account object 'accountRecordId (Long)' */
-        ACCOUNT_RECORD_ID(ACCOUNT_RECORD_ID_CACHE_NAME, false),
+        /* Mapping from object 'id (UUID)' -> matching account object 'accountRecordId (Long)' (see EntityIdCacheKey) */
+        ACCOUNT_RECORD_ID(ACCOUNT_RECORD_ID_CACHE_NAME),
 
-        /* Mapping from object 'id (UUID)' -> matching object 'tenantRecordId (Long)' */
-        TENANT_RECORD_ID(TENANT_RECORD_ID_CACHE_NAME, false),
+        /* Mapping from object 'id (UUID)' -> matching object 'tenantRecordId (Long)' (see EntityIdCacheKey) */
+        TENANT_RECORD_ID(TENANT_RECORD_ID_CACHE_NAME),
 
-        /* Mapping from object 'recordId (Long') -> object 'id (UUID)'  */
-        OBJECT_ID(OBJECT_ID_CACHE_NAME, true),
+        /* Mapping from object 'recordId (Long') -> object 'id (UUID)' (see EntityRecordIdCacheKey) */
+        OBJECT_ID(OBJECT_ID_CACHE_NAME),
 
         /* Mapping from object 'tableName::targetRecordId' -> matching objects 'Iterable<AuditLog>' */
-        AUDIT_LOG(AUDIT_LOG_CACHE_NAME, true),
+        AUDIT_LOG(AUDIT_LOG_CACHE_NAME),
 
         /* Mapping from object 'tableName::historyTableName::targetRecordId' -> matching objects 'Iterable<AuditLog>' */
-        AUDIT_LOG_VIA_HISTORY(AUDIT_LOG_VIA_HISTORY_CACHE_NAME, true),
+        AUDIT_LOG_VIA_HISTORY(AUDIT_LOG_VIA_HISTORY_CACHE_NAME),
 
         /* Tenant catalog cache */
-        TENANT_CATALOG(TENANT_CATALOG_CACHE_NAME, false),
+        TENANT_CATALOG(TENANT_CATALOG_CACHE_NAME),
 
         /* Tenant overdue config cache */
-        TENANT_OVERDUE_CONFIG(TENANT_OVERDUE_CONFIG_CACHE_NAME, false),
+        TENANT_OVERDUE_CONFIG(TENANT_OVERDUE_CONFIG_CACHE_NAME),
 
         /* Tenant overdue config cache */
-        TENANT_KV(TENANT_KV_CACHE_NAME, false),
+        TENANT_KV(TENANT_KV_CACHE_NAME),
 
         /* Overwritten plans  */
-        OVERRIDDEN_PLAN(OVERRIDDEN_PLAN_CACHE_NAME, false);
+        OVERRIDDEN_PLAN(OVERRIDDEN_PLAN_CACHE_NAME),
+
+        /* Mapping from 'tenantRecordId::parentPlanName::resolved price overrides' -> overridden plan definition 'recordId (Long)' */
+        OVERRIDDEN_PLAN_DEFINITION(OVERRIDDEN_PLAN_DEFINITION_CACHE_NAME);
 
         private final String cacheName;
-        private final boolean isKeyPrefixedWithTableName;
 
-        CacheType(final String cacheName, final boolean isKeyPrefixedWithTableName) {
+        CacheType(final String cacheName) {
             this.cacheName = cacheName;
-            this.isKeyPrefixedWithTableName = isKeyPrefixedWithTableName;
         }
 
         public String getCacheName() {
             return cacheName;
         }
 
-        public boolean isKeyPrefixedWithTableName() { return isKeyPrefixedWithTableName; }
-
         public static CacheType findByName(final String input) {
             for (final CacheType cacheType : CacheType.values()) {
                 if (cacheType.cacheName.equals(input)) {
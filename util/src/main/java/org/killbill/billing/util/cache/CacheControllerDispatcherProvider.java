@@ -21,61 +21,102 @@ package org.killbill.billing.util.cache;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.CacheConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.loader.CacheLoader;
 
-// Build the abstraction layer between EhCache and Kill Bill
+// Build the abstraction layer between the cache implementation (EhCache or Guava) and Kill Bill
 public class CacheControllerDispatcherProvider implements Provider<CacheControllerDispatcher> {
 
+    public static final String EHCACHE_PROVIDER = "ehcache";
+    public static final String GUAVA_PROVIDER = "guava";
+
+    // Mappings which never change once created: there is nothing to refresh, entries only need to be evicted
+    private static final Set<CacheType> IMMUTABLE_CACHE_TYPES = ImmutableSet.<CacheType>of(CacheType.RECORD_ID,
+                                                                                           CacheType.ACCOUNT_RECORD_ID,
+                                                                                           CacheType.TENANT_RECORD_ID,
+                                                                                           CacheType.OBJECT_ID,
+                                                                                           CacheType.OVERRIDDEN_PLAN,
+                                                                                           CacheType.OVERRIDDEN_PLAN_DEFINITION);
+
     private static final Logger logger = LoggerFactory.getLogger(CacheControllerDispatcherProvider.class);
 
     private final CacheManager cacheManager;
+    private final CacheConfig cacheConfig;
+    private final CacheRefreshService cacheRefreshService;
 
     @Inject
-    public CacheControllerDispatcherProvider(final CacheManager cacheManager) {
+    public CacheControllerDispatcherProvider(final CacheManager cacheManager, final CacheConfig cacheConfig, final CacheRefreshService cacheRefreshService) {
         this.cacheManager = cacheManager;
+        this.cacheConfig = cacheConfig;
+        this.cacheRefreshService = cacheRefreshService;
     }
 
     @Override
     public CacheControllerDispatcher get() {
+        final ListeningExecutorService refreshExecutor = cacheRefreshService.getRefreshExecutor();
+
         final Map<CacheType, CacheController<Object, Object>> cacheControllers = new LinkedHashMap<CacheType, CacheController<Object, Object>>();
         for (final String cacheName : cacheManager.getCacheNames()) {
             final CacheType cacheType = CacheType.findByName(cacheName);
 
-            final Collection<EhCacheBasedCacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName, cacheType);
+            final Collection<CacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName, cacheType, refreshExecutor);
             // EhCache supports multiple cache loaders per type, but not Kill Bill - take the first one
             if (cacheControllersForCacheName.size() > 0) {
-                final EhCacheBasedCacheController<Object, Object> ehCacheBasedCacheController = cacheControllersForCacheName.iterator().next();
-                cacheControllers.put(cacheType, ehCacheBasedCacheController);
+                final CacheController<Object, Object> cacheController = cacheControllersForCacheName.iterator().next();
+                cacheControllers.put(cacheType, cacheController);
             }
         }
         return new CacheControllerDispatcher(cacheControllers);
     }
 
-    private Collection<EhCacheBasedCacheController<Object, Object>> getCacheControllersForCacheName(final String name, final CacheType cacheType) {
+    private Collection<CacheController<Object, Object>> getCacheControllersForCacheName(final String name, final CacheType cacheType, final ListeningExecutorService refreshExecutor) {
         final Ehcache cache = cacheManager.getEhcache(name);
         if (cache == null) {
             logger.warn("No cache configured for name {}", name);
-            return ImmutableList.<EhCacheBasedCacheController<Object, Object>>of();
+            return ImmutableList.<CacheController<Object, Object>>of();
         }
         // The CacheLoaders were registered in EhCacheCacheManagerProvider
-        return Collections2.transform(cache.getRegisteredCacheLoaders(), new Function<CacheLoader, EhCacheBasedCacheController<Object, Object>>() {
+        return Collections2.transform(cache.getRegisteredCacheLoaders(), new Function<CacheLoader, CacheController<Object, Object>>() {
             @Override
-            public EhCacheBasedCacheController<Object, Object> apply(final CacheLoader input) {
-                return new EhCacheBasedCacheController<Object, Object>(cache, cacheType);
+            public CacheController<Object, Object> apply(final CacheLoader input) {
+                if (isGuavaProvider()) {
+                    final boolean isRefreshable = refreshExecutor != null && !IMMUTABLE_CACHE_TYPES.contains(cacheType);
+                    // The Ehcache instance is only used for its configuration (and stays empty)
+                    return new GuavaCacheBasedCacheController<Object, Object>(cacheType,
+                                                                              (BaseCacheLoader) input,
+                                                                              cache.getCacheConfiguration(),
+                                                                              isRefreshable ? cacheConfig.getCacheRefreshAfterWrite().getMillis() / 1000 : 0,
+                                                                              isRefreshable ? refreshExecutor : null);
+                } else {
+                    return new EhCacheBasedCacheController<Object, Object>(cache, cacheType);
+                }
             }
         });
     }
+
+    private boolean isGuavaProvider() {
+        if (GUAVA_PROVIDER.equalsIgnoreCase(cacheConfig.getCacheProvider())) {
+            return true;
+        } else if (EHCACHE_PROVIDER.equalsIgnoreCase(cacheConfig.getCacheProvider())) {
+            return false;
+        } else {
+            throw new IllegalArgumentException("Unknown cache provider " + cacheConfig.getCacheProvider());
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-2016 Groupon, Inc
+ * Copyright 2014-2016 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.platform.api.KillbillService;
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.commons.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+// Owns the pool reloading the guava cache entries (see GuavaCacheBasedCacheController), if refresh is enabled
+public class CacheRefreshService implements KillbillService {
+
+    public static final String CACHE_REFRESH_SERVICE_NAME = "cache-refresh-service";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRefreshService.class);
+
+    private final ListeningExecutorService refreshExecutor;
+
+    @Inject
+    public CacheRefreshService(final CacheConfig cacheConfig) {
+        if (CacheControllerDispatcherProvider.GUAVA_PROVIDER.equalsIgnoreCase(cacheConfig.getCacheProvider()) &&
+            cacheConfig.getCacheRefreshAfterWrite().getMillis() > 0) {
+            this.refreshExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(cacheConfig.getCacheRefreshThreadNb(), "cache-refresh"));
+        } else {
+            this.refreshExecutor = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return CACHE_REFRESH_SERVICE_NAME;
+    }
+
+    @Nullable
+    public ListeningExecutorService getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() throws InterruptedException {
+        if (refreshExecutor == null) {
+            return;
+        }
+
+        refreshExecutor.shutdownNow();
+        if (!refreshExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            logger.warn("Cache refresh executor did not terminate within 10s");
+        }
+    }
+}
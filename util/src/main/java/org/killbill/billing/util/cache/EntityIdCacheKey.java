@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.dao.TableName;
+
+/**
+ * Key for the caches indexed by object id (RECORD_ID, ACCOUNT_RECORD_ID and TENANT_RECORD_ID)
+ */
+public final class EntityIdCacheKey implements Serializable {
+
+    private final TableName tableName;
+    private final UUID id;
+    // Keys are immutable and looked up many times
+    private final int hashCode;
+
+    public EntityIdCacheKey(@Nullable final TableName tableName, final UUID id) {
+        this.tableName = tableName;
+        this.id = id;
+        this.hashCode = 31 * (tableName != null ? tableName.ordinal() + 1 : 0) + id.hashCode();
+    }
+
+    @Nullable
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final EntityIdCacheKey that = (EntityIdCacheKey) o;
+        return hashCode == that.hashCode && tableName == that.tableName && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + id;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.io.Serializable;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.dao.TableName;
+
+/**
+ * Key for the caches indexed by object record id (OBJECT_ID)
+ */
+public final class EntityRecordIdCacheKey implements Serializable {
+
+    private final TableName tableName;
+    private final long recordId;
+    // Keys are immutable and looked up many times
+    private final int hashCode;
+
+    public EntityRecordIdCacheKey(@Nullable final TableName tableName, final long recordId) {
+        this.tableName = tableName;
+        this.recordId = recordId;
+        this.hashCode = 31 * (tableName != null ? tableName.ordinal() + 1 : 0) + (int) (recordId ^ (recordId >>> 32));
+    }
+
+    @Nullable
+    public TableName getTableName() {
+        return tableName;
+    }
+
+    public long getRecordId() {
+        return recordId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final EntityRecordIdCacheKey that = (EntityRecordIdCacheKey) o;
+        return recordId == that.recordId && tableName == that.tableName;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + recordId;
+    }
+}
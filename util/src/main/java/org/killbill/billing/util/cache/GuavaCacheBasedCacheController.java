@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import net.sf.ehcache.config.CacheConfiguration;
+
+/**
+ * Alternative to EhCacheBasedCacheController, backed by a Guava cache.
+ * <p/>
+ * Sizing and expiration are taken from the Ehcache configuration of the cache (maxElementsInMemory becomes the maximum weight,
+ * where collections weigh their number of elements, e.g. the audit logs of an object), so both implementations can be
+ * swapped through CacheConfig without maintaining a second configuration.
+ * <p/>
+ * Entries loaded through a BaseCacheLoader can optionally be reloaded in the background once they are older than
+ * refreshAfterWriteSeconds: readers keep getting the previous value while the reload happens. A reload racing with
+ * remove(key) or removeAll() may still store its value, so such values are discarded on read (see isStale).
+ */
+public class GuavaCacheBasedCacheController<K, V> implements CacheController<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuavaCacheBasedCacheController.class);
+
+    private final LoadingCache<Object, ValueHolder> cache;
+    private final BaseCacheLoader baseCacheLoader;
+    private final CacheType cacheType;
+    // Bumped by removeAll(), to discard values of in-flight reloads started before
+    private final AtomicLong generation = new AtomicLong(0);
+
+    public GuavaCacheBasedCacheController(final CacheType cacheType,
+                                          final BaseCacheLoader baseCacheLoader,
+                                          final CacheConfiguration cacheConfiguration,
+                                          final long refreshAfterWriteSeconds,
+                                          @Nullable final ListeningExecutorService refreshExecutor) {
+        this.cacheType = cacheType;
+        this.baseCacheLoader = baseCacheLoader;
+
+        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
+        if (cacheConfiguration.getMaxEntriesLocalHeap() > 0) {
+            cacheBuilder.maximumWeight(cacheConfiguration.getMaxEntriesLocalHeap())
+                        .weigher(new ValueHolderWeigher());
+        }
+        if (!cacheConfiguration.isEternal()) {
+            if (cacheConfiguration.getTimeToLiveSeconds() > 0) {
+                cacheBuilder.expireAfterWrite(cacheConfiguration.getTimeToLiveSeconds(), TimeUnit.SECONDS);
+            }
+            if (cacheConfiguration.getTimeToIdleSeconds() > 0) {
+                cacheBuilder.expireAfterAccess(cacheConfiguration.getTimeToIdleSeconds(), TimeUnit.SECONDS);
+            }
+        }
+        if (refreshAfterWriteSeconds > 0 && refreshExecutor != null) {
+            cacheBuilder.refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS);
+        }
+        this.cache = cacheBuilder.build(new ValueHolderLoader(refreshExecutor));
+    }
+
+    @Override
+    public void add(final K key, final V value) {
+        cache.asMap().putIfAbsent(key, new ValueHolder(value, null, generation.get()));
+    }
+
+    @Override
+    public V get(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        ValueHolder valueHolder = cache.getIfPresent(key);
+        if (valueHolder != null && isStale(valueHolder)) {
+            cache.asMap().remove(key, valueHolder);
+            valueHolder = null;
+        }
+        if (valueHolder == null) {
+            // Load outside of the cache locks, as loaders may run queries within the caller's transaction (same as Ehcache)
+            final long generationBeforeLoad = generation.get();
+            final Object value = baseCacheLoader.load(key, cacheLoaderArgument);
+            if (value == null) {
+                return null;
+            }
+
+            final ValueHolder loadedValueHolder = new ValueHolder(value, cacheLoaderArgument, generationBeforeLoad);
+            final ValueHolder existingValueHolder = cache.asMap().putIfAbsent(key, loadedValueHolder);
+            if (existingValueHolder == null) {
+                valueHolder = loadedValueHolder;
+            } else if (isStale(existingValueHolder)) {
+                cache.asMap().replace(key, existingValueHolder, loadedValueHolder);
+                valueHolder = loadedValueHolder;
+            } else {
+                valueHolder = existingValueHolder;
+            }
+        }
+
+        if (valueHolder.getValue().equals(BaseCacheLoader.EMPTY_VALUE_PLACEHOLDER)) {
+            return null;
+        }
+        return (V) valueHolder.getValue();
+    }
+
+    @Override
+    public boolean remove(final K key) {
+        final ValueHolder valueHolder = cache.asMap().remove(key);
+        if (valueHolder == null) {
+            return false;
+        }
+        valueHolder.invalidate();
+        return !valueHolder.isAbsent();
+    }
+
+    @Override
+    public int size() {
+        return (int) cache.size();
+    }
+
+    @Override
+    public void removeAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public CacheType getCacheType() {
+        return cacheType;
+    }
+
+    private boolean isStale(final ValueHolder valueHolder) {
+        return valueHolder.isAbsent() || valueHolder.isInvalidated() || valueHolder.getGeneration() != generation.get();
+    }
+
+    private final class ValueHolderLoader extends CacheLoader<Object, ValueHolder> {
+
+        private final ListeningExecutorService refreshExecutor;
+
+        private ValueHolderLoader(@Nullable final ListeningExecutorService refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+        }
+
+        @Override
+        public ValueHolder load(final Object key) {
+            // Loading always goes through get(key, cacheLoaderArgument), as Kill Bill loaders need their argument: this is never
+            // expected to be called, but if it is, the absent value is treated as a miss by get(key, cacheLoaderArgument)
+            logger.debug("Cache {}: key {} cannot be loaded without a CacheLoaderArgument", cacheType.getCacheName(), key);
+            return ValueHolder.ABSENT;
+        }
+
+        @Override
+        public ListenableFuture<ValueHolder> reload(final Object key, final ValueHolder oldValueHolder) {
+            if (refreshExecutor == null || oldValueHolder.getCacheLoaderArgument() == null || isStale(oldValueHolder)) {
+                // Value added by the caller (we don't know how to reload it) or already invalidated
+                return Futures.immediateFuture(oldValueHolder);
+            }
+
+            return refreshExecutor.submit(new Callable<ValueHolder>() {
+                @Override
+                public ValueHolder call() throws Exception {
+                    if (isStale(oldValueHolder)) {
+                        return oldValueHolder;
+                    }
+
+                    final Object value = baseCacheLoader.load(key, oldValueHolder.getCacheLoaderArgument());
+                    if (value == null) {
+                        logger.debug("Cache {}: key {} disappeared, keeping the previous value until expiration", cacheType.getCacheName(), key);
+                        return oldValueHolder;
+                    }
+                    // Share the invalidation state, so that a remove(key) while we were loading discards the reloaded value as well
+                    return new ValueHolder(value, oldValueHolder);
+                }
+            });
+        }
+    }
+
+    private static final class ValueHolderWeigher implements Weigher<Object, ValueHolder> {
+
+        @Override
+        public int weigh(final Object key, final ValueHolder valueHolder) {
+            final Object value = valueHolder.getValue();
+            if (value instanceof Collection) {
+                return Math.max(1, ((Collection) value).size());
+            } else if (value instanceof Map) {
+                return Math.max(1, ((Map) value).size());
+            } else {
+                return 1;
+            }
+        }
+    }
+
+    private static final class ValueHolder {
+
+        private static final ValueHolder ABSENT = new ValueHolder(null, null, -1);
+
+        private final Object value;
+        // Argument used to load the value (without the transaction handle, which is gone by the time we refresh)
+        private final CacheLoaderArgument cacheLoaderArgument;
+        private final long generation;
+        // Shared by the successive reloads of a value
+        private final AtomicBoolean invalidated;
+
+        private ValueHolder(final Object value, @Nullable final CacheLoaderArgument cacheLoaderArgument, final long generation) {
+            this.value = value;
+            this.cacheLoaderArgument = cacheLoaderArgument == null ? null : new CacheLoaderArgument(cacheLoaderArgument.getObjectType(),
+                                                                                                     cacheLoaderArgument.getArgs(),
+                                                                                                     cacheLoaderArgument.getInternalTenantContext());
+            this.generation = generation;
+            this.invalidated = new AtomicBoolean(false);
+        }
+
+        private ValueHolder(final Object value, final ValueHolder reloadedValueHolder) {
+            this.value = value;
+            this.cacheLoaderArgument = reloadedValueHolder.cacheLoaderArgument;
+            this.generation = reloadedValueHolder.generation;
+            this.invalidated = reloadedValueHolder.invalidated;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public CacheLoaderArgument getCacheLoaderArgument() {
+            return cacheLoaderArgument;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public boolean isAbsent() {
+            return this == ABSENT;
+        }
+
+        public boolean isInvalidated() {
+            return invalidated.get();
+        }
+
+        public void invalidate() {
+            invalidated.set(true);
+        }
+    }
+}
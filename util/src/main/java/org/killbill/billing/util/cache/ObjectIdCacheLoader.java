@@ -28,13 +28,13 @@ import org.skife.jdbi.v2.Handle;
 import net.sf.ehcache.loader.CacheLoader;
 
 @Singleton
-public class ObjectIdCacheLoader extends BaseIdCacheLoader implements CacheLoader {
+public class ObjectIdCacheLoader extends BaseIdCacheLoader<EntityRecordIdCacheKey> implements CacheLoader {
 
     private final NonEntityDao nonEntityDao;
 
     @Inject
     public ObjectIdCacheLoader(final NonEntityDao nonEntityDao) {
-        super();
+        super(EntityRecordIdCacheKey.class);
         this.nonEntityDao = nonEntityDao;
     }
 
@@ -44,8 +44,7 @@ public class ObjectIdCacheLoader extends BaseIdCacheLoader implements CacheLoade
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType, final Handle handle) {
-        final Long recordId = Long.valueOf(rawKey);
-        return nonEntityDao.retrieveIdFromObjectInTransaction(recordId, objectType, null, handle);
+    protected Object doRetrieveOperation(final EntityRecordIdCacheKey key, final ObjectType objectType, final Handle handle) {
+        return nonEntityDao.retrieveIdFromObjectInTransaction(key.getRecordId(), objectType, null, handle);
     }
 }
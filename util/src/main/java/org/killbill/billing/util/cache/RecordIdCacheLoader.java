@@ -18,8 +18,6 @@
 
 package org.killbill.billing.util.cache;
 
-import java.util.UUID;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -31,13 +29,13 @@ import org.skife.jdbi.v2.Handle;
 import net.sf.ehcache.loader.CacheLoader;
 
 @Singleton
-public class RecordIdCacheLoader extends BaseIdCacheLoader implements CacheLoader {
+public class RecordIdCacheLoader extends BaseIdCacheLoader<EntityIdCacheKey> implements CacheLoader {
 
     private final NonEntityDao nonEntityDao;
 
     @Inject
     public RecordIdCacheLoader(final NonEntityDao nonEntityDao) {
-        super();
+        super(EntityIdCacheKey.class);
         this.nonEntityDao = nonEntityDao;
     }
 
@@ -47,7 +45,7 @@ public class RecordIdCacheLoader extends BaseIdCacheLoader implements CacheLoade
     }
 
     @Override
-    protected Object doRetrieveOperation(final String rawKey, final ObjectType objectType, final Handle handle) {
-        return nonEntityDao.retrieveRecordIdFromObjectInTransaction(UUID.fromString(rawKey), objectType, null, handle);
+    protected Object doRetrieveOperation(final EntityIdCacheKey key, final ObjectType objectType, final Handle handle) {
+        return nonEntityDao.retrieveRecordIdFromObjectInTransaction(key.getId(), objectType, null, handle);
     }
 }
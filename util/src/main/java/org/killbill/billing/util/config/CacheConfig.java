@@ -19,6 +19,7 @@ package org.killbill.billing.util.config;
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface CacheConfig extends KillbillConfig {
 
@@ -27,4 +28,18 @@ public interface CacheConfig extends KillbillConfig {
     @Description("Path to Ehcache XML configuration")
     public String getCacheConfigLocation();
 
+    @Config("org.killbill.cache.provider")
+    @Default("ehcache")
+    @Description("Cache implementation backing the Kill Bill caches: ehcache or guava (sized from the Ehcache XML configuration)")
+    public String getCacheProvider();
+
+    @Config("org.killbill.cache.guava.refreshAfterWrite")
+    @Default("0s")
+    @Description("Delay after which entries of the guava caches are asynchronously reloaded (0s to disable)")
+    public TimeSpan getCacheRefreshAfterWrite();
+
+    @Config("org.killbill.cache.guava.refresh.threads.nb")
+    @Default("2")
+    @Description("Number of threads reloading the guava cache entries")
+    public int getCacheRefreshThreadNb();
 }
@@ -44,4 +44,24 @@ public interface InvoiceConfig extends KillbillConfig {
     @Description("Maximum number of past billing periods we use to fetch raw usage data (usage optimization)")
     public int getMaxRawUsagePreviousPeriod();
 
+    @Config("org.killbill.invoice.readMaxInvoiceHistoryMonths")
+    @Default("-1")
+    @Description("Maximum number of months prior to the target date for which existing invoice items are loaded and repaired during invoice generation (the full history is used if negative)")
+    public int getMaxInvoiceHistoryMonths();
+
+    @Config("org.killbill.invoice.bulkRun.nbThreads")
+    @Default("10")
+    @Description("Number of accounts invoiced concurrently during a bulk invoice run")
+    public int getBulkInvoiceRunNbThreads();
+
+    @Config("org.killbill.invoice.bulkRun.retention")
+    @Default("1d")
+    @Description("How long the status of a completed bulk invoice run remains available")
+    public TimeSpan getBulkInvoiceRunRetention();
+
+    @Config("org.killbill.invoice.usePreAggregatedUsage")
+    @Default("false")
+    @Description("Whether to read per billing period usage totals (summed by the database) instead of the raw usage data")
+    public boolean isPreAggregatedUsageEnabled();
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import java.util.List;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface NotificationConfig extends KillbillConfig {
+
+    @Config("org.killbill.billing.server.notifications.timeout")
+    @Default("15s")
+    @Description("Timeout for each push notification request")
+    public TimeSpan getTimeout();
+
+    @Config("org.killbill.billing.server.notifications.maxConcurrentRequestsPerCallback")
+    @Default("10")
+    @Description("Maximum number of in-flight push notification requests per callback url (subsequent notifications are queued in memory)")
+    public int getMaxConcurrentRequestsPerCallback();
+
+    @Config("org.killbill.billing.server.notifications.maxPendingRequestsPerCallback")
+    @Default("1000")
+    @Description("Maximum number of push notifications queued in memory per callback url (subsequent notifications are retried later)")
+    public int getMaxPendingRequestsPerCallback();
+
+    @Config("org.killbill.billing.server.notifications.retries")
+    @Default("15s,1m,5m,15m,1h")
+    @Description("Delay before which failed push notifications should be retried")
+    public List<TimeSpan> getRetries();
+
+    @Config("org.killbill.billing.server.notifications.circuitBreaker.failures")
+    @Default("5")
+    @Description("Number of consecutive failures after which push notifications to a callback url are suspended")
+    public int getCircuitBreakerFailureThreshold();
+
+    @Config("org.killbill.billing.server.notifications.circuitBreaker.duration")
+    @Default("1m")
+    @Description("Duration during which push notifications to a failing callback url are suspended")
+    public TimeSpan getCircuitBreakerDuration();
+}
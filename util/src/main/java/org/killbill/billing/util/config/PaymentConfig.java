@@ -61,6 +61,16 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     public int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.info.concurrency")
+    @Default("5")
+    @Description("Maximum number of concurrent plugin calls per request when retrieving the plugin info of multiple payments")
+    public int getPaymentPluginInfoConcurrency();
+
+    @Config("org.killbill.payment.plugin.info.timeout")
+    @Default("30s")
+    @Description("Overall timeout per request when retrieving the plugin info of multiple payments")
+    public TimeSpan getPaymentPluginInfoTimeout();
+
     @Config("org.killbill.payment.janitor.attempts.delay")
     @Default("12h")
     @Description("Delay before which unresolved attempt should be retried")
@@ -20,6 +20,7 @@ import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.DefaultNull;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface SecurityConfig extends KillbillConfig {
 
@@ -28,6 +29,18 @@ public interface SecurityConfig extends KillbillConfig {
     @Description("Path to the shiro.ini file (classpath, url or file resource)")
     public String getShiroResourcePath();
 
+    // Tenant credentials
+
+    @Config("org.killbill.security.tenantCredentialsCache.maxEntries")
+    @Default("1000")
+    @Description("Maximum number of verified tenant api credentials kept in memory (the cache is disabled if set to 0)")
+    public int getTenantCredentialsCacheMaxEntries();
+
+    @Config("org.killbill.security.tenantCredentialsCache.ttl")
+    @Default("5m")
+    @Description("Maximum amount of time verified tenant api credentials are trusted without being checked against the database")
+    public TimeSpan getTenantCredentialsCacheTTL();
+
     // LDAP Realm
 
     @Config("org.killbill.security.ldap.userDnTemplate")
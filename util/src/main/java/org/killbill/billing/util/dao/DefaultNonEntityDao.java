@@ -16,15 +16,21 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.cache.CacheController;
-import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.EntityIdCacheKey;
+import org.killbill.billing.util.cache.EntityRecordIdCacheKey;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
@@ -34,9 +40,12 @@ import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 
 public class DefaultNonEntityDao implements NonEntityDao {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private final NonEntitySqlDao nonEntitySqlDao;
     private final WithCaching<UUID, Long> withCachingObjectId;
     private final WithCaching<Long, UUID> withCachingRecordId;
@@ -158,6 +167,18 @@ public class DefaultNonEntityDao implements NonEntityDao {
         return transactional.getLastHistoryRecordId(targetRecordId, tableName.getTableName());
     }
 
+    @Override
+    public Map<UUID, Long> retrieveLastHistoryRecordIdsFromTransaction(final Collection<Long> targetRecordIds, final TableName historyTableName, final InternalTenantContext context, final NonEntitySqlDao transactional) {
+        final Map<UUID, Long> historyRecordIds = new HashMap<UUID, Long>();
+        // Bound the size of the IN clause
+        for (final List<Long> targetRecordIdsChunk : Iterables.partition(targetRecordIds, MAX_IDS_PER_QUERY)) {
+            for (final RecordIdIdMappings mapping : transactional.getLastHistoryRecordIdIdMappingsFromTargetRecordIds(targetRecordIdsChunk, historyTableName.getTableName(), context)) {
+                historyRecordIds.put(mapping.getId(), mapping.getRecordId());
+            }
+        }
+        return historyRecordIds;
+    }
+
     @Override
     public Long retrieveHistoryTargetRecordId(@Nullable final Long recordId, final TableName tableName) {
         return nonEntitySqlDao.getHistoryTargetRecordId(recordId, tableName.getTableName());
@@ -178,9 +199,9 @@ public class DefaultNonEntityDao implements NonEntityDao {
                 return null;
             }
             if (cache != null) {
-                final String key = (cache.getCacheType().isKeyPrefixedWithTableName()) ?
-                                   tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + objectOrRecordId.toString() :
-                                   objectOrRecordId.toString();
+                final Object key = objectOrRecordId instanceof UUID ?
+                                   new EntityIdCacheKey(tableName, (UUID) objectOrRecordId) :
+                                   new EntityRecordIdCacheKey(tableName, (Long) objectOrRecordId);
                 return (TypeOut) cache.get(key, new CacheLoaderArgument(objectType));
             }
             final TypeOut result;
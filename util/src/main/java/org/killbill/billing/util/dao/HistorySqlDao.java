@@ -17,7 +17,9 @@
 package org.killbill.billing.util.dao;
 
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.entity.Entity;
@@ -28,4 +30,9 @@ public interface HistorySqlDao<M extends EntityModelDao<E>, E extends Entity> {
     @SqlUpdate
     public void addHistoryFromTransaction(@EntityHistoryBinder EntityHistoryModelDao<M, E> history,
                                           @BindBean InternalCallContext context);
+
+    @SqlBatch
+    @BatchChunkSize(1000)
+    public void addHistoriesFromTransaction(@EntityHistoryBinder Iterable<EntityHistoryModelDao<M, E>> histories,
+                                            @BindBean InternalCallContext context);
 }
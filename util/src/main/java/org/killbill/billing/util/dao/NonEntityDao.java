@@ -18,11 +18,14 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.cache.CacheController;
 import org.skife.jdbi.v2.Handle;
 
@@ -48,6 +51,9 @@ public interface NonEntityDao {
     // This retrieves from the history table the latest record for which targetId matches the one we are passing
     public Long retrieveLastHistoryRecordIdFromTransaction(final Long targetRecordId, final TableName tableName, final NonEntitySqlDao transactional);
 
+    // Batch version of retrieveLastHistoryRecordIdFromTransaction: this retrieves the record_id of the latest history row of each of the given targetRecordIds, keyed by history id
+    public Map<UUID, Long> retrieveLastHistoryRecordIdsFromTransaction(final Collection<Long> targetRecordIds, final TableName historyTableName, final InternalTenantContext context, final NonEntitySqlDao transactional);
+
     // This is the reverse from retrieveLastHistoryRecordIdFromTransaction; this retrieves the record_id of the object matching a given history row
     public Long retrieveHistoryTargetRecordId(final Long recordId, final TableName tableName);
 }
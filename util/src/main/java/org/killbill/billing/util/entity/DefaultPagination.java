@@ -32,6 +32,9 @@ public class DefaultPagination<T> implements Pagination<T> {
     private final Long totalNbRecords;
     private final Long maxNbRecords;
     private final Iterator<T> delegateIterator;
+    // Keyset pagination: offsets are record ids and the next one is looked up by the query, instead of being computed
+    private final boolean isKeyset;
+    private final Long keysetNextOffset;
 
     // Builder when the streaming API can't be used (should only be used for tests)
     // Notes: elements should be the entire records set (regardless of filtering) otherwise maxNbRecords won't be accurate
@@ -51,7 +54,13 @@ public class DefaultPagination<T> implements Pagination<T> {
 
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(),
+             limit,
+             isKeyset(original),
+             isKeyset(original) ? original.getNextOffset() : null,
+             original.getTotalNbRecords(),
+             original.getMaxNbRecords(),
+             delegate);
     }
 
     // Constructor for DAO getAll calls
@@ -62,13 +71,33 @@ public class DefaultPagination<T> implements Pagination<T> {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, false, null, totalNbRecords, maxNbRecords, delegateIterator);
+    }
+
+    // Builder for keyset pagination: currentOffset is the record id of the first result and nextOffset the one of the next page (null if none)
+    public static <T> Pagination<T> keyset(final Long currentOffset, final Long limit, @Nullable final Long nextOffset,
+                                           @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                                           final Iterator<T> delegateIterator) {
+        return new DefaultPagination<T>(currentOffset, limit, true, nextOffset, totalNbRecords, maxNbRecords, delegateIterator);
+    }
+
+    private DefaultPagination(final Long currentOffset, final Long limit,
+                              final boolean isKeyset, @Nullable final Long keysetNextOffset,
+                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                              final Iterator<T> delegateIterator) {
         this.currentOffset = currentOffset;
         this.limit = limit;
+        this.isKeyset = isKeyset;
+        this.keysetNextOffset = keysetNextOffset;
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
         this.delegateIterator = delegateIterator;
     }
 
+    public static boolean isKeyset(final Pagination pagination) {
+        return pagination instanceof DefaultPagination && ((DefaultPagination) pagination).isKeyset;
+    }
+
     @Override
     public Iterator<T> iterator() {
         return delegateIterator;
@@ -81,6 +110,10 @@ public class DefaultPagination<T> implements Pagination<T> {
 
     @Override
     public Long getNextOffset() {
+        if (isKeyset) {
+            return keysetNextOffset;
+        }
+
         final long candidate = currentOffset + limit;
         if (totalNbRecords != null && candidate >= totalNbRecords) {
             // No more results
@@ -108,6 +141,7 @@ public class DefaultPagination<T> implements Pagination<T> {
     public String toString() {
         final StringBuilder sb = new StringBuilder("DefaultPagination{");
         sb.append("currentOffset=").append(currentOffset);
+        sb.append(", isKeyset=").append(isKeyset);
         sb.append(", nextOffset=").append(getNextOffset());
         sb.append(", totalNbRecords=").append(totalNbRecords);
         sb.append(", maxNbRecords=").append(maxNbRecords);
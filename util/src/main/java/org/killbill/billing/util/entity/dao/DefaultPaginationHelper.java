@@ -93,6 +93,20 @@ public class DefaultPaginationHelper {
                                                             Predicates.<E>notNull()));
     }
 
+    // Same as getEntityPagination, except that the whole page is given to the function, to let it batch its lookups
+    public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationFromPage(final Long limit,
+                                                                                                                  final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
+                                                                                                                  final Function<List<O>, Iterable<E>> pageFunction) throws T {
+        final Pagination<O> modelsDao = sourcePaginationBuilder.build();
+        // The page is bounded by the limit: read it fully (this also releases the database connection)
+        final List<O> page = ImmutableList.<O>copyOf(modelsDao);
+
+        return new DefaultPagination<E>(modelsDao,
+                                        limit,
+                                        Iterators.<E>filter(pageFunction.apply(page).iterator(),
+                                                            Predicates.<E>notNull()));
+    }
+
     public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationNoException(final Long limit,
                                                                                                                      final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
                                                                                                                      final Function<O, E> function) {
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.entity.dao;
 
 import java.util.Iterator;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -25,8 +26,14 @@ import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
 public class DefaultPaginationSqlDaoHelper {
 
+    // Keyset pages are read in memory (see getPaginationFromRecordId), hence capped
+    public static final long MAX_KEYSET_PAGINATION_LIMIT = 10000L;
+
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     public DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao) {
@@ -59,10 +66,58 @@ public class DefaultPaginationSqlDaoHelper {
         return new DefaultPagination<M>(offset, limit, count, totalCount, results);
     }
 
+    // Keyset (seek) pagination: the page starts at fromRecordId instead of skipping offset rows, so deep pages
+    // cost the same as the first one. One more row than requested is read: its record id is the start of the next page.
+    // Since the next offset must be known before the results are returned, the page (bounded by limit) isn't streamed.
+    // Counting is optional, as it scans all matching rows.
+    public <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getPaginationFromRecordId(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                                 final KeysetPaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                                 final Long fromRecordId,
+                                                                                                                                 final Long limit,
+                                                                                                                                 final boolean withCount,
+                                                                                                                                 final InternalTenantContext context) {
+        final Long pageLimit = checkKeysetPaginationLimit(limit);
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Pagination<M>>() {
+            @Override
+            public Pagination<M> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+
+                final List<M> results = ImmutableList.<M>copyOf(paginationIteratorBuilder.build((S) sqlDao, fromRecordId, pageLimit + 1, context));
+                final Long nextRecordId;
+                final List<M> page;
+                if (results.size() > pageLimit) {
+                    nextRecordId = results.get(pageLimit.intValue()).getRecordId();
+                    page = results.subList(0, pageLimit.intValue());
+                } else {
+                    nextRecordId = null;
+                    page = results;
+                }
+
+                final Long count = withCount ? paginationIteratorBuilder.getCount((S) sqlDao, context) : null;
+                final Long totalCount = withCount ? sqlDao.getCount(context) : null;
+
+                return DefaultPagination.<M>keyset(fromRecordId, pageLimit, nextRecordId, count, totalCount, page.iterator());
+            }
+        });
+    }
+
+    // Rejects non positive limits and caps the other ones to MAX_KEYSET_PAGINATION_LIMIT
+    public static Long checkKeysetPaginationLimit(@Nullable final Long limit) {
+        Preconditions.checkArgument(limit != null && limit > 0, "limit should be strictly positive, got %s", limit);
+        return Math.min(limit, MAX_KEYSET_PAGINATION_LIMIT);
+    }
+
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
 
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long limit, final InternalTenantContext context);
     }
+
+    public abstract static class KeysetPaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
+
+        public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
+
+        public abstract Iterator<M> build(final S sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context);
+    }
 }
@@ -38,6 +38,9 @@ public interface EntityDao<M extends EntityModelDao<E>, E extends Entity, U exte
 
     public Pagination<M> get(Long offset, Long limit, InternalTenantContext context);
 
+    // Keyset pagination: returns up to limit entities with a record id greater or equal to fromRecordId
+    public Pagination<M> getFromRecordId(Long fromRecordId, Long limit, boolean withCount, InternalTenantContext context);
+
     public Long getCount(InternalTenantContext context);
 
     public void test(InternalTenantContext context);
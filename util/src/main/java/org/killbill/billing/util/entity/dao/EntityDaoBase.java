@@ -26,6 +26,7 @@ import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 
 public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> implements EntityDao<M, E, U> {
@@ -150,6 +151,26 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                               context);
     }
 
+    @Override
+    public Pagination<M> getFromRecordId(final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        return paginationHelper.getPaginationFromRecordId(realSqlDao,
+                                                          new KeysetPaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                                                              @Override
+                                                              public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+                                                                  return sqlDao.getCount(context);
+                                                              }
+
+                                                              @Override
+                                                              public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long fromRecordId, final Long limit, final InternalTenantContext context) {
+                                                                  return sqlDao.getFromRecordId(fromRecordId, limit, context);
+                                                              }
+                                                          },
+                                                          fromRecordId,
+                                                          limit,
+                                                          withCount,
+                                                          context);
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
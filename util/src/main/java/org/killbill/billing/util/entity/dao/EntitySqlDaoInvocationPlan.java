@@ -0,0 +1,258 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.cache.Cachable;
+import org.killbill.billing.util.cache.CachableKey;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
+import org.skife.jdbi.v2.sqlobject.Bind;
+
+/**
+ * Everything EntitySqlDaoWrapperInvocationHandler needs to know about a (sqlDaoClass, method) pair, computed once by reflection
+ * and shared by all invocations.
+ */
+class EntitySqlDaoInvocationPlan {
+
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Method, EntitySqlDaoInvocationPlan>> PLANS = new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, EntitySqlDaoInvocationPlan>>();
+    private static final ConcurrentMap<Class<?>, TableNameHolder> TABLE_NAMES = new ConcurrentHashMap<Class<?>, TableNameHolder>();
+
+    private final Class<?> sqlDaoClass;
+    private final Audited auditedAnnotation;
+    private final Cachable cachableAnnotation;
+    private final boolean isGetById;
+    // Argument index for each @CachableKey position (starting at 0)
+    private final int[] cachableKeyArgIndexes;
+    // Index of the InternalTenantContext argument, -1 if it can only be found by looking at the arguments
+    private final int tenantContextArgIndex;
+    private final boolean[] isBindIdArg;
+    private final boolean[] isUUIDCollectionArg;
+
+    private final String profilingName;
+    private final String rawProfilingName;
+    private final String cachingRawProfilingName;
+    private final String auditRawProfilingName;
+    private final String historyAndAuditProfilingName;
+
+    static EntitySqlDaoInvocationPlan get(final Class<?> sqlDaoClass, final Method method) {
+        ConcurrentMap<Method, EntitySqlDaoInvocationPlan> plansForClass = PLANS.get(sqlDaoClass);
+        if (plansForClass == null) {
+            PLANS.putIfAbsent(sqlDaoClass, new ConcurrentHashMap<Method, EntitySqlDaoInvocationPlan>());
+            plansForClass = PLANS.get(sqlDaoClass);
+        }
+
+        EntitySqlDaoInvocationPlan plan = plansForClass.get(method);
+        if (plan == null) {
+            // Racing threads compute the same plan
+            plansForClass.putIfAbsent(method, new EntitySqlDaoInvocationPlan(sqlDaoClass, method));
+            plan = plansForClass.get(method);
+        }
+        return plan;
+    }
+
+    private EntitySqlDaoInvocationPlan(final Class<?> sqlDaoClass, final Method method) {
+        this.sqlDaoClass = sqlDaoClass;
+        this.auditedAnnotation = method.getAnnotation(Audited.class);
+        this.cachableAnnotation = method.getAnnotation(Cachable.class);
+        this.isGetById = method.getName().equals("getById");
+
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        final int[] cachableKeyArgIndexesByPosition = new int[parameterAnnotations.length];
+        int nbCachableKeys = 0;
+        int tenantContextIndex = -1;
+        this.isBindIdArg = new boolean[parameterAnnotations.length];
+        this.isUUIDCollectionArg = new boolean[parameterAnnotations.length];
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            if (tenantContextIndex == -1 && InternalTenantContext.class.isAssignableFrom(parameterTypes[i])) {
+                tenantContextIndex = i;
+            }
+
+            for (final Annotation annotation : parameterAnnotations[i]) {
+                if (CachableKey.class.equals(annotation.annotationType())) {
+                    // CachableKey position starts at 1
+                    cachableKeyArgIndexesByPosition[((CachableKey) annotation).value() - 1] = i;
+                    nbCachableKeys++;
+                } else if (Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
+                    isBindIdArg[i] = true;
+                } else if (UUIDCollectionBinder.class.equals(annotation.annotationType())) {
+                    isUUIDCollectionArg[i] = true;
+                }
+            }
+        }
+        this.cachableKeyArgIndexes = Arrays.copyOf(cachableKeyArgIndexesByPosition, nbCachableKeys);
+        this.tenantContextArgIndex = tenantContextIndex;
+
+        final String sqlDaoName = sqlDaoClass.getSimpleName();
+        this.profilingName = sqlDaoName + ":" + method.getName();
+        this.rawProfilingName = sqlDaoName + " (raw):" + method.getName();
+        this.cachingRawProfilingName = sqlDaoName + "(raw) :" + method.getName();
+        this.auditRawProfilingName = sqlDaoName + " (raw) :";
+        this.historyAndAuditProfilingName = sqlDaoName + " (history/audit) :";
+    }
+
+    // Lazily computed, as only needed for cached calls
+    @Nullable
+    public TableName getTableName() {
+        return getTableName(sqlDaoClass);
+    }
+
+    @Nullable
+    public ObjectType getObjectType() {
+        final TableName tableName = getTableName();
+        return tableName != null ? tableName.getObjectType() : null;
+    }
+
+    @Nullable
+    public Audited getAuditedAnnotation() {
+        return auditedAnnotation;
+    }
+
+    @Nullable
+    public Cachable getCachableAnnotation() {
+        return cachableAnnotation;
+    }
+
+    public boolean isGetById() {
+        return isGetById;
+    }
+
+    public int[] getCachableKeyArgIndexes() {
+        return cachableKeyArgIndexes;
+    }
+
+    @Nullable
+    public InternalTenantContext getTenantContext(final Object[] args) {
+        if (tenantContextArgIndex >= 0) {
+            return (InternalTenantContext) args[tenantContextArgIndex];
+        }
+        for (final Object arg : args) {
+            if (arg instanceof InternalTenantContext) {
+                return (InternalTenantContext) arg;
+            }
+        }
+        return null;
+    }
+
+    public boolean isBindIdArg(final int argIndex) {
+        return isBindIdArg[argIndex];
+    }
+
+    public boolean isUUIDCollectionArg(final int argIndex) {
+        return isUUIDCollectionArg[argIndex];
+    }
+
+    public String getProfilingName() {
+        return profilingName;
+    }
+
+    public String getRawProfilingName() {
+        return rawProfilingName;
+    }
+
+    public String getCachingRawProfilingName() {
+        return cachingRawProfilingName;
+    }
+
+    public String getAuditRawProfilingName() {
+        return auditRawProfilingName;
+    }
+
+    public String getHistoryAndAuditProfilingName() {
+        return historyAndAuditProfilingName;
+    }
+
+    private static TableName getTableName(final Class<?> sqlDaoClass) {
+        TableNameHolder holder = TABLE_NAMES.get(sqlDaoClass);
+        if (holder == null) {
+            holder = new TableNameHolder(computeTableName(sqlDaoClass));
+            TABLE_NAMES.putIfAbsent(sqlDaoClass, holder);
+        }
+        return holder.tableName;
+    }
+
+    /**
+     * Extract object from sqlDaoClass by looking at first parameter type (EntityModelDao) and
+     * constructing an empty object so we can call the getTableName method on it.
+     *
+     * @return the tableName associated to that sqlDaoClass
+     */
+    private static TableName computeTableName(final Class<?> sqlDaoClass) {
+        int foundIndexForEntitySqlDao = -1;
+        // If the sqlDaoClass implements multiple interfaces, first figure out which one is the EntitySqlDao
+        for (int i = 0; i < sqlDaoClass.getGenericInterfaces().length; i++) {
+            final Type type = sqlDaoClass.getGenericInterfaces()[0];
+            if (!(type instanceof ParameterizedType)) {
+                // AuditSqlDao for example won't extend EntitySqlDao
+                return null;
+            }
+
+            if (EntitySqlDao.class.getName().equals(((Class) ((ParameterizedType) type).getRawType()).getName())) {
+                foundIndexForEntitySqlDao = i;
+                break;
+            }
+        }
+        // Find out from the parameters of the EntitySqlDao which one is the EntityModelDao, and extract his (sub)type to finally return the ObjectType
+        if (foundIndexForEntitySqlDao >= 0) {
+            final Type[] types = ((ParameterizedType) sqlDaoClass.getGenericInterfaces()[foundIndexForEntitySqlDao]).getActualTypeArguments();
+            int foundIndexForEntityModelDao = -1;
+            for (int i = 0; i < types.length; i++) {
+                final Class clz = ((Class) types[i]);
+                if (EntityModelDao.class.getName().equals(((Class) ((ParameterizedType) clz.getGenericInterfaces()[0]).getRawType()).getName())) {
+                    foundIndexForEntityModelDao = i;
+                    break;
+                }
+            }
+
+            if (foundIndexForEntityModelDao >= 0) {
+                final Class<? extends EntityModelDao<?>> clz = (Class<? extends EntityModelDao<?>>) types[foundIndexForEntityModelDao];
+                try {
+                    final EntityModelDao<?> modelDao = clz.newInstance();
+                    return modelDao.getTableName();
+                } catch (final InstantiationException e) {
+                    throw new IllegalStateException(e);
+                } catch (final IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    // ConcurrentHashMap doesn't support null values
+    private static final class TableNameHolder {
+
+        private final TableName tableName;
+
+        private TableNameHolder(@Nullable final TableName tableName) {
+            this.tableName = tableName;
+        }
+    }
+}
@@ -18,38 +18,40 @@
 
 package org.killbill.billing.util.entity.dao;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import javax.annotation.Nullable;
 
-import org.killbill.billing.ObjectType;
+import org.joda.time.DateTime;
+
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.cache.Cachable;
 import org.killbill.billing.util.cache.Cachable.CacheType;
-import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.cache.EntityIdCacheKey;
+import org.killbill.billing.util.cache.EntityRecordIdCacheKey;
 import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
-import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 import org.killbill.clock.Clock;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
@@ -59,13 +61,12 @@ import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.exceptions.DBIException;
 import org.skife.jdbi.v2.exceptions.StatementException;
-import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
-import com.google.common.base.Predicate;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
@@ -80,6 +81,8 @@ import com.google.common.collect.Iterables;
  */
 public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>, M extends EntityModelDao<E>, E extends Entity> implements InvocationHandler {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
     private final Class<S> sqlDaoClass;
@@ -109,11 +112,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final EntitySqlDaoInvocationPlan plan = EntitySqlDaoInvocationPlan.get(sqlDaoClass, method);
         try {
-            return prof.executeWithProfiling(ProfilingFeatureType.DAO, sqlDaoClass.getSimpleName() + ":" + method.getName(), new WithProfilingCallback() {
+            return prof.executeWithProfiling(ProfilingFeatureType.DAO, plan.getProfilingName(), new WithProfilingCallback() {
                 @Override
                 public Object execute() throws Throwable {
-                    return invokeSafely(proxy, method, args);
+                    return invokeSafely(plan, method, args);
                 }
             });
         } catch (Throwable t) {
@@ -181,23 +185,23 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         errorDuringTransaction(t, method, null);
     }
 
-    private Object invokeSafely(final Object proxy, final Method method, final Object[] args) throws Throwable {
+    private Object invokeSafely(final EntitySqlDaoInvocationPlan plan, final Method method, final Object[] args) throws Throwable {
 
-        final Audited auditedAnnotation = method.getAnnotation(Audited.class);
-        final Cachable cachableAnnotation = method.getAnnotation(Cachable.class);
+        final Audited auditedAnnotation = plan.getAuditedAnnotation();
+        final Cachable cachableAnnotation = plan.getCachableAnnotation();
 
         // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
         if (auditedAnnotation != null) {
-            return invokeWithAuditAndHistory(auditedAnnotation, method, args);
+            return invokeWithAuditAndHistory(plan, auditedAnnotation, method, args);
         } else if (cachableAnnotation != null && cacheControllerDispatcher != null) {
-            return invokeWithCaching(cachableAnnotation, method, args);
+            return invokeWithCaching(plan, cachableAnnotation, method, args);
         } else {
-            return invokeRaw(method, args);
+            return invokeRaw(plan, method, args);
         }
     }
 
-    private Object invokeRaw(final Method method, final Object[] args) throws Throwable {
-        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (raw):" + method.getName(), new WithProfilingCallback() {
+    private Object invokeRaw(final EntitySqlDaoInvocationPlan plan, final Method method, final Object[] args) throws Throwable {
+        return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, plan.getRawProfilingName(), new WithProfilingCallback() {
             @Override
             public Object execute() throws Throwable {
                 Object result = method.invoke(sqlDao, args);
@@ -205,7 +209,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 // the object after it was created, which means this method is (by pattern) first called right after object creation and contains all the goodies we care
                 // about (record_id, account_record_id, object_id, tenant_record_id)
                 //
-                if (result != null && method.getName().equals("getById")) {
+                if (result != null && plan.isGetById()) {
                     populateCacheOnGetByIdInvocation((M) result);
                 }
                 return result;
@@ -213,41 +217,20 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         });
     }
 
-    private Object invokeWithCaching(final Cachable cachableAnnotation, final Method method, final Object[] args)
+    private Object invokeWithCaching(final EntitySqlDaoInvocationPlan plan, final Cachable cachableAnnotation, final Method method, final Object[] args)
             throws Throwable {
-        final ObjectType objectType = getObjectType();
         final CacheType cacheType = cachableAnnotation.value();
         final CacheController<Object, Object> cache = cacheControllerDispatcher.getCacheController(cacheType);
         Object result = null;
         if (cache != null) {
-            // Find all arguments marked with @CachableKey
-            final Map<Integer, Object> keyPieces = new LinkedHashMap<Integer, Object>();
-            final Annotation[][] annotations = method.getParameterAnnotations();
-            for (int i = 0; i < annotations.length; i++) {
-                for (int j = 0; j < annotations[i].length; j++) {
-                    final Annotation annotation = annotations[i][j];
-                    if (CachableKey.class.equals(annotation.annotationType())) {
-                        // CachableKey position starts at 1
-                        keyPieces.put(((CachableKey) annotation).value() - 1, args[i]);
-                        break;
-                    }
-                }
-            }
-
-            // Build the Cache key
-            final String cacheKey = buildCacheKey(keyPieces);
+            final Object cacheKey = buildCacheKey(plan, cacheType, args);
 
-            final InternalTenantContext internalTenantContext = (InternalTenantContext) Iterables.find(ImmutableList.copyOf(args), new Predicate<Object>() {
-                @Override
-                public boolean apply(final Object input) {
-                    return input instanceof InternalTenantContext;
-                }
-            }, null);
-            final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(objectType, args, internalTenantContext, handle);
+            final InternalTenantContext internalTenantContext = plan.getTenantContext(args);
+            final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(plan.getObjectType(), args, internalTenantContext, handle);
             return cache.get(cacheKey, cacheLoaderArgument);
         }
         if (result == null) {
-            result = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + "(raw) :" + method.getName(), new WithProfilingCallback() {
+            result = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, plan.getCachingRawProfilingName(), new WithProfilingCallback() {
                 @Override
                 public Object execute() throws Throwable {
                     return method.invoke(sqlDao, args);
@@ -257,73 +240,22 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return result;
     }
 
-    /**
-     * Extract object from sqlDaoClass by looking at first parameter type (EntityModelDao) and
-     * constructing an empty object so we can call the getObjectType method on it.
-     *
-     * @return the objectType associated to that handler
-     * @throws InstantiationException
-     * @throws IllegalAccessException
-     * @throws ClassNotFoundException
-     */
-    private ObjectType getObjectType() throws InstantiationException, IllegalAccessException, ClassNotFoundException {
-
-        int foundIndexForEntitySqlDao = -1;
-        // If the sqlDaoClass implements multiple interfaces, first figure out which one is the EntitySqlDao
-        for (int i = 0; i < sqlDaoClass.getGenericInterfaces().length; i++) {
-            final Type type = sqlDaoClass.getGenericInterfaces()[0];
-            if (!(type instanceof java.lang.reflect.ParameterizedType)) {
-                // AuditSqlDao for example won't extend EntitySqlDao
-                return null;
-            }
-
-            if (EntitySqlDao.class.getName().equals(((Class) ((java.lang.reflect.ParameterizedType) type).getRawType()).getName())) {
-                foundIndexForEntitySqlDao = i;
-                break;
-            }
-        }
-        // Find out from the parameters of the EntitySqlDao which one is the EntityModelDao, and extract his (sub)type to finally return the ObjectType
-        if (foundIndexForEntitySqlDao >= 0) {
-            final Type[] types = ((java.lang.reflect.ParameterizedType) sqlDaoClass.getGenericInterfaces()[foundIndexForEntitySqlDao]).getActualTypeArguments();
-            int foundIndexForEntityModelDao = -1;
-            for (int i = 0; i < types.length; i++) {
-                final Class clz = ((Class) types[i]);
-                if (EntityModelDao.class.getName().equals(((Class) ((java.lang.reflect.ParameterizedType) clz.getGenericInterfaces()[0]).getRawType()).getName())) {
-                    foundIndexForEntityModelDao = i;
-                    break;
-                }
-            }
-
-            if (foundIndexForEntityModelDao >= 0) {
-                final String modelClassName = ((Class) types[foundIndexForEntityModelDao]).getName();
-
-                final Class<? extends EntityModelDao<?>> clz = (Class<? extends EntityModelDao<?>>) Class.forName(modelClassName);
-
-                final EntityModelDao<?> modelDao = (EntityModelDao<?>) clz.newInstance();
-                return modelDao.getTableName().getObjectType();
-            }
-        }
-        return null;
-    }
-
-    private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
+    private Object invokeWithAuditAndHistory(final EntitySqlDaoInvocationPlan plan, final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
         InternalCallContext context = null;
         List<String> entityIds = null;
-        final Map<String, M> entities = new HashMap<String, M>();
-        final Map<String, Long> entityRecordIds = new HashMap<String, Long>();
+        Map<String, M> entities = ImmutableMap.<String, M>of();
         if (auditedAnnotation != null) {
             // There will be some work required after the statement is executed,
-            // get the id before in case the change is a delete
+            // get the entities before in case the change is a delete (there is nothing to get yet for an insert)
             context = retrieveContextFromArguments(args);
-            entityIds = retrieveEntityIdsFromArguments(method, args);
-            for (final String entityId : entityIds) {
-                entities.put(entityId, sqlDao.getById(entityId, context));
-                entityRecordIds.put(entityId, sqlDao.getRecordId(entityId, context));
+            entityIds = retrieveEntityIdsFromArguments(plan, args);
+            if (!ChangeType.INSERT.equals(auditedAnnotation.value())) {
+                entities = getByIds(entityIds, context);
             }
         }
 
         // Real jdbc call
-        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (raw) :", new WithProfilingCallback() {
+        final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, plan.getAuditRawProfilingName(), new WithProfilingCallback() {
             @Override
             public Object execute() throws Throwable {
                 return method.invoke(sqlDao, args);
@@ -332,66 +264,85 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
         final ChangeType changeType = auditedAnnotation.value();
 
-        for (final String entityId : entityIds) {
-            updateHistoryAndAudit(entityId, entities, entityRecordIds, changeType, context);
-        }
+        updateHistoryAndAudit(plan, entityIds, entities, changeType, context);
         return obj;
     }
 
     private void populateCacheOnGetByIdInvocation(M model) {
+        final EntityIdCacheKey idKey = new EntityIdCacheKey(model.getTableName(), model.getId());
 
         final CacheController<Object, Object> cacheRecordId = cacheControllerDispatcher.getCacheController(CacheType.RECORD_ID);
-        cacheRecordId.add(getKey(model.getId().toString(), CacheType.RECORD_ID, model.getTableName()), model.getRecordId());
+        cacheRecordId.add(idKey, model.getRecordId());
 
         final CacheController<Object, Object> cacheObjectId = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
-        cacheObjectId.add(getKey(model.getRecordId().toString(), CacheType.OBJECT_ID, model.getTableName()), model.getId());
+        cacheObjectId.add(new EntityRecordIdCacheKey(model.getTableName(), model.getRecordId()), model.getId());
 
         if (model.getTenantRecordId() != null) {
             final CacheController<Object, Object> cacheTenantRecordId = cacheControllerDispatcher.getCacheController(CacheType.TENANT_RECORD_ID);
-            cacheTenantRecordId.add(getKey(model.getId().toString(), CacheType.TENANT_RECORD_ID, model.getTableName()), model.getTenantRecordId());
+            cacheTenantRecordId.add(idKey, model.getTenantRecordId());
         }
 
         if (model.getAccountRecordId() != null) {
             final CacheController<Object, Object> cacheAccountRecordId = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_RECORD_ID);
-            cacheAccountRecordId.add(getKey(model.getId().toString(), CacheType.ACCOUNT_RECORD_ID, model.getTableName()), model.getAccountRecordId());
+            cacheAccountRecordId.add(idKey, model.getAccountRecordId());
         }
     }
 
-    private String getKey(final String rawKey, final CacheType cacheType, final TableName tableName) {
-        return cacheType.isKeyPrefixedWithTableName() ?
-               tableName + CacheControllerDispatcher.CACHE_KEY_SEPARATOR + rawKey :
-               rawKey;
-    }
-
-    private void updateHistoryAndAudit(final String entityId, final Map<String, M> entities, final Map<String, Long> entityRecordIds,
+    private void updateHistoryAndAudit(final EntitySqlDaoInvocationPlan plan, final List<String> entityIds, final Map<String, M> entities,
                                        final ChangeType changeType, final InternalCallContext context) throws Throwable {
 
-        prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, sqlDaoClass.getSimpleName() + " (history/audit) :", new WithProfilingCallback() {
+        prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, plan.getHistoryAndAuditProfilingName(), new WithProfilingCallback() {
             @Override
             public Object execute() {
-                final M reHydratedEntity = sqlDao.getById(entityId, context);
-                final Long reHydratedEntityRecordId = sqlDao.getRecordId(entityId, context);
-                final M entity = Objects.firstNonNull(reHydratedEntity, entities.get(entityId));
-                final Long entityRecordId = Objects.firstNonNull(reHydratedEntityRecordId, entityRecordIds.get(entityId));
-                final TableName tableName = entity.getTableName();
+                if (entityIds.isEmpty()) {
+                    return null;
+                }
+
+                // Make sure to re-hydrate the objects (especially needed for create calls)
+                final Map<String, M> reHydratedEntities = getByIds(entityIds, context);
+                final List<M> entitiesToAudit = new ArrayList<M>(entityIds.size());
+                for (final String entityId : entityIds) {
+                    entitiesToAudit.add(Objects.firstNonNull(reHydratedEntities.get(entityId), entities.get(entityId)));
+                }
+                final TableName tableName = entitiesToAudit.get(0).getTableName();
 
                 // Note: audit entries point to the history record id
-                final Long historyRecordId;
+                final List<Long> historyRecordIds;
                 if (tableName.getHistoryTableName() != null) {
-                    historyRecordId = insertHistory(entityRecordId, entity, changeType, context);
+                    historyRecordIds = insertHistories(entitiesToAudit, changeType, context);
                 } else {
-                    historyRecordId = entityRecordId;
+                    historyRecordIds = new ArrayList<Long>(entitiesToAudit.size());
+                    for (final M entity : entitiesToAudit) {
+                        historyRecordIds.add(entity.getRecordId());
+                    }
                 }
 
-                // Make sure to re-hydrate the object (especially needed for create calls)
-                insertAudits(tableName, entityRecordId, historyRecordId, changeType, context);
+                insertAudits(tableName, entitiesToAudit, historyRecordIds, changeType, context);
                 return null;
             }
         });
     }
 
-    private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
-        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+    // One query per chunk of ids, instead of one per entity
+    private Map<String, M> getByIds(final List<String> entityIds, final InternalTenantContext context) {
+        final Map<String, M> entities = new HashMap<String, M>();
+        if (entityIds.size() == 1) {
+            final M entity = sqlDao.getById(entityIds.get(0), context);
+            if (entity != null) {
+                entities.put(entityIds.get(0), entity);
+            }
+        } else {
+            // Bound the size of the IN clause
+            for (final List<String> entityIdsChunk : Iterables.partition(entityIds, MAX_IDS_PER_QUERY)) {
+                for (final M entity : sqlDao.getByIds(entityIdsChunk, context)) {
+                    entities.put(entity.getId().toString(), entity);
+                }
+            }
+        }
+        return entities;
+    }
+
+    private List<String> retrieveEntityIdsFromArguments(final EntitySqlDaoInvocationPlan plan, final Object[] args) {
         int i = -1;
         for (final Object arg : args) {
             i++;
@@ -410,12 +361,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 }
             }
 
-            for (final Annotation annotation : parameterAnnotations[i]) {
-                if (arg instanceof String && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
-                    return ImmutableList.<String>of((String) arg);
-                } else if (arg instanceof Collection && UUIDCollectionBinder.class.equals(annotation.annotationType())) {
-                    return ImmutableList.<String>copyOf((Collection) arg);
-                }
+            if (arg instanceof String && plan.isBindIdArg(i)) {
+                return ImmutableList.<String>of((String) arg);
+            } else if (arg instanceof Collection && plan.isUUIDCollectionArg(i)) {
+                return ImmutableList.<String>copyOf((Collection) arg);
             }
         }
         return null;
@@ -447,56 +396,107 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return null;
     }
 
-    private Long insertHistory(final Long entityRecordId, final M entityModelDao, final ChangeType changeType, final InternalCallContext context) {
-        final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityRecordId, changeType, clock.getUTCNow());
+    private List<Long> insertHistories(final List<M> entityModelDaos, final ChangeType changeType, final InternalCallContext context) {
+        final DateTime createdDate = clock.getUTCNow();
+        final List<EntityHistoryModelDao<M, E>> histories = new ArrayList<EntityHistoryModelDao<M, E>>(entityModelDaos.size());
+        final List<UUID> historyIds = new ArrayList<UUID>(entityModelDaos.size());
+        final Set<Long> targetRecordIds = new HashSet<Long>(entityModelDaos.size());
+        for (final M entityModelDao : entityModelDaos) {
+            final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityModelDao.getRecordId(), changeType, createdDate);
+            histories.add(history);
+            historyIds.add(history.getId());
+            targetRecordIds.add(entityModelDao.getRecordId());
+        }
 
-        sqlDao.addHistoryFromTransaction(history, context);
+        sqlDao.addHistoriesFromTransaction(histories, context);
 
         final NonEntitySqlDao transactional = SqlObjectBuilder.attach(handle, NonEntitySqlDao.class);
+        if (entityModelDaos.size() == 1) {
+            final Long historyRecordId = nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityModelDaos.get(0).getRecordId(), entityModelDaos.get(0).getHistoryTableName(), transactional);
+            return ImmutableList.<Long>of(historyRecordId);
+        }
 
-        /* return transactional.getLastHistoryRecordId(entityRecordId, entityModelDao.getHistoryTableName().getTableName()); */
-        return nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityRecordId, entityModelDao.getHistoryTableName(), transactional);
+        // Latest history row of each entity, looked-up by target_record_id (indexed on all history tables)
+        final Map<UUID, Long> historyRecordIdsById = nonEntityDao.retrieveLastHistoryRecordIdsFromTransaction(targetRecordIds, entityModelDaos.get(0).getHistoryTableName(), context, transactional);
+
+        final List<Long> historyRecordIds = new ArrayList<Long>(historyIds.size());
+        for (final UUID historyId : historyIds) {
+            final Long historyRecordId = historyRecordIdsById.get(historyId);
+            // The same entity shouldn't be audited twice in a batch
+            Preconditions.checkState(historyRecordId != null, "Unable to retrieve the history record id for %s", historyId);
+            historyRecordIds.add(historyRecordId);
+        }
+        return historyRecordIds;
     }
 
-    private void insertAudits(final TableName tableName, final Long entityRecordId, final Long historyRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
+    private void insertAudits(final TableName tableName, final List<M> entities, final List<Long> historyRecordIds, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
         final TableName destinationTableName = Objects.firstNonNull(tableName.getHistoryTableName(), tableName);
-        final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordId, changeType, clock.getUTCNow());
+        final DateTime createdDate = clock.getUTCNow();
 
-        final InternalCallContext context;
         // Populate the account record id when creating the account record
         if (TableName.ACCOUNT.equals(tableName) && ChangeType.INSERT.equals(changeType)) {
-            context = new InternalCallContext(contextMaybeWithoutAccountRecordId, entityRecordId);
+            for (int i = 0; i < entities.size(); i++) {
+                final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordIds.get(i), changeType, createdDate);
+                sqlDao.insertAuditFromTransaction(audit, new InternalCallContext(contextMaybeWithoutAccountRecordId, entities.get(i).getRecordId()));
+            }
         } else {
-            context = contextMaybeWithoutAccountRecordId;
+            final List<EntityAudit> audits = new ArrayList<EntityAudit>(entities.size());
+            for (final Long historyRecordId : historyRecordIds) {
+                audits.add(new EntityAudit(destinationTableName, historyRecordId, changeType, createdDate));
+            }
+            sqlDao.insertAuditsFromTransaction(audits, contextMaybeWithoutAccountRecordId);
         }
-        sqlDao.insertAuditFromTransaction(audit, context);
 
         // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
         // TODO Knowledge on how the key is constructed is also in AuditSqlDao
+        final CacheController<Object, Object> cacheController;
         if (tableName.getHistoryTableName() != null) {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
-                cacheController.remove(key);
-            }
+            cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
         } else {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
+            cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
+        }
+        if (cacheController != null) {
+            for (final M entity : entities) {
+                final String key;
+                if (tableName.getHistoryTableName() != null) {
+                    key = buildCacheKey(new Object[]{tableName.getHistoryTableName(), tableName.getHistoryTableName(), entity.getRecordId()});
+                } else {
+                    key = buildCacheKey(new Object[]{tableName, entity.getRecordId()});
+                }
                 cacheController.remove(key);
             }
         }
     }
 
-    private String buildCacheKey(final Map<Integer, Object> keyPieces) {
+    private Object buildCacheKey(final EntitySqlDaoInvocationPlan plan, final CacheType cacheType, final Object[] args) {
+        // Build the Cache key from all arguments marked with @CachableKey
+        final int[] cachableKeyArgIndexes = plan.getCachableKeyArgIndexes();
+        switch (cacheType) {
+            case RECORD_ID:
+            case ACCOUNT_RECORD_ID:
+            case TENANT_RECORD_ID:
+                final Object id = args[cachableKeyArgIndexes[0]];
+                return new EntityIdCacheKey(plan.getTableName(), id instanceof UUID ? (UUID) id : UUID.fromString(id.toString()));
+            case OBJECT_ID:
+                return new EntityRecordIdCacheKey(plan.getTableName(), (Long) args[cachableKeyArgIndexes[0]]);
+            default:
+                final Object[] keyPieces = new Object[cachableKeyArgIndexes.length];
+                for (int i = 0; i < cachableKeyArgIndexes.length; i++) {
+                    keyPieces[i] = args[cachableKeyArgIndexes[i]];
+                }
+                return buildCacheKey(keyPieces);
+        }
+    }
+
+    private String buildCacheKey(final Object[] keyPieces) {
         final StringBuilder cacheKey = new StringBuilder();
-        for (int i = 0; i < keyPieces.size(); i++) {
+        for (int i = 0; i < keyPieces.length; i++) {
             // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
             // Since the database engine may be case insensitive and we use arguments of the SQL method call
             // to build the key, the key has to be case insensitive as well.
-            final String str = String.valueOf(keyPieces.get(i)).toUpperCase();
+            final String str = String.valueOf(keyPieces[i]).toUpperCase();
             cacheKey.append(str);
-            if (i < keyPieces.size() - 1) {
+            if (i < keyPieces.length - 1) {
                 cacheKey.append(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
             }
         }
@@ -21,6 +21,7 @@ package org.killbill.billing.util.glue;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheControllerDispatcherProvider;
+import org.killbill.billing.util.cache.CacheRefreshService;
 import org.killbill.billing.util.cache.EhCacheCacheManagerProvider;
 import org.killbill.billing.util.config.CacheConfig;
 import org.skife.config.ConfigurationObjectFactory;
@@ -42,6 +43,7 @@ public class CacheModule extends KillBillModule {
         bind(CacheManager.class).toProvider(EhCacheCacheManagerProvider.class).asEagerSingleton();
 
         // Kill Bill generic cache dispatcher
+        bind(CacheRefreshService.class).asEagerSingleton();
         bind(CacheControllerDispatcher.class).toProvider(CacheControllerDispatcherProvider.class).asEagerSingleton();
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.log;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.slf4j.MDC;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Per-tenant and per-account debug switch.
+ * <p/>
+ * Code paths working on behalf of an account (e.g. the invoice run) record the tenant and account record ids in the MDC
+ * (see {@link #setContext(InternalTenantContext)}). When a tenant or an account has been enabled, the logging backend
+ * (see org.killbill.billing.server.log.ScopedDebugTurboFilter) turns DEBUG on for the Kill Bill loggers while
+ * that tenant or account is being processed, so the guarded diagnostics (e.g. billing events, proposed invoice items)
+ * are only built for them.
+ * <p/>
+ * The state is local to the JVM and isn't persisted. As the logging backend isn't managed by Guice, the server hands
+ * it this instance once the injector has been created.
+ */
+@Singleton
+public class ScopedDebugLogging {
+
+    public static final String MDC_TENANT_RECORD_ID = "kb.tenantRecordId";
+    public static final String MDC_ACCOUNT_RECORD_ID = "kb.accountRecordId";
+
+    private final Set<Long> tenantRecordIds = Sets.<Long>newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private final Set<Long> accountRecordIds = Sets.<Long>newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    @Inject
+    public ScopedDebugLogging() {
+    }
+
+    public void enableForTenant(final Long tenantRecordId) {
+        tenantRecordIds.add(tenantRecordId);
+    }
+
+    public void disableForTenant(final Long tenantRecordId) {
+        tenantRecordIds.remove(tenantRecordId);
+    }
+
+    public void enableForAccount(final Long accountRecordId) {
+        accountRecordIds.add(accountRecordId);
+    }
+
+    public void disableForAccount(final Long accountRecordId) {
+        accountRecordIds.remove(accountRecordId);
+    }
+
+    public void disableAll() {
+        tenantRecordIds.clear();
+        accountRecordIds.clear();
+    }
+
+    public Set<Long> getEnabledTenantRecordIds() {
+        return ImmutableSet.<Long>copyOf(tenantRecordIds);
+    }
+
+    public Set<Long> getEnabledAccountRecordIds() {
+        return ImmutableSet.<Long>copyOf(accountRecordIds);
+    }
+
+    // Cheap check for the logging backend, to skip the MDC lookups when nothing has been enabled
+    public boolean isAnyEnabled() {
+        return !tenantRecordIds.isEmpty() || !accountRecordIds.isEmpty();
+    }
+
+    // Whether DEBUG should be on for the tenant and account recorded in the MDC of the current thread
+    public boolean isEnabledForCurrentContext() {
+        if (!isAnyEnabled()) {
+            return false;
+        }
+        return isEnabled(tenantRecordIds, MDC.get(MDC_TENANT_RECORD_ID)) || isEnabled(accountRecordIds, MDC.get(MDC_ACCOUNT_RECORD_ID));
+    }
+
+    /**
+     * Record the tenant and account record ids of the context in the MDC of the current thread.
+     *
+     * @param context the context being processed
+     * @return the values previously recorded, to be given back to {@link #restoreContext(PreviousContext)} once done
+     */
+    public PreviousContext setContext(final InternalTenantContext context) {
+        final PreviousContext previousContext = new PreviousContext(MDC.get(MDC_TENANT_RECORD_ID), MDC.get(MDC_ACCOUNT_RECORD_ID));
+        putOrRemove(MDC_TENANT_RECORD_ID, context.getTenantRecordId() == null ? null : context.getTenantRecordId().toString());
+        putOrRemove(MDC_ACCOUNT_RECORD_ID, context.getAccountRecordId() == null ? null : context.getAccountRecordId().toString());
+        return previousContext;
+    }
+
+    // Nested scopes (e.g. an account processed while handling another one) get the outer values back
+    public void restoreContext(final PreviousContext previousContext) {
+        putOrRemove(MDC_TENANT_RECORD_ID, previousContext.tenantRecordId);
+        putOrRemove(MDC_ACCOUNT_RECORD_ID, previousContext.accountRecordId);
+    }
+
+    private static boolean isEnabled(final Set<Long> recordIds, @Nullable final String recordId) {
+        if (recordIds.isEmpty() || recordId == null) {
+            return false;
+        }
+        try {
+            return recordIds.contains(Long.valueOf(recordId));
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static void putOrRemove(final String key, @Nullable final String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+
+    public static final class PreviousContext {
+
+        private final String tenantRecordId;
+        private final String accountRecordId;
+
+        private PreviousContext(@Nullable final String tenantRecordId, @Nullable final String accountRecordId) {
+            this.tenantRecordId = tenantRecordId;
+            this.accountRecordId = accountRecordId;
+        }
+    }
+}
@@ -21,8 +21,10 @@ import java.util.UUID;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -36,6 +38,12 @@ import org.killbill.billing.util.tag.Tag;
 @EntitySqlDaoStringTemplate
 public interface TagSqlDao extends EntitySqlDao<TagModelDao, Tag> {
 
+    @SqlBatch
+    @BatchChunkSize(1000)
+    @Audited(ChangeType.INSERT)
+    void batchCreate(@BindBean Iterable<TagModelDao> tags,
+                     @BindBean InternalCallContext context);
+
     @SqlUpdate
     @Audited(ChangeType.DELETE)
     void markTagAsDeleted(@Bind("id") String tagId,
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.dao;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -32,6 +33,8 @@ import org.killbill.billing.util.dao.NonEntitySqlDao;
 import org.killbill.billing.util.dao.TableName;
 import org.skife.jdbi.v2.Handle;
 
+import com.google.common.collect.ImmutableMap;
+
 public class MockNonEntityDao implements NonEntityDao {
 
     private final Map<UUID, Long> tenantRecordIdMappings = new HashMap<UUID, Long>();
@@ -90,6 +93,11 @@ public class MockNonEntityDao implements NonEntityDao {
         return null;
     }
 
+    @Override
+    public Map<UUID, Long> retrieveLastHistoryRecordIdsFromTransaction(final Collection<Long> targetRecordIds, final TableName historyTableName, final InternalTenantContext context, final NonEntitySqlDao transactional) {
+        return ImmutableMap.<UUID, Long>of();
+    }
+
     @Override
     public Long retrieveHistoryTargetRecordId(final Long recordId, final TableName tableName) {
         return null;
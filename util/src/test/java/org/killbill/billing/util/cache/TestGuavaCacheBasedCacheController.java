@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014-2015 Groupon, Inc
+ * Copyright 2014-2015 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.sf.ehcache.config.CacheConfiguration;
+
+public class TestGuavaCacheBasedCacheController extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testLoadOnlyOnce() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        cacheLoader.values.put("key", "value");
+        final CacheController<Object, Object> cacheController = createCacheController(cacheLoader, 100);
+
+        Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value");
+        Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value");
+        Assert.assertEquals(cacheLoader.nbLoads.get(), 1);
+        Assert.assertEquals(cacheController.size(), 1);
+
+        Assert.assertTrue(cacheController.remove("key"));
+        Assert.assertFalse(cacheController.remove("key"));
+        Assert.assertEquals(cacheController.size(), 0);
+
+        Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value");
+        Assert.assertEquals(cacheLoader.nbLoads.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testMissingAndEmptyValues() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        cacheLoader.values.put("empty", BaseCacheLoader.EMPTY_VALUE_PLACEHOLDER);
+        final CacheController<Object, Object> cacheController = createCacheController(cacheLoader, 100);
+
+        // Missing values aren't cached
+        Assert.assertNull(cacheController.get("missing", new CacheLoaderArgument(ObjectType.TAG)));
+        Assert.assertNull(cacheController.get("missing", new CacheLoaderArgument(ObjectType.TAG)));
+        Assert.assertEquals(cacheLoader.nbLoads.get(), 2);
+
+        // Empty values are
+        Assert.assertNull(cacheController.get("empty", new CacheLoaderArgument(ObjectType.TAG)));
+        Assert.assertNull(cacheController.get("empty", new CacheLoaderArgument(ObjectType.TAG)));
+        Assert.assertEquals(cacheLoader.nbLoads.get(), 3);
+        Assert.assertEquals(cacheController.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testEvictionBasedOnWeight() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        final CacheController<Object, Object> cacheController = createCacheController(cacheLoader, 10);
+
+        cacheController.add("small", "value");
+        Assert.assertEquals(cacheController.size(), 1);
+
+        // Weighs more than the whole cache
+        final List<Integer> bigValue = ImmutableList.<Integer>of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        cacheController.add("big", bigValue);
+        Assert.assertNull(cacheController.get("big", new CacheLoaderArgument(ObjectType.TAG)));
+        Assert.assertEquals(cacheController.get("small", new CacheLoaderArgument(ObjectType.TAG)), "value");
+
+        cacheController.removeAll();
+        Assert.assertEquals(cacheController.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testRemoveDuringRefresh() throws Exception {
+        final CountDownLatch reloadStarted = new CountDownLatch(1);
+        final CountDownLatch removeDone = new CountDownLatch(1);
+        final AtomicInteger nbCalls = new AtomicInteger(0);
+        final MapCacheLoader cacheLoader = new MapCacheLoader() {
+            @Override
+            public Object load(final Object key, final Object argument) {
+                final Object value = super.load(key, argument);
+                if (nbCalls.incrementAndGet() == 2) {
+                    // Block the background reload until the entry has been removed
+                    reloadStarted.countDown();
+                    try {
+                        removeDone.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return value;
+            }
+        };
+        cacheLoader.values.put("key", "value1");
+
+        final ListeningExecutorService refreshExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        try {
+            cacheLoader.init();
+            final CacheConfiguration cacheConfiguration = new CacheConfiguration(CacheType.TENANT_KV.getCacheName(), 100).eternal(true);
+            final CacheController<Object, Object> cacheController = new GuavaCacheBasedCacheController<Object, Object>(CacheType.TENANT_KV, cacheLoader, cacheConfiguration, 1, refreshExecutor);
+
+            Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value1");
+
+            // Trigger the background reload, the previous value is returned meanwhile
+            Thread.sleep(1100);
+            Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value1");
+            Assert.assertTrue(reloadStarted.await(10, TimeUnit.SECONDS));
+
+            // Invalidate the entry while the reload is in-flight
+            cacheLoader.values.put("key", "value2");
+            cacheController.remove("key");
+            removeDone.countDown();
+            refreshExecutor.shutdown();
+            Assert.assertTrue(refreshExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+            // The reloaded value must not resurrect the removed entry
+            cacheLoader.values.put("key", "value3");
+            Assert.assertEquals(cacheController.get("key", new CacheLoaderArgument(ObjectType.TAG)), "value3");
+            Assert.assertEquals(cacheLoader.nbLoads.get(), 3);
+        } finally {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    private CacheController<Object, Object> createCacheController(final BaseCacheLoader cacheLoader, final int maxEntries) {
+        cacheLoader.init();
+        final CacheConfiguration cacheConfiguration = new CacheConfiguration(CacheType.RECORD_ID.getCacheName(), maxEntries).eternal(true);
+        return new GuavaCacheBasedCacheController<Object, Object>(CacheType.RECORD_ID, cacheLoader, cacheConfiguration, 0, null);
+    }
+
+    private static class MapCacheLoader extends BaseCacheLoader {
+
+        private final Map<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+        private final AtomicInteger nbLoads = new AtomicInteger(0);
+
+        @Override
+        public CacheType getCacheType() {
+            return CacheType.RECORD_ID;
+        }
+
+        @Override
+        public Object load(final Object key, final Object argument) {
+            checkCacheLoaderStatus();
+            nbLoads.incrementAndGet();
+            return values.get(key);
+        }
+    }
+}
@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -78,6 +80,30 @@ public class MockEntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U
         return DefaultPagination.<M>build(offset, limit, ImmutableList.<M>copyOf(getAll(context)));
     }
 
+    @Override
+    public Pagination<M> getFromRecordId(final Long fromRecordId, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        final Map<Long, M> entitiesByRecordId = new TreeMap<Long, M>();
+        for (final Map<Long, M> cur : entities.values()) {
+            final Long recordId = cur.keySet().iterator().next();
+            if (recordId >= fromRecordId) {
+                entitiesByRecordId.put(recordId, cur.values().iterator().next());
+            }
+        }
+
+        final List<M> results = new ArrayList<M>();
+        Long nextRecordId = null;
+        for (final Entry<Long, M> entry : entitiesByRecordId.entrySet()) {
+            if (results.size() < limit) {
+                results.add(entry.getValue());
+            } else {
+                nextRecordId = entry.getKey();
+                break;
+            }
+        }
+        final Long count = withCount ? getCount(context) : null;
+        return DefaultPagination.<M>keyset(fromRecordId, limit, nextRecordId, count, count, results.iterator());
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return (long) entities.keySet().size();
@@ -18,8 +18,10 @@ package org.killbill.billing.util.tag.dao;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import org.skife.jdbi.v2.Handle;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -29,6 +31,9 @@ import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
@@ -176,4 +181,57 @@ public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testBatchedAuditsViaHistory() throws Exception {
+        final UUID objectId = UUID.randomUUID();
+        final List<TagModelDao> tags = new ArrayList<TagModelDao>();
+        for (int i = 0; i < 5; i++) {
+            tags.add(new TagModelDao(clock.getUTCNow(), UUID.randomUUID(), objectId, ObjectType.INVOICE_ITEM));
+        }
+
+        final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+        // Create a first history row for one of the tags, to make sure previous history rows of the same entity are not picked up
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(TagSqlDao.class).create(tags.get(0), internalCallContext);
+                return null;
+            }
+        });
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final TagSqlDao tagSqlDao = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+                tagSqlDao.markTagAsDeleted(tags.get(0).getId().toString(), internalCallContext);
+                tagSqlDao.batchCreate(tags.subList(1, tags.size()), internalCallContext);
+                return null;
+            }
+        });
+
+        // One audit entry per history row, pointing to that history row
+        final Handle handle = dbi.open();
+        try {
+            for (int i = 0; i < tags.size(); i++) {
+                final List<Map<String, Object>> audits = handle.select("select h.change_type history_change_type, a.change_type audit_change_type " +
+                                                                       "from tags t " +
+                                                                       "join tag_history h on h.target_record_id = t.record_id " +
+                                                                       "left outer join audit_log a on a.target_record_id = h.record_id and a.table_name = 'TAG_HISTORY' " +
+                                                                       "where t.id = ? " +
+                                                                       "order by h.record_id asc", tags.get(i).getId().toString());
+                if (i == 0) {
+                    assertEquals(audits.size(), 2);
+                    assertEquals(audits.get(0).get("audit_change_type"), "INSERT");
+                    assertEquals(audits.get(1).get("audit_change_type"), "DELETE");
+                } else {
+                    assertEquals(audits.size(), 1);
+                    assertEquals(audits.get(0).get("audit_change_type"), "INSERT");
+                }
+                for (final Map<String, Object> audit : audits) {
+                    assertEquals(audit.get("audit_change_type"), audit.get("history_change_type"));
+                }
+            }
+        } finally {
+            handle.close();
+        }
+    }
 }